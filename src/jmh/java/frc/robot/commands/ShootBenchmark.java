@@ -0,0 +1,71 @@
+package frc.robot.commands;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import frc.robot.constants.ShooterConstants;
+
+/**
+ * Benchmarks the shoot on the move math Shoot runs every loop
+ * <p>
+ * The robot is at random places in front of the speaker with random velocities.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShootBenchmark {
+
+  // The number of samples to cycle through so the JIT can't constant fold the inputs
+  private static final int SAMPLES = 1024;
+
+  private final Shoot.Aim aim = new Shoot.Aim();
+  private double[] dx;
+  private double[] dy;
+  private double[] dz;
+  private double[] vx;
+  private double[] vy;
+  private int index;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(972);
+    dx = new double[SAMPLES];
+    dy = new double[SAMPLES];
+    dz = new double[SAMPLES];
+    vx = new double[SAMPLES];
+    vy = new double[SAMPLES];
+    for(int i = 0; i < SAMPLES; i++){
+      dx[i] = random.nextDouble(1, 6);
+      dy[i] = random.nextDouble(-3, 3);
+      dz[i] = random.nextDouble(-1.6, -1.2);
+      vx[i] = random.nextDouble(-3, 3);
+      vy[i] = random.nextDouble(-3, 3);
+    }
+  }
+
+  private int next() {
+    index = index + 1 < SAMPLES ? index + 1 : 0;
+    return index;
+  }
+
+  @Benchmark
+  public Shoot.Aim aim() {
+    int i = next();
+    Shoot.aim(dx[i], dy[i], dz[i], vx[i], vy[i], ShooterConstants.SHOOT_SPEED_MPS, aim);
+    return aim;
+  }
+}
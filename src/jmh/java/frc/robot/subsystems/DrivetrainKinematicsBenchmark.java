@@ -0,0 +1,79 @@
+package frc.robot.subsystems;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import frc.robot.constants.swerve.DriveConstants;
+
+/**
+ * Benchmarks the kinematics Drivetrain runs every loop
+ * <p>
+ * Inverse kinematics is what driving without the setpoint generator does, and forward kinematics with the field
+ * relative conversion is what Drivetrain.publishState() does. The setpoint generator has its own benchmark.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DrivetrainKinematicsBenchmark {
+
+  // The number of samples to cycle through so the JIT can't constant fold the inputs
+  private static final int SAMPLES = 1024;
+
+  private final SwerveDriveKinematics kinematics = DriveConstants.KINEMATICS;
+  private ChassisSpeeds[] speeds;
+  private SwerveModuleState[][] states;
+  private Rotation2d[] yaws;
+  private int index;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(972);
+    speeds = new ChassisSpeeds[SAMPLES];
+    states = new SwerveModuleState[SAMPLES][];
+    yaws = new Rotation2d[SAMPLES];
+    for(int i = 0; i < SAMPLES; i++){
+      speeds[i] = new ChassisSpeeds(
+        random.nextDouble(-DriveConstants.kMaxSpeed, DriveConstants.kMaxSpeed),
+        random.nextDouble(-DriveConstants.kMaxSpeed, DriveConstants.kMaxSpeed),
+        random.nextDouble(-DriveConstants.kMaxAngularSpeed, DriveConstants.kMaxAngularSpeed)
+      );
+      states[i] = kinematics.toSwerveModuleStates(speeds[i]);
+      yaws[i] = new Rotation2d(random.nextDouble(-Math.PI, Math.PI));
+    }
+  }
+
+  private int next() {
+    index = index + 1 < SAMPLES ? index + 1 : 0;
+    return index;
+  }
+
+  @Benchmark
+  public SwerveModuleState[] toSwerveModuleStates() {
+    return kinematics.toSwerveModuleStates(speeds[next()]);
+  }
+
+  @Benchmark
+  public ChassisSpeeds toFieldRelativeSpeeds() {
+    int i = next();
+    ChassisSpeeds robotRelativeSpeeds = kinematics.toChassisSpeeds(states[i]);
+    return ChassisSpeeds.fromRobotRelativeSpeeds(robotRelativeSpeeds, yaws[i]);
+  }
+}
@@ -0,0 +1,76 @@
+package frc.robot.util;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import frc.robot.constants.swerve.DriveConstants;
+
+/**
+ * Benchmarks the ConversionUtils the modules and PathPlanner commands use
+ * <p>
+ * The velocity conversion is the chain Module logs its measured drive speed with.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConversionUtilsBenchmark {
+
+  // The number of samples to cycle through so the JIT can't constant fold the inputs
+  private static final int SAMPLES = 1024;
+
+  private double[] rpms;
+  private double[] positions;
+  private Pose2d[] poses;
+  private int index;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(972);
+    rpms = new double[SAMPLES];
+    positions = new double[SAMPLES];
+    poses = new Pose2d[SAMPLES];
+    for(int i = 0; i < SAMPLES; i++){
+      rpms[i] = random.nextDouble(-6000, 6000);
+      positions[i] = random.nextDouble(-1e6, 1e6);
+      poses[i] = new Pose2d(random.nextDouble(0, 16.5), random.nextDouble(0, 8.2), new Rotation2d(random.nextDouble(-Math.PI, Math.PI)));
+    }
+  }
+
+  private int next() {
+    index = index + 1 < SAMPLES ? index + 1 : 0;
+    return index;
+  }
+
+  @Benchmark
+  public double driveVelocity() {
+    return ConversionUtils.falconToMPS(ConversionUtils.RPMToFalcon(rpms[next()] / 60, 1),
+      DriveConstants.kWheelCircumference, DriveConstants.kDriveGearRatio);
+  }
+
+  @Benchmark
+  public double drivePosition() {
+    return ConversionUtils.falconToMeters(positions[next()], DriveConstants.kWheelCircumference, DriveConstants.kDriveGearRatio);
+  }
+
+  @Benchmark
+  public Pose2d pathPlannerPoseRed() {
+    return ConversionUtils.absolutePoseToPathPlannerPose(poses[next()], Alliance.Red);
+  }
+}
@@ -0,0 +1,105 @@
+package frc.robot.util;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import frc.robot.util.DetectedObject.ObjectType;
+
+/**
+ * Compares projecting a frame of detections with the DetectedObject constructors and with DetectedObjectProjector
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DetectedObjectBenchmark {
+
+  /** How many detections are in a frame */
+  @Param({"1", "8", "32"})
+  public int count;
+
+  private Transform3d robotToCamera;
+  private DetectedObjectProjector projector;
+  private Pose2d robotPose;
+  private double[] xOffsets;
+  private double[] yOffsets;
+  private double[] distances;
+  private ObjectType[] types;
+  private double[] x;
+  private double[] y;
+  private double[] z;
+
+  @Setup
+  public void setup() {
+    DetectedObject.setDrive(null);
+    Random random = new Random(972);
+    robotToCamera = new Transform3d(new Translation3d(0.2, -0.1, 0.6), new Rotation3d(0, 0.3, Math.PI));
+    projector = new DetectedObjectProjector(robotToCamera);
+    robotPose = new Pose2d(5, 3, new Rotation2d(1));
+    xOffsets = new double[count];
+    yOffsets = new double[count];
+    distances = new double[count];
+    types = new ObjectType[count];
+    for(int i = 0; i < count; i++){
+      xOffsets[i] = random.nextDouble(-0.6, 0.6);
+      yOffsets[i] = random.nextDouble(0.01, 0.4);
+      distances[i] = random.nextDouble(0.5, 6);
+      types[i] = ObjectType.NOTE;
+    }
+    x = new double[count];
+    y = new double[count];
+    z = new double[count];
+  }
+
+  @Benchmark
+  public void constructors(Blackhole blackhole) {
+    for(int i = 0; i < count; i++){
+      DetectedObject object = new DetectedObject(xOffsets[i], yOffsets[i], distances[i], types[i], robotToCamera);
+      blackhole.consume(DetectedObject.toFieldRelative(object.pose.getTranslation(), robotPose));
+    }
+  }
+
+  @Benchmark
+  public void projector(Blackhole blackhole) {
+    projector.project(xOffsets, yOffsets, distances, count, robotPose, x, y, z);
+    blackhole.consume(x);
+    blackhole.consume(y);
+    blackhole.consume(z);
+  }
+
+  @Benchmark
+  public void groundConstructors(Blackhole blackhole) {
+    for(int i = 0; i < count; i++){
+      DetectedObject object = new DetectedObject(xOffsets[i], yOffsets[i], types[i], robotToCamera);
+      blackhole.consume(DetectedObject.toFieldRelative(object.pose.getTranslation(), robotPose));
+    }
+  }
+
+  @Benchmark
+  public void groundProjector(Blackhole blackhole) {
+    projector.projectToGround(xOffsets, yOffsets, types, count, robotPose, x, y, z);
+    blackhole.consume(x);
+    blackhole.consume(y);
+    blackhole.consume(z);
+  }
+}
@@ -0,0 +1,75 @@
+package frc.robot.util;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks DynamicSlewRateLimiter, which limits the driver's inputs every loop
+ * <p>
+ * Each call reads the time, so this needs WPILib's native libraries, which the jmh task sets up.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DynamicSlewRateLimiterBenchmark {
+
+  // The number of samples to cycle through so the JIT can't constant fold the inputs
+  private static final int SAMPLES = 1024;
+
+  private DynamicSlewRateLimiter limiter;
+  private DynamicSlewRateLimiter continuousLimiter;
+  private double[] inputs;
+  private double[] angles;
+  private int index;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(972);
+    inputs = new double[SAMPLES];
+    angles = new double[SAMPLES];
+    for(int i = 0; i < SAMPLES; i++){
+      inputs[i] = random.nextDouble(-1, 1);
+      // Angles a little outside of the range so they have to be wrapped sometimes
+      angles[i] = random.nextDouble(-1.2 * Math.PI, 1.2 * Math.PI);
+    }
+    limiter = new DynamicSlewRateLimiter(3, -3, 0);
+    continuousLimiter = new DynamicSlewRateLimiter(3, -3, 0);
+    continuousLimiter.setContinuousLimits(-Math.PI, Math.PI);
+    continuousLimiter.enableContinuous(true);
+  }
+
+  private int next() {
+    index = index + 1 < SAMPLES ? index + 1 : 0;
+    return index;
+  }
+
+  @Benchmark
+  public double calculate() {
+    return limiter.calculate(inputs[next()]);
+  }
+
+  @Benchmark
+  public double calculateWithRateLimit() {
+    int i = next();
+    return limiter.calculate(inputs[i], 1 + Math.abs(inputs[i]));
+  }
+
+  @Benchmark
+  public double calculateContinuous() {
+    return continuousLimiter.calculate(angles[next()]);
+  }
+}
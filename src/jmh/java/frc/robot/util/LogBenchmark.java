@@ -0,0 +1,81 @@
+package frc.robot.util;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks Log.update for each kind of log the robot has
+ * <p>
+ * The delays are 0 so every update writes to the log, which is the cost on the loops where a log is due.
+ * The logs go to the DataLogManager's log like on the robot, so this needs WPILib's native libraries, which the
+ * jmh task sets up.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogBenchmark {
+
+  private double value;
+  private int count;
+  private Log<Double> doubleLog;
+  private Log<Integer> integerLog;
+  private Log<Double[]> doubleArrayLog;
+  private Log<Integer[]> integerArrayLog;
+
+  @Setup
+  public void setup() {
+    Duration everyUpdate = Duration.ZERO;
+    doubleLog = new Log<>("LogBenchmark/Double", () -> value, everyUpdate);
+    integerLog = new Log<>("LogBenchmark/Integer", () -> count, everyUpdate);
+    // Like the drivetrain's pose
+    doubleArrayLog = new Log<>("LogBenchmark/Double Array", () -> new Double[] {value, -value, 2 * value}, everyUpdate);
+    integerArrayLog = new Log<>("LogBenchmark/Integer Array", () -> new Integer[] {count, -count}, everyUpdate);
+  }
+
+  private void next() {
+    value += 0.01;
+    count = count + 1 < 1000 ? count + 1 : 0;
+  }
+
+  @Benchmark
+  public Double updateDouble() {
+    next();
+    doubleLog.update();
+    return doubleLog.getValue();
+  }
+
+  @Benchmark
+  public Integer updateInteger() {
+    next();
+    integerLog.update();
+    return integerLog.getValue();
+  }
+
+  @Benchmark
+  public Double[] updateDoubleArray() {
+    next();
+    doubleArrayLog.update();
+    return doubleArrayLog.getValue();
+  }
+
+  @Benchmark
+  public Integer[] updateIntegerArray() {
+    next();
+    integerArrayLog.update();
+    return integerArrayLog.getValue();
+  }
+}
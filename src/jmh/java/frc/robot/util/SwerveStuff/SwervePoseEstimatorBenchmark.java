@@ -0,0 +1,121 @@
+package frc.robot.util.SwerveStuff;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import frc.robot.constants.swerve.DriveConstants;
+
+/**
+ * Benchmarks SwervePoseEstimator against WPILib's SwerveDrivePoseEstimator
+ * <p>
+ * Each odometry benchmark is one update at 250Hz. Each vision benchmark is one update and a vision measurement
+ * from 100ms ago, which is where SwerveDrivePoseEstimator has to replay its history.
+ * The GC profiler's gc.alloc.rate.norm is the allocations per call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SwervePoseEstimatorBenchmark {
+
+  // The number of samples to cycle through so the JIT can't constant fold the inputs
+  private static final int SAMPLES = 1024;
+  private static final double PERIOD = 1 / 250.0;
+  private static final double VISION_LATENCY = 0.1;
+
+  private SwerveDrivePoseEstimator wpilibEstimator;
+  private SwervePoseEstimator estimator;
+  private Rotation2d[] gyroAngles;
+  private SwerveModulePosition[][] positions;
+  private Pose2d[] visionPoses;
+  private int index;
+  private double time;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(41);
+    int modules = DriveConstants.swerveModuleLocations.length;
+    gyroAngles = new Rotation2d[SAMPLES];
+    positions = new SwerveModulePosition[SAMPLES][modules];
+    visionPoses = new Pose2d[SAMPLES];
+    double[] distances = new double[modules];
+    double heading = 0;
+    for(int i = 0; i < SAMPLES; i++){
+      heading += random.nextDouble(-0.02, 0.02);
+      gyroAngles[i] = new Rotation2d(heading);
+      for(int j = 0; j < modules; j++){
+        distances[j] += random.nextDouble(0, 0.02);
+        positions[i][j] = new SwerveModulePosition(distances[j], new Rotation2d(random.nextDouble(-Math.PI, Math.PI)));
+      }
+      visionPoses[i] = new Pose2d(random.nextDouble(0, 16), random.nextDouble(0, 8), new Rotation2d(heading));
+    }
+
+    wpilibEstimator = new SwerveDrivePoseEstimator(
+      DriveConstants.KINEMATICS, gyroAngles[0], positions[0], new Pose2d(),
+      VecBuilder.fill(0.1, 0.1, 0), VecBuilder.fill(0.9, 0.9, 0.9)
+    );
+    estimator = new SwervePoseEstimator(
+      DriveConstants.KINEMATICS, gyroAngles[0], positions[0], new Pose2d(),
+      VecBuilder.fill(0.1, 0.1, 0), VecBuilder.fill(0.9, 0.9, 0.9)
+    );
+    // Fill the histories so vision measurements have odometry to replay
+    for(int i = 0; i < SAMPLES; i++){
+      next();
+      wpilibEstimator.updateWithTime(time, gyroAngles[index], positions[index]);
+      estimator.updateWithTime(time, gyroAngles[index], positions[index]);
+    }
+  }
+
+  private int next() {
+    index = index + 1 < SAMPLES ? index + 1 : 0;
+    time += PERIOD;
+    return index;
+  }
+
+  @Benchmark
+  public Pose2d wpilibUpdate() {
+    int i = next();
+    return wpilibEstimator.updateWithTime(time, gyroAngles[i], positions[i]);
+  }
+
+  @Benchmark
+  public double update() {
+    int i = next();
+    estimator.updateWithTime(time, gyroAngles[i], positions[i]);
+    return estimator.getEstimatedX();
+  }
+
+  @Benchmark
+  public Pose2d wpilibUpdateWithVision() {
+    int i = next();
+    wpilibEstimator.updateWithTime(time, gyroAngles[i], positions[i]);
+    wpilibEstimator.addVisionMeasurement(visionPoses[i], time - VISION_LATENCY);
+    return wpilibEstimator.getEstimatedPosition();
+  }
+
+  @Benchmark
+  public Pose2d updateWithVision() {
+    int i = next();
+    estimator.updateWithTime(time, gyroAngles[i], positions[i]);
+    estimator.addVisionMeasurement(visionPoses[i], time - VISION_LATENCY);
+    return estimator.getEstimatedPosition();
+  }
+}
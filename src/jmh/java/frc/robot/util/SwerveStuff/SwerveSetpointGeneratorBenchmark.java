@@ -0,0 +1,118 @@
+package frc.robot.util.SwerveStuff;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import frc.robot.constants.Constants;
+import frc.robot.constants.swerve.DriveConstants;
+
+/**
+ * Benchmarks SwerveSetpointGenerator, which runs every drive loop
+ * <p>
+ * By default, this uses random previous setpoints and goals. To use speeds recorded on the robot, pass
+ * {@code -p recording=<file>} with a CSV where each line is {@code vx,vy,omega} of the desired chassis speeds.
+ * The recording is run through the generator once so each goal has the setpoint the robot was at.
+ * The GC profiler's gc.alloc.rate.norm is the allocations per call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SwerveSetpointGeneratorBenchmark {
+
+  /** The CSV file of recorded speeds to use, or empty for random speeds */
+  @Param({""})
+  public String recording;
+
+  // The number of samples to cycle through so the JIT can't constant fold the inputs
+  private static final int SAMPLES = 1024;
+
+  private final SwerveSetpointGenerator generator = new SwerveSetpointGenerator();
+  private final ModuleLimits limits = new ModuleLimits(DriveConstants.kMaxSpeed, 12, 4 * Math.PI);
+  private SwerveSetpoint[] prevSetpoints;
+  private ChassisSpeeds[] desiredSpeeds;
+  private SwerveSetpoint output;
+  private int index;
+
+  @Setup
+  public void setup() throws IOException {
+    if(recording.isEmpty()){
+      Random random = new Random(972);
+      desiredSpeeds = new ChassisSpeeds[SAMPLES];
+      for(int i = 0; i < SAMPLES; i++){
+        desiredSpeeds[i] = new ChassisSpeeds(
+          random.nextDouble(-DriveConstants.kMaxSpeed, DriveConstants.kMaxSpeed),
+          random.nextDouble(-DriveConstants.kMaxSpeed, DriveConstants.kMaxSpeed),
+          random.nextDouble(-DriveConstants.kMaxAngularSpeed, DriveConstants.kMaxAngularSpeed)
+        );
+      }
+    }else{
+      List<String> lines = Files.readAllLines(Path.of(recording));
+      lines.removeIf(String::isBlank);
+      desiredSpeeds = new ChassisSpeeds[lines.size()];
+      for(int i = 0; i < lines.size(); i++){
+        String[] values = lines.get(i).split(",");
+        desiredSpeeds[i] = new ChassisSpeeds(
+          Double.parseDouble(values[0]),
+          Double.parseDouble(values[1]),
+          Double.parseDouble(values[2])
+        );
+      }
+    }
+
+    // Find the setpoint the robot would be at before each goal
+    prevSetpoints = new SwerveSetpoint[desiredSpeeds.length];
+    SwerveSetpoint setpoint = emptySetpoint();
+    for(int i = 0; i < desiredSpeeds.length; i++){
+      prevSetpoints[i] = setpoint;
+      setpoint = generator.generateSetpoint(limits, setpoint, desiredSpeeds[i], Constants.LOOP_TIME);
+    }
+    output = emptySetpoint();
+  }
+
+  private static SwerveSetpoint emptySetpoint() {
+    SwerveModuleState[] states = new SwerveModuleState[DriveConstants.swerveModuleLocations.length];
+    for(int i = 0; i < states.length; i++){
+      states[i] = new SwerveModuleState();
+    }
+    return new SwerveSetpoint(new ChassisSpeeds(), states);
+  }
+
+  private int next() {
+    index = index + 1 < desiredSpeeds.length ? index + 1 : 0;
+    return index;
+  }
+
+  @Benchmark
+  public SwerveSetpoint generateSetpoint() {
+    int i = next();
+    return generator.generateSetpoint(limits, prevSetpoints[i], desiredSpeeds[i], Constants.LOOP_TIME);
+  }
+
+  @Benchmark
+  public SwerveSetpoint generateSetpointInPlace() {
+    int i = next();
+    generator.generateSetpoint(limits, prevSetpoints[i], desiredSpeeds[i], Constants.LOOP_TIME, output);
+    return output;
+  }
+}
@@ -0,0 +1,120 @@
+package frc.robot.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import frc.robot.constants.miscConstants.FieldConstants;
+
+/**
+ * Benchmarks the geometry Vision runs every loop
+ * <p>
+ * By default, this uses random targets. To use targets recorded on the robot, pass
+ * {@code -p recording=<file>} with a CSV where each line is {@code tagId,pitchDegrees,yawDegrees,robotYawRadians}.
+ * DetectedObject construction is benchmarked in {@link DetectedObjectBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VisionBenchmark {
+
+  /** The CSV file of recorded targets to use, or empty for random targets */
+  @Param({""})
+  public String recording;
+
+  // The number of samples to cycle through so the JIT can't constant fold the inputs
+  private static final int SAMPLES = 1024;
+
+  private final Transform3d robotToCamera = new Transform3d(
+    new Translation3d(-0.3, 0.2, 0.5),
+    new Rotation3d(0, -0.35, Math.PI)
+  );
+  private Pose3d[] tagPoses;
+  private double[] pitches;
+  private double[] yaws;
+  private double[] robotYaws;
+  private Pose2d[] poses;
+  private int index;
+
+  @Setup
+  public void setup() throws IOException {
+    if(recording.isEmpty()){
+      Random random = new Random(972);
+      tagPoses = new Pose3d[SAMPLES];
+      pitches = new double[SAMPLES];
+      yaws = new double[SAMPLES];
+      robotYaws = new double[SAMPLES];
+      for(int i = 0; i < SAMPLES; i++){
+        tagPoses[i] = FieldConstants.APRIL_TAGS.get(random.nextInt(FieldConstants.APRIL_TAGS.size())).pose;
+        pitches[i] = random.nextDouble(5, 30);
+        yaws[i] = random.nextDouble(-35, 35);
+        robotYaws[i] = random.nextDouble(-Math.PI, Math.PI);
+      }
+    }else{
+      List<String> lines = Files.readAllLines(Path.of(recording));
+      lines.removeIf(String::isBlank);
+      tagPoses = new Pose3d[lines.size()];
+      pitches = new double[lines.size()];
+      yaws = new double[lines.size()];
+      robotYaws = new double[lines.size()];
+      for(int i = 0; i < lines.size(); i++){
+        String[] values = lines.get(i).split(",");
+        tagPoses[i] = FieldConstants.APRIL_TAGS.get(Integer.parseInt(values[0].trim())-1).pose;
+        pitches[i] = Double.parseDouble(values[1]);
+        yaws[i] = Double.parseDouble(values[2]);
+        robotYaws[i] = Double.parseDouble(values[3]);
+      }
+    }
+
+    // Use the poses calculated from the targets for the pose benchmarks
+    poses = new Pose2d[tagPoses.length];
+    for(int i = 0; i < poses.length; i++){
+      poses[i] = Vision.getManualPose(pitches[i], yaws[i], tagPoses[i], robotToCamera, robotYaws[i]);
+    }
+  }
+
+  private int next() {
+    index = index + 1 < tagPoses.length ? index + 1 : 0;
+    return index;
+  }
+
+  @Benchmark
+  public Pose2d manualPose() {
+    int i = next();
+    return Vision.getManualPose(pitches[i], yaws[i], tagPoses[i], robotToCamera, robotYaws[i]);
+  }
+
+  @Benchmark
+  public Pose2d averagePoses() {
+    int i = next();
+    return Vision.averagePoses(poses[i], poses[tagPoses.length - 1 - i]);
+  }
+
+  @Benchmark
+  public boolean onField() {
+    return Vision.onField(poses[next()]);
+  }
+}
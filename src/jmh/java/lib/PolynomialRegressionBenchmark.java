@@ -0,0 +1,75 @@
+package lib;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks fitting and evaluating a PolynomialRegression
+ * <p>
+ * FeedForwardCharacterization fits a line to every sample it took, so the fit is benchmarked with as many samples
+ * as a characterization run has. The data is a noisy line like voltage against velocity.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PolynomialRegressionBenchmark {
+
+  /** How many samples are fit */
+  @Param({"17", "500"})
+  public int samples;
+
+  /** The degree of the polynomial */
+  @Param({"1", "2"})
+  public int degree;
+
+  // The number of inputs to cycle through for predict so the JIT can't constant fold them
+  private static final int INPUTS = 1024;
+
+  private double[] x;
+  private double[] y;
+  private double[] inputs;
+  private PolynomialRegression regression;
+  private int index;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(972);
+    x = new double[samples];
+    y = new double[samples];
+    for(int i = 0; i < samples; i++){
+      x[i] = random.nextDouble(0, 5);
+      y[i] = 0.2 + 2.1 * x[i] + random.nextGaussian() * 0.05;
+    }
+    inputs = new double[INPUTS];
+    for(int i = 0; i < INPUTS; i++){
+      inputs[i] = random.nextDouble(0, 5);
+    }
+    regression = new PolynomialRegression(x, y, degree);
+  }
+
+  @Benchmark
+  public PolynomialRegression fit() {
+    return new PolynomialRegression(x, y, degree);
+  }
+
+  @Benchmark
+  public double predict() {
+    index = index + 1 < INPUTS ? index + 1 : 0;
+    return regression.predict(inputs[index]);
+  }
+}
@@ -10,10 +10,14 @@ import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.DriverStation.Alliance;
 import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
 import frc.robot.constants.miscConstants.VisionConstants;
 import frc.robot.constants.swerve.DriveConstants;
+import frc.robot.util.CANBusManager;
+import frc.robot.util.DeviceConfigurator;
 import frc.robot.util.LogManager;
 
 /**
@@ -43,7 +47,14 @@ public class Robot extends TimedRobot {
         RobotId robotId = RobotId.getRobotId();
 
         // build the RobotContainer with the robot id from preferences
+        double start = Timer.getFPGATimestamp();
         robotContainer = new RobotContainer(robotId);
+        // the subsystems configure their devices in the background
+        DeviceConfigurator.waitForAll();
+        SmartDashboard.putNumber("Config/RobotContainer (ms)", (Timer.getFPGATimestamp() - start) * 1000);
+
+        // every subsystem has registered the CAN signals it uses
+        CANBusManager.apply();
     }
 
     /**
@@ -66,6 +77,7 @@ public class Robot extends TimedRobot {
         CommandScheduler.getInstance().run();
         
         LogManager.update();
+        CANBusManager.update();
     }
 
     /**
@@ -154,6 +166,13 @@ public class Robot extends TimedRobot {
     public void simulationPeriodic() {
     }
 
+    /**
+     * Gets the RobotContainer, which is null until robotInit() runs
+     */
+    public RobotContainer getRobotContainer() {
+        return robotContainer;
+    }
+
 	/**
 	* Gets the set Alliance; defaults to red if not set.
 	* This method replaces {@link edu.first.wpilibj.DriverStation.getAlliance}.
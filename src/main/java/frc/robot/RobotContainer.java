@@ -19,11 +19,13 @@ import frc.robot.subsystems.gpm.Arm;
 import frc.robot.subsystems.gpm.Intake;
 import frc.robot.subsystems.gpm.Shooter;
 import frc.robot.subsystems.gpm.StorageIndex;
+import frc.robot.util.DetectedObject;
 import frc.robot.util.PathGroupLoader;
 import frc.robot.util.ShuffleBoard.ShuffleBoardManager;
 import frc.robot.util.Vision;
 import lib.controllers.GameController.RumbleStatus;
 
+import java.util.Set;
 import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 
@@ -103,7 +105,7 @@ public class RobotContainer {
         operator = new Operator(intake, arm, index, shooter, drive, consumer);
 
         // Detected objects need access to the drivetrain
-        //DetectedObject.setDrive(drive);
+        DetectedObject.setDrive(drive);
         
         //SignalLogger.start();
 
@@ -137,6 +139,40 @@ public class RobotContainer {
     return pathCommand;
   }
 
+  /**
+   * Selects the autonomous by its name in the Auto tab, for running without a dashboard
+   *
+   * @param name the name of the autonomous
+   */
+  public void setAutonomousCommand(String name) {
+    shuffleboardManager.setSelectedCommand(name);
+  }
+
+  /**
+   * @return the names of the autonomous commands, or an empty set if this robot doesn't have any
+   */
+  public Set<String> getAutonomousNames() {
+    if (shuffleboardManager == null)
+      return Set.of();
+    return shuffleboardManager.getAutoNames();
+  }
+
+  public Drivetrain getDrivetrain() {
+    return drive;
+  }
+
+  public Shooter getShooter() {
+    return shooter;
+  }
+
+  public Intake getIntake() {
+    return intake;
+  }
+
+  public StorageIndex getStorageIndex() {
+    return index;
+  }
+
   public void updateShuffleBoard() {
     if (shuffleboardManager != null)
       shuffleboardManager.update();
@@ -58,6 +58,7 @@ public class DefaultDriveCommand extends Command {
                     forwardTranslation,
                     sideTranslation,
                     swerve.getAlignAngle(),
+                    swerve.getAlignAngularVelocity(),
                     true);
         } else {
             swerve.drive(
@@ -20,6 +20,7 @@ import frc.robot.subsystems.gpm.Arm;
 import frc.robot.subsystems.gpm.Shooter;
 import frc.robot.subsystems.gpm.StorageIndex;
 import frc.robot.util.EqualsUtil;
+import frc.robot.util.SwerveStuff.DrivetrainState;
 
 //00 is the bottom right corner of blue wall in m
 /**
@@ -60,6 +61,24 @@ public class Shoot extends Command {
 
         private boolean shooting = false;
 
+        /**
+         * Where to aim to shoot on the move, see {@link Shoot#aim(double, double, double, double, double, double, Aim)}.
+         * It is filled in place so aiming every loop doesn't create garbage.
+         */
+        public static class Aim {
+                /** The field relative direction the note leaves the robot in, in radians */
+                public double horizontalAngle;
+                /** The angle of the note above the floor, in radians, without the arm's fudge factor */
+                public double verticalAngle;
+                /** How fast the shooter has to launch the note, in m/s */
+                public double exitVelocity;
+                /** How fast the direction to the speaker is turning, in rad/s */
+                public double angularVelocity;
+        }
+
+        // The aim from the last execute()
+        private final Aim solution = new Aim();
+
         public Shoot(Shooter shooter, Arm arm, Drivetrain drivetrain, StorageIndex index) {
                 this.shooter = shooter;
                 this.arm = arm;
@@ -98,8 +117,10 @@ public class Shoot extends Command {
                 // TODO: doesn't positive y displacement mean we are above the speaker?
                 // Positive y displacement means we are below the speaker.
                 // shooterHeight and shooterOffset have an additional offset because the shooter is offset from the arm, right?
+                // Use the same drivetrain state for all of the math
+                DrivetrainState driveState = drive.getState();
                 // get the direction the robot is facing
-                Rotation2d driveYaw = drive.getYaw();
+                Rotation2d driveYaw = driveState.yaw();
 
                 // calculate the displacement to the speaker
                 //   actually, this calculates the displacement **from** the speaker to the robot, so Z value is negative...
@@ -110,8 +131,8 @@ public class Shoot extends Command {
                 double horizontalDist = ArmConstants.PIVOT_X + shooterToPivot * Math.cos(angleToShooter);
                 // Set displacement to speaker
                 displacement = new Pose3d(
-                        drive.getPose().getX() + horizontalDist * driveYaw.getCos()-speakerPose.getX(),
-                        drive.getPose().getY() + horizontalDist * driveYaw.getSin()-speakerPose.getY(),
+                        driveState.pose().getX() + horizontalDist * driveYaw.getCos()-speakerPose.getX(),
+                        driveState.pose().getY() + horizontalDist * driveYaw.getSin()-speakerPose.getY(),
                         // shooterHeight-speakerPose.getZ(),
                         ArmConstants.PIVOT_HEIGHT + shooterToPivot * Math.sin(angleToShooter) - speakerPose.getZ(),
                         new Rotation3d(
@@ -122,62 +143,27 @@ public class Shoot extends Command {
                         // .relativeTo(speakerPose);
                         //.times(-1);
                 
-                // get the drivetrain velocities
-                double driveSpeed = Math.hypot(drive.getChassisSpeeds().vxMetersPerSecond, drive.getChassisSpeeds().vyMetersPerSecond);
-                double heading = driveYaw.getRadians() + Math.atan2(drive.getChassisSpeeds().vyMetersPerSecond, drive.getChassisSpeeds().vxMetersPerSecond);
-                v_rx = driveSpeed * Math.cos(heading);
-                v_ry = driveSpeed * Math.sin(heading);
+                // get the field relative drivetrain velocities
+                v_rx = driveState.fieldRelativeVx();
+                v_ry = driveState.fieldRelativeVy();
                 //System.err.println(displacement.getX()+" " +
                 //                 displacement.getY()+" " +
                 //                 displacement.getZ()+" " +
                 //                         v_rx+" " +
                 //                         v_ry+" "+
-                //                         heading+" "+
-                //                         drive.getChassisSpeeds().vxMetersPerSecond+" "+
-                //                         drive.getChassisSpeeds().vyMetersPerSecond
+                //                         driveState.robotRelativeVx()+" "+
+                //                         driveState.robotRelativeVy()
                 // );
 
                 // TODO: Figure out what v_note is empirically
                 double v_note = ShooterConstants.SHOOT_SPEED_MPS;
 
-                // X distance to speaker (along the floor to center of speaker)
-                double x = Math.hypot(displacement.getX(), displacement.getY());
                 // height (sorry that it's called y)
-                // TODO: but y is negative from above
-                double y = displacement.getZ();
-                Y=y;
-                // Basic vertical angle calculation (static robot)
-                double phi_v = Math.atan(Math.pow(v_note, 2) / 9.8 / x * (1 - Math.sqrt(1
-                                + 19.6 / Math.pow(v_note, 2) * (y - 4.9 * x * x / Math.pow(v_note, 2)))));
-                //System.err.println("*pv " + phi_v);
-
-                // Angle to goal
-                // TODO: isn't this calculation simplified with atan2()?
-                double phi_h = Math.atan(displacement.getY()/ displacement.getX());
-                // flip angle
-                if (displacement.getX()>=0) phi_h += Math.PI;
-                //System.err.println("*ph " + phi_h);
-
-                // TODO: isn't this calculation simplified with atan2()?
-                double theta_h = Math.atan((v_note * Math.cos(phi_v) * Math.sin(phi_h) - v_ry) / (v_note * Math.cos(phi_v) * Math.cos(phi_h) - v_rx));
-                // flip angle
-                if (displacement.getX()>=0) theta_h += Math.PI;
-                
-                // random quirk that using -v_rx, -v_ry works instead of +v_rx, +v_ry
-                // theta_h conversion (i.e. pi-theta_h if necessary)
-                // if the mirrored angle is the same-ish direction??? logic may break at high
-                // v_rx and v_ry but don't worry about it
-                /*
-                if (Math.signum(Math.sin(theta_h)) != Math.signum(Math.sin(phi_h))
-                                || Math.signum(Math.cos(theta_h)) != Math.signum(Math.cos(theta_h))) {
-                        theta_h += Math.PI;
-                }
-                */
-                double theta_v = Math.atan(
-                                (v_note * Math.sin(phi_v) * Math.cos(theta_h)) /
-                                (v_note * Math.cos(phi_v) * Math.cos(phi_h) - v_rx));
-                // also here
-                double v_shoot = v_note * Math.sin(phi_v) / Math.sin(theta_v);
+                Y = displacement.getZ();
+                aim(displacement.getX(), displacement.getY(), displacement.getZ(), v_rx, v_ry, v_note, solution);
+                double theta_h = solution.horizontalAngle;
+                double theta_v = solution.verticalAngle;
+                double v_shoot = solution.exitVelocity;
 
                 // save the results
                 horiz_angle = theta_h;
@@ -199,7 +185,7 @@ public class Shoot extends Command {
                 // Drivetrain angle is relative to positive x (toward red side)
 
                 // Sets the angle to align to for the drivetrain, uses driveHeading in DefaultDriveCommand
-                drive.setAlignAngle(Math.PI + theta_h); // would only pause rotational
+                drive.setAlignAngle(Math.PI + theta_h, solution.angularVelocity);
 
                 // Set the outtake velocity
                 shooter.setTargetVelocity(v_shoot);
@@ -254,4 +240,60 @@ public class Shoot extends Command {
                 // set onlyUseTags to the empty set
                 drive.onlyUseTags(aprilTagsNull);
         }
+
+        /**
+         * Finds where to aim to shoot into the speaker while moving. This is the math from execute() without the
+         * subsystems, so it can be tested and benchmarked.
+         * @param dx The x displacement from the speaker to the shooter in meters
+         * @param dy The y displacement from the speaker to the shooter in meters
+         * @param dz The z displacement from the speaker to the shooter in meters
+         * @param v_rx The robot's field relative x velocity in m/s
+         * @param v_ry The robot's field relative y velocity in m/s
+         * @param v_note How fast the note leaves a still robot in m/s
+         * @param aim Where the result is written
+         */
+        public static void aim(double dx, double dy, double dz, double v_rx, double v_ry, double v_note, Aim aim) {
+                // X distance to speaker (along the floor to center of speaker)
+                double x = Math.hypot(dx, dy);
+                // height (sorry that it's called y)
+                // TODO: but y is negative from above
+                double y = dz;
+                // Basic vertical angle calculation (static robot)
+                double phi_v = Math.atan(Math.pow(v_note, 2) / 9.8 / x * (1 - Math.sqrt(1
+                                + 19.6 / Math.pow(v_note, 2) * (y - 4.9 * x * x / Math.pow(v_note, 2)))));
+
+                // Angle to goal
+                // TODO: isn't this calculation simplified with atan2()?
+                double phi_h = Math.atan(dy / dx);
+                // flip angle
+                if (dx >= 0) phi_h += Math.PI;
+
+                // TODO: isn't this calculation simplified with atan2()?
+                double theta_h = Math.atan((v_note * Math.cos(phi_v) * Math.sin(phi_h) - v_ry) / (v_note * Math.cos(phi_v) * Math.cos(phi_h) - v_rx));
+                // flip angle
+                if (dx >= 0) theta_h += Math.PI;
+
+                // random quirk that using -v_rx, -v_ry works instead of +v_rx, +v_ry
+                // theta_h conversion (i.e. pi-theta_h if necessary)
+                // if the mirrored angle is the same-ish direction??? logic may break at high
+                // v_rx and v_ry but don't worry about it
+                /*
+                if (Math.signum(Math.sin(theta_h)) != Math.signum(Math.sin(phi_h))
+                                || Math.signum(Math.cos(theta_h)) != Math.signum(Math.cos(theta_h))) {
+                        theta_h += Math.PI;
+                }
+                */
+                double theta_v = Math.atan(
+                                (v_note * Math.sin(phi_v) * Math.cos(theta_h)) /
+                                (v_note * Math.cos(phi_v) * Math.cos(phi_h) - v_rx));
+                // also here
+                double v_shoot = v_note * Math.sin(phi_v) / Math.sin(theta_v);
+
+                aim.horizontalAngle = theta_h;
+                aim.verticalAngle = theta_v;
+                aim.exitVelocity = v_shoot;
+                // How fast the direction from the speaker to the robot is turning, d/dt atan2(y, x) = (x y' - y x') / r^2.
+                // The lead for the robot's velocity changes much slower than this, so the aim turns at about the same rate.
+                aim.angularVelocity = (dx * v_ry - dy * v_rx) / (dx * dx + dy * dy);
+        }
 }
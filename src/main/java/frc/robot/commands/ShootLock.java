@@ -18,6 +18,7 @@ import frc.robot.subsystems.Drivetrain;
 import frc.robot.subsystems.gpm.Arm;
 import frc.robot.subsystems.gpm.Shooter;
 import frc.robot.subsystems.gpm.StorageIndex;
+import frc.robot.util.SwerveStuff.DrivetrainState;
 
 /**
  * Shoots on the move (coast for X seconds, locking controls ver.).
@@ -66,18 +67,18 @@ public class ShootLock extends Command {
                                 Robot.getAlliance() == Alliance.Red ?
                                 VisionConstants.RED_SPEAKER_POSE : VisionConstants.BLUE_SPEAKER_POSE;
                 // shooterHeight and shooterOffset have an additional offset because the shooter is offset from the arm, right?
-                Rotation2d driveYaw = drive.getYaw();
+                // Use the same drivetrain state for all of the math
+                DrivetrainState driveState = drive.getState();
+                Rotation2d driveYaw = driveState.yaw();
                 
-                // get the drivetrain velocities
-                double driveSpeed = Math.hypot(drive.getChassisSpeeds().vxMetersPerSecond, drive.getChassisSpeeds().vyMetersPerSecond);
-                double heading = driveYaw.getRadians() + Math.atan2(drive.getChassisSpeeds().vyMetersPerSecond, drive.getChassisSpeeds().vxMetersPerSecond);
-                v_rx = driveSpeed * Math.cos(heading);
-                v_ry = driveSpeed * Math.sin(heading);
+                // get the field relative drivetrain velocities
+                v_rx = driveState.fieldRelativeVx();
+                v_ry = driveState.fieldRelativeVy();
 
                 // where we will be when we take the shot.
                 displacement = new Pose3d(
-                        drive.getPose().getX() + shooterOffset * driveYaw.getCos()+SETUP_TIME*v_rx,
-                        drive.getPose().getY() + shooterOffset * driveYaw.getSin()+SETUP_TIME*v_ry,
+                        driveState.pose().getX() + shooterOffset * driveYaw.getCos()+SETUP_TIME*v_rx,
+                        driveState.pose().getY() + shooterOffset * driveYaw.getSin()+SETUP_TIME*v_ry,
                         shooterHeight,
                         new Rotation3d(
                         0,
@@ -89,9 +90,8 @@ public class ShootLock extends Command {
                                 displacement.getZ()+" " +
                                         v_rx+" " +
                                         v_ry+" "+
-                                        heading+" "+
-                                        drive.getChassisSpeeds().vxMetersPerSecond+" "+
-                                        drive.getChassisSpeeds().vyMetersPerSecond
+                                        driveState.robotRelativeVx()+" "+
+                                        driveState.robotRelativeVy()
                 );
                 // TODO: Figure out what v_note is empirically
                 double v_note = 10;
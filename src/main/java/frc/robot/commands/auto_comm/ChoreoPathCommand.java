@@ -2,12 +2,15 @@ package frc.robot.commands.auto_comm;
 
 import com.choreo.lib.Choreo;
 import com.choreo.lib.ChoreoTrajectory;
+import com.pathplanner.lib.util.PathPlannerLogging;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
 import frc.robot.subsystems.Drivetrain;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 public class ChoreoPathCommand extends SequentialCommandGroup {
@@ -32,7 +35,8 @@ public class ChoreoPathCommand extends SequentialCommandGroup {
 
         addCommands(
                 new InstantCommand(() -> resetOdemetry(resetOdemetry)),
-                command
+                new InstantCommand(this::logStart),
+                command.finallyDo(this::logEnd)
                    );
     }
 
@@ -47,6 +51,17 @@ public class ChoreoPathCommand extends SequentialCommandGroup {
         }
     }
 
+    // Report the path the same way PathPlanner does, so anything listening to PathPlannerLogging sees Choreo paths too
+    private void logStart() {
+        ChoreoTrajectory path = getShouldFlip() ? trajectory.flipped() : trajectory;
+        PathPlannerLogging.logActivePath(Arrays.asList(path.getPoses()));
+    }
+
+    private void logEnd(boolean interrupted) {
+        PathPlannerLogging.logTargetPose(getShouldFlip() ? trajectory.getFlippedFinalPose() : trajectory.getFinalPose());
+        PathPlannerLogging.logActivePath(List.of());
+    }
+
     public static boolean getShouldFlip() {
         Optional<DriverStation.Alliance> alliance = DriverStation.getAlliance();
         return alliance.isPresent() && alliance.get() == DriverStation.Alliance.Red;
@@ -35,11 +35,6 @@
 //     // SmartDashboard.putNumberArray("Object Y offsets degrees", yOffset); 
 //     // SmartDashboard.putNumberArray("Object Distances", m_vision.getDistance()); 
 
-//     DetectedObject bestGamePiece = m_vision.getBestGamePiece(70);
-//     if(bestGamePiece!=null){
-//       SmartDashboard.putString("Vision best game piece", bestGamePiece.toString());
-//       System.out.println("Best game piece: "+bestGamePiece);
-//     }
 //     for(int i = 0; i < xOffset.length; i++){
 //       System.out.printf("\nx: %.2f, y: %.2f, type: %s\n", xOffset[i], yOffset[i], DetectedObject.getType(objectClass[i]));
 //       DetectedObject object = new DetectedObject(Units.degreesToRadians(xOffset[i]), Units.degreesToRadians(yOffset[i]), objectClass[i], VisionConstants.APRIL_TAG_CAMERAS.get(0).getSecond());
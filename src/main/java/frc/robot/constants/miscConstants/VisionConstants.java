@@ -69,6 +69,18 @@ public class VisionConstants {
    */
   public static final double DISTANCE_SCALE = 0.8;
 
+  /** The side length of a cell in the note map's grid in meters. A note is about 36 cm across. */
+  public static final double NOTE_MAP_CELL_SIZE = 0.5;
+
+  /** How long it takes a remembered note's confidence to fall to 1/e of its value, in seconds */
+  public static final double NOTE_MAP_TIME_CONSTANT = 10;
+
+  /** How much confidence a single sighting of a note adds, up to a maximum of 1 */
+  public static final double NOTE_MAP_SIGHTING_CONFIDENCE = 0.5;
+
+  /** Notes with a confidence lower than this are forgotten */
+  public static final double NOTE_MAP_MIN_CONFIDENCE = 0.2;
+
   /**
    * The standard deviations to use for the vision
    */
@@ -78,6 +90,12 @@ public class VisionConstants {
     0.9  // heading in radians. The gyroscope is very accurate, so as long as it is reset correctly it is unnecessary to correct it with vision
   );
 
+  /**
+   * How much to scale the x and y standard deviations by while the drivetrain detects a collision. A hit moves the
+   * robot without the wheels seeing it, so vision is trusted more until the collision clears.
+   */
+  public static final double COLLISION_STD_DEV_SCALE = 0.5;
+
   /**
    * The highest ambiguity to use. Ambiguities higher than this will be ignored.
    * <p>
@@ -1,5 +1,6 @@
 package frc.robot.constants.swerve;
 
+import com.ctre.phoenix6.signals.FeedbackSensorSourceValue;
 import com.ctre.phoenix6.signals.NeutralModeValue;
 
 import edu.wpi.first.math.geometry.Rotation2d;
@@ -52,6 +53,13 @@ public class DriveConstants {
     // TODO: tune this better.
     public static double kMaxAngularAccel = 8 * 2 * Math.PI; // 8 rotations per second per second
 
+    /** Mass of the robot with bumpers and battery [kg]. */
+    // TODO: weigh the robot, this is the max weight plus bumpers and battery
+    public static double kRobotMass = Units.lbsToKilograms(125 + 15 + 13);
+
+    /** Coefficient of friction between the wheels and the carpet, used to find how fast the robot can accelerate without slipping. */
+    public static double kWheelCOF = 1.1;
+
     /** Pigeon2 IMU CAN Id. */
     public static int kPigeon = 13;
 
@@ -129,6 +137,16 @@ public class DriveConstants {
     public static final boolean kDriveMotorInvert = true;//kModuleConstants.driveMotorInvert;
     public static final boolean kAngleMotorInvert = kModuleConstants.angleMotorInvert;
 
+    /*
+     * Steering feedback. When enabled, each angle motor uses its CANcoder as its feedback sensor and runs position
+     * control in module rotations on the Talon, so the angle can't drift from the absolute encoder.
+     * FusedCANcoder needs Phoenix Pro; use RemoteCANcoder without it.
+     */
+    public static final boolean kSteerUseCANcoder = false;
+    public static final FeedbackSensorSourceValue kSteerFeedbackSource = FeedbackSensorSourceValue.FusedCANcoder;
+    /** How often the CANcoder sends its position to the angle motor when it is the feedback sensor, in Hz. */
+    public static final double kSteerCANcoderFrequency = 200;
+
     /* Neutral Modes */
     public static final NeutralModeValue kDriveNeutralMode = NeutralModeValue.Brake;
     public static final NeutralModeValue kAngleNeutralMode = NeutralModeValue.Brake;
@@ -187,6 +205,22 @@ public class DriveConstants {
 
     public static final boolean kInvertGyro = false; // Make sure gyro is CCW+ CW- // FIXME: Swerve
 
+    /**
+     * How often the odometry thread reads the drive encoders and gyro, in Hz.
+     * 250Hz is fine on the CANivore; use 100Hz or less if the drivetrain is moved to the RIO's CAN bus.
+     */
+    public static final double kOdometryFrequency = 250;
+
+    /** How long to keep past poses for latency compensation, in seconds. Camera latency is well under this. */
+    public static final double kPoseHistoryLength = 1.5;
+
+    /** How much faster or slower than the other modules a module can move before it is ignored by odometry, in m/s. */
+    public static final double kSlipThreshold = 0.5;
+    /** How much the accelerometer can differ from what the wheels measured before the robot is colliding, in m/s^2. */
+    public static final double kCollisionThreshold = Constants.GRAVITY_ACCELERATION;
+    /** How long a collision is reported after the accelerometer agrees with the wheels again, in seconds. */
+    public static final double kCollisionHoldTime = 0.25;
+
     public static final double kSlowDriveFactor = 0.2;
     public static final double kSlowRotFactor = 0.1;
 
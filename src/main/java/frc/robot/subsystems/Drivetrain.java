@@ -1,27 +1,33 @@
 package frc.robot.subsystems;
 
 import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.configs.MountPoseConfigs;
 import com.ctre.phoenix6.configs.Pigeon2Configuration;
 import com.ctre.phoenix6.hardware.Pigeon2;
 
 import edu.wpi.first.math.VecBuilder;
 import edu.wpi.first.math.controller.PIDController;
-import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.controller.ProfiledPIDController;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
-import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.math.trajectory.TrapezoidProfile;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.units.Measure;
 import edu.wpi.first.units.Voltage;
 import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.BatterySim;
+import edu.wpi.first.wpilibj.simulation.RoboRioSim;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
-import frc.robot.Robot;
 import frc.robot.constants.Constants;
 import frc.robot.constants.miscConstants.FieldConstants;
 import frc.robot.constants.miscConstants.VisionConstants;
@@ -29,10 +35,18 @@ import frc.robot.constants.swerve.DriveConstants;
 import frc.robot.constants.swerve.ModuleConstants;
 import frc.robot.subsystems.module.Module;
 import frc.robot.subsystems.module.ModuleSim;
+import frc.robot.util.CANBusManager;
+import frc.robot.util.DeviceConfigurator;
 import frc.robot.util.EqualsUtil;
 import frc.robot.util.LogManager;
+import frc.robot.util.OdometryThread;
+import frc.robot.util.PoseHistory;
 import frc.robot.util.Vision;
+import frc.robot.util.SwerveStuff.DrivetrainState;
 import frc.robot.util.SwerveStuff.ModuleLimits;
+import frc.robot.util.SwerveStuff.ModuleLimitsCalculator;
+import frc.robot.util.SwerveStuff.SlipDetector;
+import frc.robot.util.SwerveStuff.SwervePoseEstimator;
 import frc.robot.util.SwerveStuff.SwerveSetpoint;
 import frc.robot.util.SwerveStuff.SwerveSetpointGenerator;
 
@@ -49,7 +63,8 @@ public class Drivetrain extends SubsystemBase {
 
     protected final Module[] modules;
 
-    private SwerveSetpoint currentSetpoint =
+    // Updated in place by the setpoint generator each loop
+    private final SwerveSetpoint currentSetpoint =
     new SwerveSetpoint(
         new ChassisSpeeds(),
         new SwerveModuleState[] {
@@ -59,17 +74,56 @@ public class Drivetrain extends SubsystemBase {
           new SwerveModuleState()
         });
     // Odometry
-    private final SwerveDrivePoseEstimator poseEstimator;
+    private final SwervePoseEstimator poseEstimator;
+    // Drops slipping modules from odometry and finds collisions
+    private final SlipDetector slipDetector = new SlipDetector(
+        DriveConstants.swerveModuleLocations,
+        DriveConstants.kSlipThreshold,
+        DriveConstants.kCollisionThreshold,
+        DriveConstants.kCollisionHoldTime
+    );
+    // Past poses, used to find where the robot was when a camera frame was captured. Poses are added by the
+    // odometry thread's samples and once per loop, so this holds kPoseHistoryLength seconds of both.
+    private final PoseHistory poseHistory = new PoseHistory((int) Math.ceil(
+        DriveConstants.kPoseHistoryLength * (DriveConstants.kOdometryFrequency + 1 / Constants.LOOP_TIME)));
+
+    // The state published at the start of this loop, see getState()
+    private DrivetrainState state;
 
     // Vision
     private final Vision vision;
 
     private final Pigeon2 pigeon;
+    private final StatusSignal<Double> yawSignal;
+    // The angular velocities around the field's x, y, and z axes, in deg/s
+    private final StatusSignal<Double>[] angularVelocitySignals;
+    // The robot relative accelerations forward and to the left, in g
+    private final StatusSignal<Double> accelerationXSignal;
+    private final StatusSignal<Double> accelerationYSignal;
+    // The latency compensated yaw and the angular velocities from the last refreshSignals(), in degrees and rad/s
+    private double yaw;
+    private final double[] angularRates = new double[3];
+
+    // Every signal the drivetrain reads each loop, refreshed together in refreshSignals()
+    private final BaseStatusSignal[] signals;
+
+    // The battery voltage in simulation after the modules draw current
+    private double simulatedBatteryVoltage = Constants.ROBOT_VOLTAGE;
+
+    // Reads odometry faster than the main loop on the real robot, null in simulation
+    private final OdometryThread odometryThread;
+    // Reused for every sample read from the odometry thread
+    private final OdometryThread.Sample odometrySample;
 
     // PID Controllers for chassis movement
     private final PIDController xController;
     private final PIDController yController;
     private final PIDController rotationController;
+    // Tracks a moving heading when aligning, see driveHeading(double, double, double, double, boolean)
+    private final ProfiledPIDController alignController;
+    private final TrapezoidProfile.State alignGoal = new TrapezoidProfile.State();
+    // The last time driveHeading with an angular velocity ran, so the profile restarts when alignment starts again
+    private double lastAlignTime = Double.NEGATIVE_INFINITY;
 
     // If vision is enabled for drivetrain odometry updating
     // DO NOT CHANGE THIS HERE TO DISABLE VISION, change VisionConstants.ENABLED instead
@@ -82,12 +136,17 @@ public class Drivetrain extends SubsystemBase {
     private boolean isAlign = false;
     // Angle to align to, null for directly toward speaker
     private Double alignAngle = null;
+    // How fast the align angle is changing in rad/s
+    private double alignAngularVelocity = 0;
     // used for drift control
     private double currentHeading = 0;
     // used for drift control
     private boolean drive_turning = false;
 
     private SwerveSetpointGenerator setpointGenerator = new SwerveSetpointGenerator();
+    private final ModuleLimitsCalculator moduleLimitsCalculator = new ModuleLimitsCalculator();
+    // Updated each loop, since the limits depend on the battery voltage
+    private ModuleLimits moduleLimits = moduleLimitsCalculator.calculate(Constants.ROBOT_VOLTAGE);
 
 
 
@@ -96,6 +155,9 @@ public class Drivetrain extends SubsystemBase {
      */
     public Drivetrain(Vision vision) {
         this.vision = vision;
+        if (vision != null) {
+            vision.setPoseHistory(poseHistory);
+        }
 
         modules = new Module[4];
 
@@ -113,32 +175,60 @@ public class Drivetrain extends SubsystemBase {
         
         // The Pigeon is a gyroscope and implements WPILib's Gyro interface
         pigeon = new Pigeon2(DriveConstants.kPigeon, DriveConstants.kPigeonCAN);
-        pigeon.getConfigurator().apply(new Pigeon2Configuration());
         // Our pigeon is mounted with y forward, and z upward
-        MountPoseConfigs mountPoseConfigs = new MountPoseConfigs();
-        mountPoseConfigs.deserialize("");
-        pigeon.getConfigurator().apply(new MountPoseConfigs().withMountPosePitch(0).withMountPoseRoll(0).withMountPoseYaw(90));
+        Pigeon2Configuration pigeonConfig = new Pigeon2Configuration();
+        pigeonConfig.MountPose = new MountPoseConfigs().withMountPosePitch(0).withMountPoseRoll(0).withMountPoseYaw(90);
+        CompletableFuture<Void> pigeonConfigured = DeviceConfigurator.apply("Pigeon", () -> pigeon.getConfigurator().apply(pigeonConfig));
 
         /*
-         * By pausing init for a second before setting module offsets, we avoid a bug
-         * with inverting motors.
+         * The motors must be inverted before setting module offsets.
+         * The inversion is part of each motor's configuration, so waiting for it replaces the old 1 second delay.
          * See https://github.com/Team364/BaseFalconSwerve/issues/8 for more info.
          */
-        Timer.delay(1.0);
+        for (Module module : modules) {
+            module.waitForConfig();
+        }
         resetModulesToAbsolute();
+        pigeonConfigured.join();
         
         // initial Odometry Location
         pigeon.setYaw(DriveConstants.kStartingHeading.getDegrees());
-        poseEstimator = new SwerveDrivePoseEstimator(
+        yawSignal = pigeon.getYaw();
+        angularVelocitySignals = createAngularVelocitySignals();
+        CANBusManager.register("Pigeon", pigeon, CANBusManager.LOOP_FREQUENCY, yawSignal);
+        CANBusManager.register("Pigeon", pigeon, CANBusManager.LOOP_FREQUENCY, angularVelocitySignals);
+        accelerationXSignal = pigeon.getAccelerationX();
+        accelerationYSignal = pigeon.getAccelerationY();
+        CANBusManager.register("Pigeon", pigeon, CANBusManager.LOOP_FREQUENCY, accelerationXSignal, accelerationYSignal);
+
+        signals = Stream.concat(
+            Arrays.stream(modules).flatMap(module -> Arrays.stream(module.getSignals())),
+            Stream.concat(
+                Stream.of(yawSignal, accelerationXSignal, accelerationYSignal),
+                Arrays.stream(angularVelocitySignals)
+            )
+        ).toArray(BaseStatusSignal[]::new);
+        refreshSignals();
+        poseEstimator = new SwervePoseEstimator(
                 DriveConstants.KINEMATICS,
-                Rotation2d.fromDegrees(pigeon.getYaw().getValue()),
+                Rotation2d.fromDegrees(yaw),
                 getModulePositions(),
                 new Pose2d(),
                 // Defaults, except trust pigeon more
                 VecBuilder.fill(0.1, 0.1, 0),
-                VisionConstants.VISION_STD_DEVS
+                VisionConstants.VISION_STD_DEVS,
+                // Keep as much odometry as vision can be delayed by
+                (int) Math.ceil(DriveConstants.kPoseHistoryLength * DriveConstants.kOdometryFrequency)
         );
-       poseEstimator.setVisionMeasurementStdDevs(VisionConstants.VISION_STD_DEVS);
+
+        if(RobotBase.isReal()){
+            odometryThread = new OdometryThread(modules, pigeon);
+            odometryThread.start();
+        }else{
+            odometryThread = null;
+        }
+        odometrySample = new OdometryThread.Sample(modules.length);
+        publishState();
         
         // initialize PID controllers
         xController = new PIDController(DriveConstants.kTranslationalP, 0, DriveConstants.kTranslationalD);
@@ -146,21 +236,30 @@ public class Drivetrain extends SubsystemBase {
         rotationController = new PIDController(DriveConstants.kHeadingP, 0, DriveConstants.kHeadingD);
         rotationController.enableContinuousInput(-Math.PI, Math.PI);
         rotationController.setTolerance(Units.degreesToRadians(0.25), Units.degreesToRadians(0.25));
+        alignController = new ProfiledPIDController(
+                DriveConstants.kHeadingP, 0, DriveConstants.kHeadingD,
+                new TrapezoidProfile.Constraints(DriveConstants.kMaxAngularSpeed, DriveConstants.kMaxAngularAccel));
+        alignController.enableContinuousInput(-Math.PI, Math.PI);
         if (Constants.DO_LOGGING) {
-            LogManager.add("Drivetrain/SpeedX", () -> getChassisSpeeds().vxMetersPerSecond);
-            LogManager.add("Drivetrain/SpeedY", () -> getChassisSpeeds().vyMetersPerSecond);
-            LogManager.add("Drivetrain/Speed", () -> Math.hypot(getChassisSpeeds().vxMetersPerSecond, getChassisSpeeds().vyMetersPerSecond));
-            LogManager.add("Drivetrain/SpeedRot", () -> getChassisSpeeds().omegaRadiansPerSecond);
+            LogManager.add("Drivetrain/SpeedX", () -> state.robotRelativeVx());
+            LogManager.add("Drivetrain/SpeedY", () -> state.robotRelativeVy());
+            LogManager.add("Drivetrain/Speed", () -> Math.hypot(state.robotRelativeVx(), state.robotRelativeVy()));
+            LogManager.add("Drivetrain/SpeedRot", () -> state.omega());
+            LogManager.add("Drivetrain/SlippingModules", () -> slipDetector.getSlippingCount());
+            LogManager.add("Drivetrain/Colliding", () -> slipDetector.isColliding() ? 1 : 0);
         
             LogManager.add("Drivetrain/Pose2d", () -> new Double[]{
-                getPose().getX(),
-                getPose().getY(),
-                getPose().getRotation().getRadians()
+                state.pose().getX(),
+                state.pose().getY(),
+                state.pose().getRotation().getRadians()
                 });
             }
     }
 
     public void close() {
+        if(odometryThread != null){
+            odometryThread.interrupt();
+        }
         // close the gyro
         pigeon.close();
 
@@ -172,7 +271,78 @@ public class Drivetrain extends SubsystemBase {
 
     @Override
     public void periodic() {
+        refreshSignals();
+        moduleLimits = moduleLimitsCalculator.calculate(RobotController.getBatteryVoltage());
         updateOdometry();
+        // Remember the notes object detection sees, after odometry so they are placed from this loop's pose
+        if (vision != null && VisionConstants.OBJECT_DETECTION_ENABLED) {
+            vision.updateNoteMap(vision.getDetectedObjects());
+        }
+        publishState();
+    }
+
+    /**
+     * Simulates the modules in steps through the loop, with the battery sagging from the current they draw.
+     * The gyro turns however the simulated modules turned the robot.
+     */
+    @Override
+    public void simulationPeriodic() {
+        double dt = Constants.LOOP_TIME / ModuleSim.SUBSTEPS;
+        SwerveModuleState[] states = new SwerveModuleState[modules.length];
+        for (int step = 0; step < ModuleSim.SUBSTEPS; step++) {
+            double current = 0;
+            for (int i = 0; i < modules.length; i++) {
+                ModuleSim module = (ModuleSim) modules[i];
+                current += module.simulate(dt, simulatedBatteryVoltage);
+                states[i] = module.getState();
+            }
+            simulatedBatteryVoltage = BatterySim.calculateDefaultBatteryLoadedVoltage(current);
+            double omega = DriveConstants.KINEMATICS.toChassisSpeeds(states).omegaRadiansPerSecond;
+            pigeon.getSimState().addYaw(Units.radiansToDegrees(omega * dt));
+        }
+        RoboRioSim.setVInVoltage(simulatedBatteryVoltage);
+    }
+
+    /**
+     * Calculates the speeds from the cached module states and publishes a new state for this loop
+     */
+    private void publishState() {
+        SwerveModuleState[] moduleStates = new SwerveModuleState[modules.length];
+        for (int i = 0; i < modules.length; i++) {
+            moduleStates[i] = modules[i].getState();
+        }
+        state = new DrivetrainState(
+            Timer.getFPGATimestamp(),
+            getPose(),
+            DriveConstants.KINEMATICS.toChassisSpeeds(moduleStates),
+            moduleStates
+        );
+    }
+
+    /**
+     * Refreshes every signal the drivetrain uses with 1 CAN call, then caches the module values.
+     * This runs at the start of each loop so everything else in the loop uses the same values.
+     */
+    public void refreshSignals() {
+        BaseStatusSignal.refreshAll(signals);
+        for (Module module : modules) {
+            module.updateCachedValues();
+        }
+        // Use the yaw rate to estimate the yaw now instead of when the signal was sent
+        yaw = BaseStatusSignal.getLatencyCompensatedValue(yawSignal, angularVelocitySignals[2]);
+        for (int i = 0; i < angularRates.length; i++) {
+            // outputs in deg/s, so convert to rad/s
+            angularRates[i] = Units.degreesToRadians(angularVelocitySignals[i].getValue());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private StatusSignal<Double>[] createAngularVelocitySignals() {
+        return new StatusSignal[] {
+            pigeon.getAngularVelocityXWorld(),
+            pigeon.getAngularVelocityYWorld(),
+            pigeon.getAngularVelocityZWorld()
+        };
     }
 
     // DRIVE
@@ -218,6 +388,40 @@ public class Drivetrain extends SubsystemBase {
         );
     }
 
+    /**
+     * Drives the robot using the provided x speed, y speed, and a heading that is moving, like the heading to the
+     * speaker while driving past it. The heading is followed with a motion profile whose goal moves at the provided
+     * angular velocity, and the profile's velocity is added to the PID output, so the robot turns with the target
+     * instead of lagging behind it.
+     *
+     * @param xSpeed          speed of the robot in the x direction (forward)
+     * @param ySpeed          speed of the robot in the y direction (sideways)
+     * @param heading         target heading of the robot in radians
+     * @param angularVelocity how fast the target heading is changing in radians per second
+     * @param fieldRelative   whether the provided x and y speeds are relative to the field
+     */
+    public void driveHeading(double xSpeed, double ySpeed, double heading, double angularVelocity, boolean fieldRelative) {
+        double yaw = getYaw().getRadians();
+        double time = Timer.getFPGATimestamp();
+        // Start the profile from how the robot is moving if it wasn't aligning last loop
+        if (time - lastAlignTime > 2 * Constants.LOOP_TIME) {
+            alignController.reset(yaw, state.omega());
+        }
+        lastAlignTime = time;
+
+        alignGoal.position = heading;
+        alignGoal.velocity = angularVelocity;
+        double feedback = alignController.calculate(yaw, alignGoal);
+        double rot = alignController.getSetpoint().velocity + feedback;
+        setChassisSpeeds((
+                        fieldRelative
+                                ? ChassisSpeeds.fromFieldRelativeSpeeds(xSpeed, ySpeed, rot, getYaw())
+                                : new ChassisSpeeds(xSpeed, ySpeed, rot)
+                ),
+                false
+        );
+    }
+
     /**
      * Runs the PID controllers with the provided x, y, and rot values. Then, calls {@link #drive(double, double, double, boolean, boolean)} using the PID outputs.
      * This is based on the odometry of the chassis.
@@ -227,8 +431,8 @@ public class Drivetrain extends SubsystemBase {
      * @param rot the angle to move to, in radians
      */
     public void driveWithPID(double x, double y, double rot) {
-        double xSpeed = xController.calculate(poseEstimator.getEstimatedPosition().getX(), x);
-        double ySpeed = yController.calculate(poseEstimator.getEstimatedPosition().getY(), y);
+        double xSpeed = xController.calculate(poseEstimator.getEstimatedX(), x);
+        double ySpeed = yController.calculate(poseEstimator.getEstimatedY(), y);
         double rotRadians = rotationController.calculate(getYaw().getRadians(), rot);
         drive(xSpeed, ySpeed, rotRadians, true, false);
     }
@@ -243,13 +447,28 @@ public class Drivetrain extends SubsystemBase {
         Pose2d pose1 = getPose();
 
         // Updates pose based on encoders and gyro. NOTE: must use yaw directly from gyro!
-        poseEstimator.update(Rotation2d.fromDegrees(pigeon.getYaw().getValue()), getModulePositions());
+        if(odometryThread != null){
+            // Use every sample the odometry thread read since the last loop
+            while(odometryThread.poll(odometrySample)){
+                updateOdometry(odometrySample.timestamp(), odometrySample.yaw(), odometrySample.positions());
+                addPoseToHistory(odometrySample.timestamp());
+            }
+            // Check for collisions the wheels couldn't see
+            slipDetector.updateAcceleration(
+                Timer.getFPGATimestamp(),
+                accelerationXSignal.getValue() * Constants.GRAVITY_ACCELERATION,
+                accelerationYSignal.getValue() * Constants.GRAVITY_ACCELERATION
+            );
+        }else{
+            // The simulated Pigeon doesn't measure acceleration, so only check for slipping
+            updateOdometry(Timer.getFPGATimestamp(), Rotation2d.fromDegrees(yaw), getModulePositions());
+        }
 
         Pose2d pose2 = getPose();
 
         if(VisionConstants.ENABLED){
             if(visionEnabled && visionEnableTimer.hasElapsed(5)){
-                vision.updateOdometry(poseEstimator);
+                vision.updateOdometry(poseEstimator, isColliding());
             }
         }
 
@@ -268,6 +487,36 @@ public class Drivetrain extends SubsystemBase {
             //if our vision+drivetrain odometry is off the field, reset our odometry to the pose before(this is the right pose)
             resetOdometry(pose2);
         }
+
+        addPoseToHistory(Timer.getFPGATimestamp());
+    }
+
+    /**
+     * Adds the current estimate to the pose history. This reads the estimate's coordinates instead of getPose(),
+     * which would create a Pose2d after every odometry update.
+     */
+    private void addPoseToHistory(double timestamp) {
+        poseHistory.add(
+            timestamp,
+            poseEstimator.getEstimatedX(),
+            poseEstimator.getEstimatedY(),
+            poseEstimator.getEstimatedTheta()
+        );
+    }
+
+    /**
+     * Updates the odometry with one sample, ignoring slipping modules
+     */
+    private void updateOdometry(double timestamp, Rotation2d yaw, SwerveModulePosition[] positions) {
+        double[] moduleWeights = slipDetector.update(timestamp, yaw.getRadians(), positions);
+        poseEstimator.updateWithTime(timestamp, yaw, positions, moduleWeights);
+    }
+
+    /**
+     * @return If the accelerometer recently measured a hit the wheels didn't, such as from defense
+     */
+    public boolean isColliding() {
+        return slipDetector.isColliding();
     }
 
     /**
@@ -287,7 +536,17 @@ public class Drivetrain extends SubsystemBase {
      */
     public void setModuleStates(SwerveModuleState[] swerveModuleStates, boolean isOpenLoop) {
         // makes sure speeds of modules don't exceed maximum allowed
-        SwerveDriveKinematics.desaturateWheelSpeeds(swerveModuleStates, DriveConstants.kMaxSpeed);
+        // This is SwerveDriveKinematics.desaturateWheelSpeeds without the list it creates every call
+        double maxSpeed = 0;
+        for (SwerveModuleState state : swerveModuleStates) {
+            maxSpeed = Math.max(maxSpeed, Math.abs(state.speedMetersPerSecond));
+        }
+        if (maxSpeed > DriveConstants.kMaxSpeed) {
+            double scale = DriveConstants.kMaxSpeed / maxSpeed;
+            for (SwerveModuleState state : swerveModuleStates) {
+                state.speedMetersPerSecond *= scale;
+            }
+        }
 
         for (int i = 0; i < 4; i++) {
             modules[i].setDesiredState(swerveModuleStates[i], isOpenLoop);
@@ -301,15 +560,12 @@ public class Drivetrain extends SubsystemBase {
      * @param isOpenLoop    if open loop control should be used for the drive velocity
      */
     public void setChassisSpeeds(ChassisSpeeds chassisSpeeds, boolean isOpenLoop) {
-        if (Robot.isSimulation()) {
-            pigeon.getSimState().addYaw(
-                    +Units.radiansToDegrees(chassisSpeeds.omegaRadiansPerSecond * Constants.LOOP_TIME));
-        }
-        currentSetpoint = setpointGenerator.generateSetpoint(
-            new ModuleLimits(DriveConstants.kMaxSpeed, Double.MAX_VALUE, Double.MAX_VALUE),
+        setpointGenerator.generateSetpoint(
+            moduleLimits,
             currentSetpoint,chassisSpeeds,
-            Constants.LOOP_TIME);
-            
+            Constants.LOOP_TIME,
+            currentSetpoint);
+
         SwerveModuleState[] swerveModuleStates = currentSetpoint.moduleStates();
         setModuleStates(swerveModuleStates, isOpenLoop);
     }
@@ -327,26 +583,13 @@ public class Drivetrain extends SubsystemBase {
     }
 
     /**
-     * Returns the angular rate from the pigeon.
+     * Returns the angular rate from the pigeon, as of the start of the loop.
      *
      * @param id 0 for x, 1 for y, 2 for z
      * @return the rate in rads/s from the pigeon
      */
     public double getAngularRate(int id) {
-        double speed = 0;
-        switch(id){
-            case 0:
-                speed = pigeon.getAngularVelocityXWorld().getValue();
-                break;
-            case 1:
-                speed = pigeon.getAngularVelocityYWorld().getValue();
-                break;
-            case 2:
-                speed = pigeon.getAngularVelocityZWorld().getValue();
-                break;
-        }
-        // outputs in deg/s, so convert to rad/s
-        return Units.degreesToRadians(speed);
+        return angularRates[id];
     }
 
     /**
@@ -382,14 +625,21 @@ public class Drivetrain extends SubsystemBase {
     }
 
     /**
-     * Calculates chassis speed of drivetrain using the current SwerveModuleStates
-     * @return ChassisSpeeds object
+     * Gets the robot relative chassis speeds measured at the start of this loop
+     * @return A new ChassisSpeeds object, so changing it doesn't change the state
      * This is often used as an input for other methods
      */
     public ChassisSpeeds getChassisSpeeds() {
-        return DriveConstants.KINEMATICS.toChassisSpeeds(
-                Arrays.stream(modules).map(Module::getState).toArray(SwerveModuleState[]::new)
-        );
+        return state.robotRelativeSpeeds();
+    }
+
+    /**
+     * Gets the state of the drivetrain published at the start of this loop.
+     * Use this instead of calling several getters so everything in a loop uses the same values.
+     * @return The DrivetrainState
+     */
+    public DrivetrainState getState() {
+        return state;
     }
 
     /**
@@ -423,7 +673,17 @@ public class Drivetrain extends SubsystemBase {
     public void resetOdometry(Pose2d pose) {
         // NOTE: must use pigeon yaw for odometer!
         currentHeading = pose.getRotation().getRadians();
-        poseEstimator.resetPosition(Rotation2d.fromDegrees(pigeon.getYaw().getValue()), getModulePositions(), pose);
+        poseEstimator.resetPosition(Rotation2d.fromDegrees(yaw), getModulePositions(), pose);
+        slipDetector.reset();
+        // Samples from before the reset would move the robot back by however far it moved since they were read
+        if(odometryThread != null){
+            odometryThread.clear();
+        }
+        // Don't interpolate across the jump
+        poseHistory.clear();
+        poseHistory.add(Timer.getFPGATimestamp(), pose);
+        // Publish the new pose so commands later in this loop don't use the old one
+        publishState();
     }
 
     /**
@@ -433,12 +693,40 @@ public class Drivetrain extends SubsystemBase {
         return poseEstimator.getEstimatedPosition();
     }
 
+    /**
+     * Gets the pose of the robot at a past time, interpolating between odometry updates
+     * @param timestamp The FPGA timestamp in seconds, such as the capture time of a camera frame
+     * @return The pose at that time, or the current pose if there is no history yet
+     */
+    public Pose2d getPoseAt(double timestamp) {
+        Pose2d pose = poseHistory.getPoseAt(timestamp);
+        return pose == null ? getPose() : pose;
+    }
+
+    /**
+     * Gets the history of poses, for code that needs to know where the robot was without allocating
+     * @return The pose history. Don't add to it.
+     */
+    public PoseHistory getPoseHistory() {
+        return poseHistory;
+    }
+
     /**
      * Sets the angle to align to for the speaker
      * @param newAngle The new angle in radians, set to null to aim directly at the speaker
      */
     public void setAlignAngle(Double newAngle){
+        setAlignAngle(newAngle, 0);
+    }
+
+    /**
+     * Sets the angle to align to for the speaker and how fast it is changing, so the robot can turn with it
+     * @param newAngle The new angle in radians, set to null to aim directly at the speaker
+     * @param angularVelocity How fast the angle is changing in radians per second
+     */
+    public void setAlignAngle(Double newAngle, double angularVelocity){
         alignAngle = newAngle;
+        alignAngularVelocity = angularVelocity;
     }
 
     public boolean atAlignAngle(){
@@ -464,6 +752,17 @@ public class Drivetrain extends SubsystemBase {
         //     Math.atan2(VisionConstants.RED_SPEAKER_POSE.getY() - pose.getY(), VisionConstants.RED_SPEAKER_POSE.getX() - pose.getX()));
     }
 
+    /**
+     * Gets how fast the angle to align to is changing
+     * @return The angular velocity in radians per second, 0 if there is no align angle
+     */
+    public double getAlignAngularVelocity(){
+        if(alignAngle != null){
+            return alignAngularVelocity;
+        }
+        return 0;
+    }
+
     /**
      * Sets vision to only use certain April tags
      * @param ids An array of the tags to only use
@@ -489,7 +788,7 @@ public class Drivetrain extends SubsystemBase {
      * @return A rotation
      */
     public double headingControl(double rot, double xSpeed, double ySpeed){
-        if((!EqualsUtil.epsilonEquals(getAngularRate(0), 0, 0.0004)&&EqualsUtil.epsilonEquals(Math.hypot(xSpeed, ySpeed),0,0.1))||!EqualsUtil.epsilonEquals(rot, 0, 0.0004)){
+        if((!EqualsUtil.epsilonEquals(getAngularRate(2), 0, 0.0004)&&EqualsUtil.epsilonEquals(Math.hypot(xSpeed, ySpeed),0,0.1))||!EqualsUtil.epsilonEquals(rot, 0, 0.0004)){
              drive_turning = true;
              currentHeading = getYaw().getRadians();
         }
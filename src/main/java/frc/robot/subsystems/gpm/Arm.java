@@ -1,9 +1,11 @@
 package frc.robot.subsystems.gpm;
 
 import com.ctre.phoenix6.StatusSignal;
+import com.ctre.phoenix6.configs.TalonFXConfiguration;
 import com.ctre.phoenix6.controls.DutyCycleOut;
 import com.ctre.phoenix6.controls.Follower;
 import com.ctre.phoenix6.hardware.TalonFX;
+import com.ctre.phoenix6.signals.InvertedValue;
 import com.ctre.phoenix6.signals.NeutralModeValue;
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.controller.ArmFeedforward;
@@ -25,6 +27,8 @@ import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.constants.ArmConstants;
 import frc.robot.constants.Constants;
 import frc.robot.subsystems.PowerPanel;
+import frc.robot.util.CANBusManager;
+import frc.robot.util.DeviceConfigurator;
 import frc.robot.util.LogManager;
 
 import java.time.Duration;
@@ -68,6 +72,8 @@ public class Arm extends SubsystemBase {
     // DutyCycle control
     // TODO: change to voltage control
     private final DutyCycleOut m_request = new DutyCycleOut(0);
+    // The follower request for each slave, made once so they can be sent again without allocating
+    private final Follower[] followRequests = new Follower[ArmConstants.MOTOR_IDS.length];
     public double dutyCycle = 0;
 
     /**
@@ -91,6 +97,8 @@ public class Arm extends SubsystemBase {
      * high is 0.357
      */
     protected static final double OFFSET =  0.1483 + Units.radiansToRotations(ArmConstants.MIN_ANGLE_RADS);
+    /** The most time to wait for the REV encoder at startup in seconds */
+    private static final double ENCODER_TIMEOUT = 2;
     /** REV encoder scale factor. This is fixed. */
     protected static final double DISTANCE_PER_ROTATION = -2 * Math.PI;
 
@@ -148,28 +156,38 @@ public class Arm extends SubsystemBase {
         for (int i = 0; i < motors.length; i++) {
             // create the motor
             motors[i] = new TalonFX(ArmConstants.MOTOR_IDS[i]);
-            // TODO: why is this done here? The slave should follow when neutral mode is set below.
-            motors[i].setNeutralMode(NeutralModeValue.Brake);
+            // each motor gets 1 full configuration, applied in the background
+            TalonFXConfiguration config = new TalonFXConfiguration();
+            config.MotorOutput.NeutralMode = NeutralModeValue.Brake;
+            if (i == 0) {
+                // slaves don't copy the master's settings in Phoenix v6, so only the master is limited
+                config.MotorOutput.Inverted = InvertedValue.CounterClockwise_Positive;
+                config.CurrentLimits = ArmConstants.currentConfig;
+            }
+            TalonFX motor = motors[i];
+            DeviceConfigurator.apply("Arm Motor " + ArmConstants.MOTOR_IDS[i], () -> motor.getConfigurator().apply(config));
 
             // i==0 is the master; the others are slaves
             if (i > 0) {
                 // set slave mode
                 // the master is MOTOR_IDS[0]
                 // invert master for ids 2 and 3
-                
-                motors[i].setControl(new Follower(ArmConstants.MOTOR_IDS[0], (i >= motors.length / 2)));
+                followRequests[i] = new Follower(ArmConstants.MOTOR_IDS[0], (i >= motors.length / 2));
+                motors[i].setControl(followRequests[i]);
             }
         }
 
-        // common configuration for each motor
-        // configure the master after the slaves have been linked so slaves will copy the same settings.
-        motors[0].setNeutralMode(NeutralModeValue.Brake);
-        motors[0].setInverted(false);
-        motors[0].getConfigurator().apply(ArmConstants.currentConfig);
-
         // Phoenix v6 rotor position signal
         rotorPositionSignal = motors[0].getRotorPosition();
 
+        // The followers copy the master's output from these signals, and the simulation reads the duty cycle.
+        // Nothing reads the followers, so all of their signals are turned off.
+        CANBusManager.register("Arm Master", motors[0], 100,
+            motors[0].getDutyCycle(), motors[0].getMotorVoltage(), motors[0].getTorqueCurrent());
+        for (int i = 1; i < motors.length; i++) {
+            CANBusManager.register("Arm Follower " + i, motors[i], 0);
+        }
+
         // possibly set up simulations
         if (RobotBase.isSimulation()) {
             simulation = new SingleJointedArmSim(motorModel,
@@ -188,7 +206,7 @@ public class Arm extends SubsystemBase {
             // put the display on the SmartDashboard
             // SmartDashboard.putData("ArmSim", wristDisplay);
         }
-        Timer.delay(2);
+        waitForEncoder();
 		double cachedAngleRad = getAngleRad(); // don't get the angle five times
         SmartDashboard.putNumber("cached angle", getAngleRad());
 		// some checks for the arm position
@@ -229,6 +247,21 @@ public class Arm extends SubsystemBase {
         // return Units.rotationsToRadians(rotorPositionSignal.getValue() / ArmConstants.GEARING);
     }
 
+    /**
+     * Waits until the REV absolute encoder is sending readings, or up to ENCODER_TIMEOUT seconds.
+     * This used to always wait 2 seconds.
+     */
+    private void waitForEncoder() {
+        if (RobotBase.isSimulation()) {
+            // the simulated encoder is always connected
+            return;
+        }
+        double start = Timer.getFPGATimestamp();
+        while (!encoder.isConnected() && Timer.getFPGATimestamp() - start < ENCODER_TIMEOUT) {
+            Timer.delay(0.01);
+        }
+    }
+
     @Override
     public void periodic() {
         SmartDashboard.putNumber("abs value", encoder.getAbsolutePosition());
@@ -5,6 +5,7 @@ import java.time.Duration;
 import com.revrobotics.CANSparkFlex;
 import com.revrobotics.CANSparkLowLevel;
 import com.revrobotics.CANSparkMax;
+import com.revrobotics.CANSparkLowLevel.PeriodicFrame;
 
 import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.wpilibj.DigitalInput;
@@ -15,6 +16,7 @@ import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.constants.Constants;
 import frc.robot.constants.IntakeConstants;
+import frc.robot.util.CANBusManager;
 import frc.robot.util.LogManager;
 import edu.wpi.first.wpilibj.Timer;
 
@@ -96,7 +98,14 @@ public class Intake extends SubsystemBase {
 
         waitTimer.start();
 
+        // Nothing reads the motors except the logs
+        CANBusManager.registerSpark("Intake", motor);
+        CANBusManager.registerSpark("Intake Centering", centeringMotor);
+
         if (Constants.DO_LOGGING) {
+            // the absolute encoder velocity is in status 6
+            CANBusManager.registerSpark("Intake", motor, PeriodicFrame.kStatus6, 100);
+            CANBusManager.registerSpark("Intake Centering", centeringMotor, PeriodicFrame.kStatus6, 100);
             LogManager.add("Intake/motorVolts", () -> motor.get() * Constants.ROBOT_VOLTAGE);
             LogManager.add("Intake/centeringMotorVolts", () -> centeringMotor.get() * Constants.ROBOT_VOLTAGE);
             
@@ -129,6 +138,13 @@ public class Intake extends SubsystemBase {
         return !sensor.get();
     }
 
+    /**
+     * @return The mode the intake was last set to, or null if it was never set
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
     @Override
     public void periodic() {
          publish();
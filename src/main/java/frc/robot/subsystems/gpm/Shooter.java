@@ -2,6 +2,7 @@ package frc.robot.subsystems.gpm;
 
 import com.revrobotics.CANSparkFlex;
 import com.revrobotics.CANSparkLowLevel.MotorType;
+import com.revrobotics.CANSparkLowLevel.PeriodicFrame;
 import com.revrobotics.RelativeEncoder;
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.controller.PIDController;
@@ -14,6 +15,7 @@ import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.constants.Constants;
 import frc.robot.constants.ShooterConstants;
+import frc.robot.util.CANBusManager;
 import frc.robot.util.EqualsUtil;
 import frc.robot.util.LogManager;
 
@@ -97,6 +99,10 @@ public class Shooter extends SubsystemBase {
 		rightMotor.setInverted(false);
 		leftMotor.setInverted(true);
 
+		// the PID loops read the velocity every loop
+		CANBusManager.registerSpark("Shooter Left", leftMotor, PeriodicFrame.kStatus1, 20);
+		CANBusManager.registerSpark("Shooter Right", rightMotor, PeriodicFrame.kStatus1, 20);
+
 		// are we simulating?
 		if (RobotBase.isSimulation()) {
 			// make the linear system simulation instances
@@ -6,6 +6,7 @@ import com.revrobotics.CANSparkLowLevel.MotorType;
 import edu.wpi.first.wpilibj.DigitalInput;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.constants.StorageIndexConstants;
+import frc.robot.util.CANBusManager;
 
 /**
  * The StorageIndex subsystem handles the control of the storage index
@@ -27,8 +28,8 @@ public class StorageIndex extends SubsystemBase {
 
     m_indexmotor.setIdleMode(StorageIndexConstants.idleMode);
 
-
-    // Additional setup, possibly related to CAN Frames, could be documented here.
+    // Nothing reads the motor, so its status frames can be slowed down
+    CANBusManager.registerSpark("StorageIndex", m_indexmotor);
   }
 
   public void close() {
@@ -100,6 +101,15 @@ public class StorageIndex extends SubsystemBase {
     runIndex(StorageIndexConstants.ejectShootSpeed);
   }
 
+  /**
+   * Gets the power the index motor was set to.
+   *
+   * @return The power from -1 to 1, positive feeds notes toward the shooter.
+   */
+  public double getSpeed() {
+    return m_indexmotor.get();
+  }
+
   /**
    * Checks if a note is present using the beam break sensor.
    *
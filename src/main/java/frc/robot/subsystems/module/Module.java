@@ -1,21 +1,27 @@
 package frc.robot.subsystems.module;
 
 import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.configs.CANcoderConfiguration;
 import com.ctre.phoenix6.configs.ClosedLoopRampsConfigs;
-import com.ctre.phoenix6.configs.CurrentLimitsConfigs;
 import com.ctre.phoenix6.configs.MagnetSensorConfigs;
 import com.ctre.phoenix6.configs.OpenLoopRampsConfigs;
 import com.ctre.phoenix6.configs.Slot0Configs;
 import com.ctre.phoenix6.configs.TalonFXConfiguration;
+import com.ctre.phoenix6.controls.DutyCycleOut;
 import com.ctre.phoenix6.controls.PositionDutyCycle;
 import com.ctre.phoenix6.controls.VelocityVoltage;
+import com.ctre.phoenix6.controls.VoltageOut;
 import com.ctre.phoenix6.hardware.CANcoder;
 import com.ctre.phoenix6.hardware.TalonFX;
 import com.ctre.phoenix6.signals.AbsoluteSensorRangeValue;
+import com.ctre.phoenix6.signals.InvertedValue;
 import com.ctre.phoenix6.signals.SensorDirectionValue;
 
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.controller.SimpleMotorFeedforward;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
@@ -28,7 +34,9 @@ import frc.robot.constants.Constants;
 import frc.robot.constants.swerve.DriveConstants;
 import frc.robot.constants.swerve.ModuleConstants;
 import frc.robot.constants.swerve.ModuleType;
+import frc.robot.util.CANBusManager;
 import frc.robot.util.ConversionUtils;
+import frc.robot.util.DeviceConfigurator;
 import frc.robot.util.LogManager;
 import lib.CTREModuleState;
 
@@ -42,18 +50,37 @@ public class Module extends SubsystemBase {
     private final TalonFX angleMotor;
     private final TalonFX driveMotor;
     private final CANcoder CANcoder;
-    private SwerveModuleState desiredState;
+    // Updated in place so setting the state every loop doesn't allocate
+    private final SwerveModuleState desiredState = new SwerveModuleState();
 
     protected boolean stateDeadband = true;
 
     private SimpleMotorFeedforward feedforward;
     
     final VelocityVoltage m_VelocityVoltage = new VelocityVoltage(0);
+    // Control requests are reused, since they are sent every loop
+    private final DutyCycleOut driveDutyCycle = new DutyCycleOut(0);
+    private final VoltageOut driveVoltage = new VoltageOut(0);
+    private final PositionDutyCycle anglePositionDutyCycle = new PositionDutyCycle(0);
+    private final DutyCycleOut angleDutyCycle = new DutyCycleOut(0);
     
-    private boolean optimizeStates = true;
+    protected boolean optimizeStates = true;
+
+    // Completes when all of the module's devices are configured
+    private final CompletableFuture<Void> configured;
 
     private ModuleConstants moduleConstants;
 
+    // Signals refreshed together once per loop by the drivetrain, see getSignals()
+    private final StatusSignal<Double> drivePositionSignal;
+    private final StatusSignal<Double> driveVelocitySignal;
+    private final StatusSignal<Double> anglePositionSignal;
+    private final BaseStatusSignal[] signals;
+
+    // Values from the last refresh, in motor rotations and rotations per second
+    private double drivePosition;
+    private double driveVelocity;
+    private double anglePosition;
 
     public Module(ModuleConstants moduleConstants) {
         this.moduleConstants = moduleConstants;
@@ -63,21 +90,86 @@ public class Module extends SubsystemBase {
         //angleOffset = new Rotation2d(constants.getSteerOffset());
         angleOffset = moduleConstants.getSteerOffset();
 
-        /* Angle Encoder Config */
         CANcoder = new CANcoder(moduleConstants.getEncoderPort(), DriveConstants.kSteerEncoderCAN);
-        configCANcoder();
-
-        /* Angle Motor Config */
         angleMotor = new TalonFX(moduleConstants.getSteerPort(), DriveConstants.kSteerEncoderCAN);
-        configAngleMotor();
-
-        /* Drive Motor Config */
         driveMotor = new TalonFX(moduleConstants.getDrivePort(), DriveConstants.kDriveMotorCAN);
-        configDriveMotor();
+        m_VelocityVoltage.Slot = 0;
+
+        // The devices are configured in the background, call waitForConfig() before resetToAbsolute()
+        String name = "Module" + type.name();
+        configured = CompletableFuture.allOf(
+            DeviceConfigurator.apply(name + " CANcoder", () -> CANcoder.getConfigurator().apply(createCANcoderConfig())),
+            DeviceConfigurator.apply(name + " Angle", () -> angleMotor.getConfigurator().apply(createAngleMotorConfig())),
+            DeviceConfigurator.apply(name + " Drive", () -> driveMotor.getConfigurator().apply(createDriveMotorConfig()))
+        );
+
+        drivePositionSignal = driveMotor.getPosition();
+        driveVelocitySignal = driveMotor.getVelocity();
+        anglePositionSignal = angleMotor.getPosition();
+        signals = new BaseStatusSignal[]{drivePositionSignal, driveVelocitySignal, anglePositionSignal};
+        registerSignals();
+        if (Constants.DO_LOGGING) {
+            registerLogs();
+        }
+        BaseStatusSignal.refreshAll(signals);
+        updateCachedValues();
 
         setDesiredState(new SwerveModuleState(0, getAngle()), false);
     }
 
+    /**
+     * Tells the CAN bus manager which signals this module reads, so the rest can be turned off
+     */
+    private void registerSignals() {
+        String name = "Module" + type.name();
+        CANBusManager.register(name + " Drive", driveMotor, CANBusManager.LOOP_FREQUENCY,
+            drivePositionSignal, driveVelocitySignal);
+        CANBusManager.register(name + " Drive", driveMotor, CANBusManager.TELEMETRY_FREQUENCY,
+            driveMotor.getMotorVoltage(), driveMotor.getStatorCurrent(), driveMotor.getAcceleration());
+        CANBusManager.register(name + " Angle", angleMotor, CANBusManager.LOOP_FREQUENCY, anglePositionSignal);
+        CANBusManager.register(name + " Angle", angleMotor, CANBusManager.TELEMETRY_FREQUENCY, angleMotor.getVelocity());
+        if (DriveConstants.kSteerUseCANcoder) {
+            // The angle motor reads these directly for its position control
+            CANBusManager.register(name + " CANcoder", CANcoder, DriveConstants.kSteerCANcoderFrequency,
+                CANcoder.getPosition(), CANcoder.getVelocity());
+        }
+        // Only read when resetting to absolute
+        CANBusManager.register(name + " CANcoder", CANcoder, CANBusManager.TELEMETRY_FREQUENCY,
+            CANcoder.getAbsolutePosition());
+    }
+
+    /**
+     * Adds this module's logs. The suppliers are read every time LogManager updates, so this only runs once.
+     */
+    private void registerLogs() {
+        String directory_name = "Drivetrain/Module" + type.name();
+        LogManager.add(directory_name +"/DriveSpeedActual/" , () -> ConversionUtils.falconToMPS(ConversionUtils.RPMToFalcon(driveVelocity/60, 1), DriveConstants.kWheelCircumference,
+            DriveConstants.kDriveGearRatio), Duration.ofSeconds(1));
+        LogManager.add(directory_name +"/DriveSpeedDesired/", () -> desiredState.speedMetersPerSecond, Duration.ofSeconds(1));
+        LogManager.add(directory_name +"/AngleDesired/", () -> getDesiredAngle().getRadians(), Duration.ofSeconds(1));
+        LogManager.add(directory_name +"/AngleActual/", () -> getAngle().getRadians(), Duration.ofSeconds(1));
+        LogManager.add(directory_name +"/VelocityDesired/", () -> getDesiredVelocity(), Duration.ofSeconds(1));
+        LogManager.add(directory_name +"/VelocityActual/", () -> getState().speedMetersPerSecond, Duration.ofSeconds(1));
+        LogManager.add(directory_name +"/DriveVoltage/", () -> driveMotor.getMotorVoltage().getValue(), Duration.ofSeconds(1));
+        LogManager.add(directory_name +"/DriveCurrent/", () -> driveMotor.getStatorCurrent().getValue(), Duration.ofSeconds(1));
+    }
+
+    /**
+     * Gets how many rotations the angle motor's position is per rotation of the module. The angle motor counts
+     * rotor rotations, unless the CANcoder is its feedback sensor and it counts module rotations.
+     * @return The ratio
+     */
+    public static double getSteerPositionRatio() {
+        return DriveConstants.kSteerUseCANcoder ? 1 : DriveConstants.kModuleConstants.angleGearRatio;
+    }
+
+    /**
+     * Waits until the CANcoder and motors are configured
+     */
+    public void waitForConfig() {
+        configured.join();
+    }
+
     public void close() {
         angleMotor.close();
         driveMotor.close();
@@ -88,13 +180,35 @@ public class Module extends SubsystemBase {
         
     }
 
+    /**
+     * Gets the signals this module reads every loop, so they can all be refreshed with 1 call to BaseStatusSignal.refreshAll()
+     * @return The signals
+     */
+    public BaseStatusSignal[] getSignals() {
+        return signals;
+    }
+
+    /**
+     * Stores the values of the signals after they are refreshed. getState(), getPosition(), and getAngle() use these values.
+     */
+    public void updateCachedValues() {
+        drivePosition = drivePositionSignal.getValue();
+        driveVelocity = driveVelocitySignal.getValue();
+        anglePosition = anglePositionSignal.getValue();
+    }
+
     public void setDesiredState(SwerveModuleState wantedState, boolean isOpenLoop) {
 
         /*
          * This is a custom optimize function, since default WPILib optimize assumes
          * continuous controller which CTRE and Rev onboard is not
          */
-        desiredState = optimizeStates ? CTREModuleState.optimize(wantedState, getState().angle) : wantedState;
+        if (optimizeStates) {
+            CTREModuleState.optimize(wantedState, getAngleDegrees(), desiredState);
+        } else {
+            desiredState.speedMetersPerSecond = wantedState.speedMetersPerSecond;
+            desiredState.angle = wantedState.angle;
+        }
         setAngle(desiredState);
         setSpeed(desiredState, isOpenLoop);
     }
@@ -102,25 +216,13 @@ public class Module extends SubsystemBase {
     private void setSpeed(SwerveModuleState desiredState, boolean isOpenLoop) {
         if (isOpenLoop) {
             double percentOutput = desiredState.speedMetersPerSecond / DriveConstants.kMaxSpeed;
-            driveMotor.set(percentOutput);
+            driveMotor.setControl(driveDutyCycle.withOutput(percentOutput));
         } else {
             double velocity = ConversionUtils.falconToRPM(ConversionUtils.MPSToFalcon(desiredState.speedMetersPerSecond, DriveConstants.kWheelCircumference,
                 DriveConstants.kDriveGearRatio), 1)/60;
             // TODO: This curently doesn't use the feedforward.
             driveMotor.setControl(m_VelocityVoltage.withVelocity(velocity).withEnableFOC(true).withFeedForward(feedforward.calculate(velocity)));
         }
-        if (Constants.DO_LOGGING) {
-            String directory_name = "Drivetrain/Module" + type.name();
-            LogManager.add(directory_name +"/DriveSpeedActual/" , () -> ConversionUtils.falconToMPS(ConversionUtils.RPMToFalcon(driveMotor.getVelocity().getValue()/60, 1), DriveConstants.kWheelCircumference,
-                DriveConstants.kDriveGearRatio), Duration.ofSeconds(1));
-            LogManager.add(directory_name +"/DriveSpeedDesired/", () -> desiredState.speedMetersPerSecond, Duration.ofSeconds(1));
-            LogManager.add(directory_name +"/AngleDesired/", () -> getDesiredAngle().getRadians(), Duration.ofSeconds(1));
-            LogManager.add(directory_name +"/AngleActual/", () -> getAngle().getRadians(), Duration.ofSeconds(1));
-            LogManager.add(directory_name +"/VelocityDesired/", () -> getDesiredVelocity(), Duration.ofSeconds(1));
-            LogManager.add(directory_name +"/VelocityActual/", () -> getState().speedMetersPerSecond, Duration.ofSeconds(1));
-            LogManager.add(directory_name +"/DriveVoltage/", () -> driveMotor.getMotorVoltage().getValue(), Duration.ofSeconds(1));
-            LogManager.add(directory_name +"/DriveCurrent/", () -> driveMotor.getStatorCurrent().getValue(), Duration.ofSeconds(1));
-        }
     }
 
     private void setAngle(SwerveModuleState desiredState) {
@@ -129,15 +231,14 @@ public class Module extends SubsystemBase {
             stop();
             return;
         }
-        // angleMotor.setControl(new PositionDutyCycle(3));
-        angleMotor.setControl(new PositionDutyCycle(desiredState.angle.getRotations()*DriveConstants.kModuleConstants.angleGearRatio));
+        setAngle(desiredState.angle);
     }
 
     public void setDriveVoltage(Measure<Voltage> voltage){
-        driveMotor.setVoltage(voltage.baseUnitMagnitude());
+        driveMotor.setControl(driveVoltage.withOutput(voltage.baseUnitMagnitude()));
     }
     public void setAngle(Rotation2d angle){
-        angleMotor.setControl(new PositionDutyCycle(angle.getRotations()*DriveConstants.kModuleConstants.angleGearRatio));
+        angleMotor.setControl(anglePositionDutyCycle.withPosition(angle.getRotations()*getSteerPositionRatio()));
     }
 
     public void setOptimize(boolean enable) {
@@ -149,8 +250,15 @@ public class Module extends SubsystemBase {
     }
 
     public Rotation2d getAngle() {
-        return Rotation2d.fromRotations(
-                angleMotor.getPosition().getValue()/DriveConstants.kModuleConstants.angleGearRatio);
+        return Rotation2d.fromRotations(anglePosition/getSteerPositionRatio());
+    }
+
+    /**
+     * Gets the angle without creating a Rotation2d
+     * @return The angle in degrees, not wrapped
+     */
+    protected double getAngleDegrees() {
+        return anglePosition/getSteerPositionRatio()*360;
     }
 
     public Rotation2d getCANcoder() {
@@ -158,49 +266,67 @@ public class Module extends SubsystemBase {
     }
 
     public void resetToAbsolute() {
+        // The Talon already uses the CANcoder's position
+        if (DriveConstants.kSteerUseCANcoder) {
+            return;
+        }
         // Sensor ticks
         double absolutePosition = getCANcoder().getRotations() - Units.degreesToRotations(angleOffset);
         angleMotor.setPosition(absolutePosition*DriveConstants.kModuleConstants.angleGearRatio);
+        // Don't wait for the next refresh to use the new position
+        anglePosition = absolutePosition*DriveConstants.kModuleConstants.angleGearRatio;
     }
 
-    private void configCANcoder() {
-        CANcoder.getConfigurator().apply(new CANcoderConfiguration());
-        CANcoder.getConfigurator().apply(new MagnetSensorConfigs()
+    private CANcoderConfiguration createCANcoderConfig() {
+        CANcoderConfiguration config = new CANcoderConfiguration();
+        config.MagnetSensor = new MagnetSensorConfigs()
             .withAbsoluteSensorRange(AbsoluteSensorRangeValue.Unsigned_0To1)
-            .withSensorDirection(DriveConstants.kModuleConstants.canCoderInvert?SensorDirectionValue.Clockwise_Positive:SensorDirectionValue.CounterClockwise_Positive));
-    }
-
-    private void configAngleMotor() {
-        angleMotor.getConfigurator().apply(new TalonFXConfiguration());
-        CurrentLimitsConfigs config = new CurrentLimitsConfigs();
-        config.SupplyCurrentLimitEnable = DriveConstants.kAngleEnableCurrentLimit;
-        config.SupplyCurrentLimit = DriveConstants.kAngleContinuousCurrentLimit;
-        config.SupplyCurrentThreshold = DriveConstants.kAnglePeakCurrentLimit;
-        config.SupplyTimeThreshold = DriveConstants.kAnglePeakCurrentDuration;
-        angleMotor.getConfigurator().apply(config);
-        angleMotor.getConfigurator().apply(new Slot0Configs()
+            .withSensorDirection(DriveConstants.kModuleConstants.canCoderInvert?SensorDirectionValue.Clockwise_Positive:SensorDirectionValue.CounterClockwise_Positive);
+        if (DriveConstants.kSteerUseCANcoder) {
+            // The angle motor uses the CANcoder's position directly, so the offset is applied on the CANcoder
+            config.MagnetSensor.MagnetOffset = MathUtil.inputModulus(-Units.degreesToRotations(angleOffset), -0.5, 0.5);
+        }
+        return config;
+    }
+
+    private TalonFXConfiguration createAngleMotorConfig() {
+        // Everything is in 1 configuration so it is applied with 1 round trip
+        TalonFXConfiguration config = new TalonFXConfiguration();
+        config.CurrentLimits.SupplyCurrentLimitEnable = DriveConstants.kAngleEnableCurrentLimit;
+        config.CurrentLimits.SupplyCurrentLimit = DriveConstants.kAngleContinuousCurrentLimit;
+        config.CurrentLimits.SupplyCurrentThreshold = DriveConstants.kAnglePeakCurrentLimit;
+        config.CurrentLimits.SupplyTimeThreshold = DriveConstants.kAnglePeakCurrentDuration;
+        config.Slot0 = new Slot0Configs()
             .withKP(DriveConstants.kModuleConstants.angleKP)
             .withKI(DriveConstants.kModuleConstants.angleKI)
-            .withKD(DriveConstants.kModuleConstants.angleKD));
-        angleMotor.setInverted(DriveConstants.kAngleMotorInvert);
-        angleMotor.setNeutralMode(DriveConstants.kAngleNeutralMode);
-        angleMotor.setPosition(0);
-        m_VelocityVoltage.Slot = 0;
-        
-        resetToAbsolute();
+            .withKD(DriveConstants.kModuleConstants.angleKD);
+        config.MotorOutput.Inverted = DriveConstants.kAngleMotorInvert ? InvertedValue.Clockwise_Positive : InvertedValue.CounterClockwise_Positive;
+        config.MotorOutput.NeutralMode = DriveConstants.kAngleNeutralMode;
+        if (DriveConstants.kSteerUseCANcoder) {
+            config.Feedback.FeedbackRemoteSensorID = moduleConstants.getEncoderPort();
+            config.Feedback.FeedbackSensorSource = DriveConstants.kSteerFeedbackSource;
+            config.Feedback.SensorToMechanismRatio = 1;
+            config.Feedback.RotorToSensorRatio = DriveConstants.kModuleConstants.angleGearRatio;
+            config.ClosedLoopGeneral.ContinuousWrap = true;
+            // The error is in module rotations instead of rotor rotations, so scale the gains to give the same output
+            config.Slot0.kP *= DriveConstants.kModuleConstants.angleGearRatio;
+            config.Slot0.kI *= DriveConstants.kModuleConstants.angleGearRatio;
+            config.Slot0.kD *= DriveConstants.kModuleConstants.angleGearRatio;
+        }
+        return config;
     }
 
     /**
      * @return Speed in RPM
      */
     public double getSteerVelocity() {
-        return angleMotor.getVelocity().getValue()/DriveConstants.kModuleConstants.angleGearRatio*60;
+        return angleMotor.getVelocity().getValue()/getSteerPositionRatio()*60;
     }
     /**
      * @return Speed in RPM
      */
     public double getDriveVelocity() {
-        return driveMotor.getVelocity().getValue()*60/DriveConstants.kModuleConstants.driveGearRatio;
+        return driveVelocity*60/DriveConstants.kModuleConstants.driveGearRatio;
     }
 
     public double getDriveVoltage(){
@@ -211,35 +337,33 @@ public class Module extends SubsystemBase {
         return driveMotor.getStatorCurrent().getValue();
     }
 
-    private void configDriveMotor() {
-        driveMotor.getConfigurator().apply(new TalonFXConfiguration());
-        CurrentLimitsConfigs config = new CurrentLimitsConfigs();
-        config.SupplyCurrentLimitEnable = DriveConstants.kDriveEnableCurrentLimit;
-        config.SupplyCurrentLimit = DriveConstants.kDriveContinuousCurrentLimit;
-        config.SupplyCurrentThreshold = DriveConstants.kDrivePeakCurrentLimit;
-        config.SupplyTimeThreshold = DriveConstants.kDrivePeakCurrentDuration;
-        driveMotor.getConfigurator().apply(config);
-        driveMotor.getConfigurator().apply(new Slot0Configs()
+    private TalonFXConfiguration createDriveMotorConfig() {
+        TalonFXConfiguration config = new TalonFXConfiguration();
+        config.CurrentLimits.SupplyCurrentLimitEnable = DriveConstants.kDriveEnableCurrentLimit;
+        config.CurrentLimits.SupplyCurrentLimit = DriveConstants.kDriveContinuousCurrentLimit;
+        config.CurrentLimits.SupplyCurrentThreshold = DriveConstants.kDrivePeakCurrentLimit;
+        config.CurrentLimits.SupplyTimeThreshold = DriveConstants.kDrivePeakCurrentDuration;
+        config.Slot0 = new Slot0Configs()
             .withKP(moduleConstants.getDriveP())
             .withKI(moduleConstants.getDriveI())
-            .withKD(moduleConstants.getDriveD()));
-        driveMotor.getConfigurator().apply(new OpenLoopRampsConfigs().withDutyCycleOpenLoopRampPeriod(DriveConstants.kOpenLoopRamp));
-        driveMotor.getConfigurator().apply(new ClosedLoopRampsConfigs().withDutyCycleClosedLoopRampPeriod(DriveConstants.kOpenLoopRamp));
-        driveMotor.setInverted(DriveConstants.kDriveMotorInvert);
-        driveMotor.setNeutralMode(DriveConstants.kDriveNeutralMode);
-        
+            .withKD(moduleConstants.getDriveD());
+        config.OpenLoopRamps = new OpenLoopRampsConfigs().withDutyCycleOpenLoopRampPeriod(DriveConstants.kOpenLoopRamp);
+        config.ClosedLoopRamps = new ClosedLoopRampsConfigs().withDutyCycleClosedLoopRampPeriod(DriveConstants.kOpenLoopRamp);
+        config.MotorOutput.Inverted = DriveConstants.kDriveMotorInvert ? InvertedValue.Clockwise_Positive : InvertedValue.CounterClockwise_Positive;
+        config.MotorOutput.NeutralMode = DriveConstants.kDriveNeutralMode;
+        return config;
     }
 
     public SwerveModuleState getState() {
         return new SwerveModuleState(
-                ConversionUtils.falconToMPS(ConversionUtils.RPMToFalcon(driveMotor.getVelocity().getValue()*60, 1), DriveConstants.kWheelCircumference,
+                ConversionUtils.falconToMPS(ConversionUtils.RPMToFalcon(driveVelocity*60, 1), DriveConstants.kWheelCircumference,
                                             DriveConstants.kDriveGearRatio),
                 getAngle());
     }
 
     public SwerveModulePosition getPosition() {
         return new SwerveModulePosition(
-                ConversionUtils.falconToMeters(ConversionUtils.degreesToFalcon(driveMotor.getPosition().getValue()*360, 1), DriveConstants.kWheelCircumference,
+                ConversionUtils.falconToMeters(ConversionUtils.degreesToFalcon(drivePosition*360, 1), DriveConstants.kWheelCircumference,
                                                DriveConstants.kDriveGearRatio),
                 getAngle());
     }
@@ -254,8 +378,8 @@ public class Module extends SubsystemBase {
     }
 
     public void stop() {
-        driveMotor.set(0);
-        angleMotor.set(0);
+        driveMotor.setControl(driveDutyCycle.withOutput(0));
+        angleMotor.setControl(angleDutyCycle.withOutput(0));
     }
 
     public TalonFX getDriveMotor(){
@@ -1,57 +1,202 @@
 package frc.robot.subsystems.module;
 
+import com.ctre.phoenix6.BaseStatusSignal;
 import com.ctre.phoenix6.hardware.TalonFX;
 
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.controller.SimpleMotorFeedforward;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
-import frc.robot.constants.Constants;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.units.Measure;
+import edu.wpi.first.units.Voltage;
+import edu.wpi.first.wpilibj.simulation.DCMotorSim;
+import frc.robot.constants.swerve.DriveConstants;
 import frc.robot.constants.swerve.ModuleConstants;
 import lib.CTREModuleState;
 
 
 /**
  * Swerve module for drivetrain to be used inside of simulation.
+ * <p>
+ * The drive and steer motors are DCMotorSims with the real gearing, and the voltages come from the same control the
+ * Talons run: the velocity PID and feedforward for closed loop driving, the ramped duty cycle for open loop, and the
+ * position PID for steering. Friction is a constant voltage against the motion. The drivetrain steps every module
+ * {@link #SUBSTEPS} times per loop with the battery voltage from the current they draw, see {@link #simulate(double, double)}.
  */
 public class ModuleSim extends Module {
+    /** How many times the motors are simulated each loop, since the Talons control much faster than the loop */
+    public static final int SUBSTEPS = 5;
+    /** The moment of inertia of the steering, in kg m^2 */
+    public static final double STEER_MOI = 0.004;
+    /** The voltage needed to overcome the steering's friction */
+    public static final double STEER_KS = 0.2;
 
-    private double currentSteerPositionRad = 0;
-    private double currentDrivePositionMeters = 0;
-    private double currentSpeed = 0;
+    private static final double WHEEL_RADIUS = DriveConstants.kWheelCircumference / (2 * Math.PI);
 
-    private SwerveModuleState desiredState;
+    /**
+     * How the drive motor is being controlled, like the control request sent to a real Talon
+     */
+    private enum DriveControl {
+        DUTY_CYCLE,
+        VELOCITY,
+        VOLTAGE
+    }
+
+    private final DCMotorSim driveSim;
+    private final DCMotorSim steerSim;
+    private final SimpleMotorFeedforward feedforward;
+    private final double driveP;
 
+    private DriveControl driveControl = DriveControl.DUTY_CYCLE;
+    // The duty cycle, velocity in motor rotations per second, or voltage, depending on the control
+    private double driveSetpoint = 0;
+    // The duty cycle after the open loop ramp
+    private double rampedDutyCycle = 0;
+    private double driveVoltage = 0;
 
-    protected boolean stateDeadband = true;
+    private boolean steerEnabled = false;
+    // The target angle in motor rotations, not wrapped
+    private double steerSetpoint = 0;
 
-    public ModuleSim(ModuleConstants ignored) {
-        super(ignored);
+    private final SwerveModuleState desiredState = new SwerveModuleState();
+
+    public ModuleSim(ModuleConstants moduleConstants) {
+        super(moduleConstants);
+        // Each module accelerates a quarter of the robot
+        double driveMOI = DriveConstants.kRobotMass / 4 * WHEEL_RADIUS * WHEEL_RADIUS;
+        driveSim = new DCMotorSim(DCMotor.getFalcon500(1), DriveConstants.kDriveGearRatio, driveMOI);
+        steerSim = new DCMotorSim(DCMotor.getFalcon500(1), DriveConstants.kModuleConstants.angleGearRatio, STEER_MOI);
+        feedforward = new SimpleMotorFeedforward(moduleConstants.getKs(), moduleConstants.getKv(), moduleConstants.getKa());
+        driveP = moduleConstants.getDriveP();
     }
 
-    /**
-     * Updates the simulation
-     */
     @Override
     public void periodic() {
-        currentDrivePositionMeters += currentSpeed * Constants.LOOP_TIME;
+    }
+
+    /**
+     * Simulates the module's motors
+     * @param dt How long to simulate in seconds
+     * @param batteryVoltage The battery voltage
+     * @return The current the module draws from the battery in amps
+     */
+    public double simulate(double dt, double batteryVoltage) {
+        double driveMotorVelocity = getDriveMotorVelocity();
+        switch (driveControl) {
+            case VELOCITY:
+                driveVoltage = feedforward.calculate(driveSetpoint) + driveP * (driveSetpoint - driveMotorVelocity);
+                break;
+            case VOLTAGE:
+                driveVoltage = driveSetpoint;
+                break;
+            default:
+                double maxChange = dt / DriveConstants.kOpenLoopRamp;
+                rampedDutyCycle += MathUtil.clamp(driveSetpoint - rampedDutyCycle, -maxChange, maxChange);
+                driveVoltage = rampedDutyCycle * batteryVoltage;
+                break;
+        }
+        driveVoltage = MathUtil.clamp(driveVoltage, -batteryVoltage, batteryVoltage);
+        // Ramp from the current output when switching to open loop
+        rampedDutyCycle = driveVoltage / batteryVoltage;
+        driveSim.setInputVoltage(applyFriction(driveVoltage, driveMotorVelocity, feedforward.ks));
+        driveSim.update(dt);
+
+        double steerMotorVelocity = Units.radiansToRotations(steerSim.getAngularVelocityRadPerSec())
+            * DriveConstants.kModuleConstants.angleGearRatio;
+        double steerVoltage = 0;
+        if (steerEnabled) {
+            double error = steerSetpoint - getSteerMotorPosition();
+            double dutyCycle = DriveConstants.kModuleConstants.angleKP * error
+                - DriveConstants.kModuleConstants.angleKD * steerMotorVelocity;
+            steerVoltage = MathUtil.clamp(dutyCycle, -1, 1) * batteryVoltage;
+        }
+        steerSim.setInputVoltage(applyFriction(steerVoltage, steerMotorVelocity, STEER_KS));
+        steerSim.update(dt);
+
+        // The supply current is the stator current scaled by how much of the battery voltage is applied
+        return (Math.abs(driveSim.getCurrentDrawAmps() * driveVoltage)
+            + Math.abs(steerSim.getCurrentDrawAmps() * steerVoltage)) / batteryVoltage;
+    }
+
+    /**
+     * Takes the voltage lost to friction out of a motor's voltage
+     * @param voltage The applied voltage
+     * @param velocity The velocity of the motor, only the sign is used
+     * @param ks The voltage needed to overcome friction
+     * @return The voltage that accelerates the motor
+     */
+    private static double applyFriction(double voltage, double velocity, double ks) {
+        if (Math.abs(velocity) > 1e-3) {
+            return voltage - Math.copySign(ks, velocity);
+        }
+        // Not moving, so friction holds it until the voltage is more than ks
+        if (Math.abs(voltage) <= ks) {
+            return 0;
+        }
+        return voltage - Math.copySign(ks, voltage);
     }
 
     /**
      * Sets the desired state for the module.
      *
-     * @param desiredState Desired state with speed and angle.
+     * @param wantedState Desired state with speed and angle.
      * @param isOpenLoop   whether to use closed/open loop control for drive velocity
      */
-    public void setDesiredState(SwerveModuleState desiredState, boolean isOpenLoop) {
-        if (Math.abs(desiredState.speedMetersPerSecond) < 0.001) {
-            currentSpeed = 0;
+    @Override
+    public void setDesiredState(SwerveModuleState wantedState, boolean isOpenLoop) {
+        // Module's constructor sets a state before the simulation is created
+        if (steerSim == null) {
             return;
         }
-        // Optimize the reference state to avoid spinning further than 90 degrees
-        desiredState = CTREModuleState.optimize(desiredState, new Rotation2d(currentSteerPositionRad));
+        // The same as Module, but the outputs go to the simulation
+        if (optimizeStates) {
+            CTREModuleState.optimize(wantedState, getAngleDegrees(), desiredState);
+        } else {
+            desiredState.speedMetersPerSecond = wantedState.speedMetersPerSecond;
+            desiredState.angle = wantedState.angle;
+        }
+
+        if (stateDeadband && (Math.abs(desiredState.speedMetersPerSecond) <= (DriveConstants.kMaxSpeed * 0.01))) {
+            steerEnabled = false;
+        } else {
+            setAngle(desiredState.angle);
+        }
+
+        if (isOpenLoop) {
+            driveControl = DriveControl.DUTY_CYCLE;
+            driveSetpoint = desiredState.speedMetersPerSecond / DriveConstants.kMaxSpeed;
+        } else {
+            driveControl = DriveControl.VELOCITY;
+            driveSetpoint = desiredState.speedMetersPerSecond / DriveConstants.kWheelCircumference
+                * DriveConstants.kDriveGearRatio;
+        }
+    }
 
-        currentSpeed = desiredState.speedMetersPerSecond;
-        currentSteerPositionRad = desiredState.angle.getRadians();
+    @Override
+    public void setAngle(Rotation2d angle) {
+        steerEnabled = true;
+        steerSetpoint = angle.getRotations() * DriveConstants.kModuleConstants.angleGearRatio;
+    }
+
+    @Override
+    public void setDriveVoltage(Measure<Voltage> voltage) {
+        driveControl = DriveControl.VOLTAGE;
+        driveSetpoint = voltage.baseUnitMagnitude();
+    }
+
+    /**
+     * The simulated module doesn't read its motors, so there is nothing to refresh
+     */
+    @Override
+    public BaseStatusSignal[] getSignals() {
+        return new BaseStatusSignal[0];
+    }
+
+    @Override
+    public void updateCachedValues() {
     }
 
     public void resetToAbsolute() {
@@ -65,29 +210,32 @@ public class ModuleSim extends Module {
     public double getDesiredVelocity() {
         return getDesiredState().speedMetersPerSecond;
       }
-    
+
       public Rotation2d getDesiredAngle() {
         return getDesiredState().angle;
       }
 
     /**
-     * Sets current speed to zero
+     * Sets both motors to 0 output, like Module
      */
+    @Override
     public void stop() {
-        currentSpeed = 0;
+        driveControl = DriveControl.DUTY_CYCLE;
+        driveSetpoint = 0;
+        steerEnabled = false;
     }
 
     public SwerveModuleState getState() {
         return new SwerveModuleState(
-                currentSpeed,
+                driveSim.getAngularVelocityRadPerSec() * WHEEL_RADIUS,
                 getAngle()
         );
     }
 
     public SwerveModulePosition getPosition() {
         return new SwerveModulePosition(
-                currentDrivePositionMeters,
-                new Rotation2d(currentSteerPositionRad)
+                driveSim.getAngularPositionRad() * WHEEL_RADIUS,
+                getAngle()
         );
     }
 
@@ -95,7 +243,12 @@ public class ModuleSim extends Module {
      * Gets the simulated angle of the module.
      */
     public Rotation2d getAngle() {
-        return new Rotation2d(currentSteerPositionRad);
+        return new Rotation2d(steerSim.getAngularPositionRad());
+    }
+
+    @Override
+    protected double getAngleDegrees() {
+        return Math.toDegrees(steerSim.getAngularPositionRad());
     }
 
      /**
@@ -110,17 +263,34 @@ public class ModuleSim extends Module {
     }
 
     public double getDriveVoltage(){
-        return 0;
+        return driveVoltage;
     }
 
     public double getDriveStatorCurrent(){
-        return 0;
+        return driveSim.getCurrentDrawAmps();
     }
-    
+
+    /**
+     * @return Speed in RPM
+     */
     public double getSteerVelocity() {
-        return 0;
+        return Units.radiansPerSecondToRotationsPerMinute(steerSim.getAngularVelocityRadPerSec());
     }
+
+    /**
+     * @return Speed in RPM
+     */
     public double getDriveVelocity() {
-        return 0;
+        return Units.radiansPerSecondToRotationsPerMinute(driveSim.getAngularVelocityRadPerSec());
+    }
+
+    // The drive motor's velocity in rotations per second
+    private double getDriveMotorVelocity() {
+        return Units.radiansToRotations(driveSim.getAngularVelocityRadPerSec()) * DriveConstants.kDriveGearRatio;
+    }
+
+    // The steer motor's position in rotations
+    private double getSteerMotorPosition() {
+        return Units.radiansToRotations(steerSim.getAngularPositionRad()) * DriveConstants.kModuleConstants.angleGearRatio;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,19 @@
+package frc.robot.util;
+
+/**
+ * Automatically generated file containing build version information.
+ */
+public final class BuildData {
+  public static final String MAVEN_GROUP = "";
+  public static final String MAVEN_NAME = "project";
+  public static final String VERSION = "unspecified";
+  public static final int GIT_REVISION = 31;
+  public static final String GIT_SHA = "4aa4622d71ec3f699e36f5db60249306891dcd62";
+  public static final String GIT_DATE = "2026-10-18 22:46:06 PDT";
+  public static final String GIT_BRANCH = "master";
+  public static final String BUILD_DATE = "2026-10-18 22:48:03 PDT";
+  public static final long BUILD_UNIX_TIME = 1792388883392L;
+  public static final int DIRTY = 0;
+
+  private BuildData(){}
+}
@@ -0,0 +1,251 @@
+package frc.robot.util;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.CANBus;
+import com.ctre.phoenix6.StatusCode;
+import com.ctre.phoenix6.hardware.ParentDevice;
+import com.revrobotics.CANSparkBase;
+import com.revrobotics.CANSparkLowLevel.PeriodicFrame;
+
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.constants.Constants;
+
+/**
+ * Sets the CAN status frame rates of every device to what the code actually uses
+ * <p>
+ * By default, every Phoenix 6 signal and REV status frame is sent at a fixed rate whether or not anything
+ * reads it. Each subsystem registers the signals it reads and how often it needs them. {@link #apply()} then
+ * sets those rates and turns off everything else with optimizeBusUtilization(), which leaves room on the bus
+ * for faster odometry.
+ * <p>
+ * If a signal is registered more than once, for example by a subsystem at 50Hz and the odometry thread at
+ * 250Hz, the fastest rate is used. Any signal that isn't registered stops updating after {@link #apply()},
+ * so register everything that is read, including logging and dashboards.
+ * <p>
+ * Each device's budget, the most status frames per second it will send, and each bus's measured
+ * utilization are put on the SmartDashboard under CAN/.
+ */
+public class CANBusManager {
+    /** The rate in Hz for signals read every loop */
+    public static final double LOOP_FREQUENCY = 1 / Constants.LOOP_TIME;
+    /** The rate in Hz for signals that are only logged or shown on the dashboard */
+    public static final double TELEMETRY_FREQUENCY = 10;
+    /** How often to measure the bus utilization, in seconds */
+    public static final double MEASURE_PERIOD = 1;
+    /** The period of REV status frames nothing registered, in ms */
+    public static final int REV_UNUSED_FRAME_PERIOD_MS = 500;
+
+    // The default period of REV status 0 in ms
+    private static final int REV_STATUS_0_PERIOD_MS = 10;
+
+    /**
+     * The signals a Phoenix device needs
+     */
+    private static class PhoenixDevice {
+        final String name;
+        final ParentDevice device;
+        // The fastest rate each signal was registered at, by signal name
+        final Map<String, Double> frequencies = new LinkedHashMap<>();
+        final Map<String, BaseStatusSignal> signals = new LinkedHashMap<>();
+
+        PhoenixDevice(String name, ParentDevice device) {
+            this.name = name;
+            this.device = device;
+        }
+
+        double getBudget() {
+            double budget = 0;
+            for (double frequency : frequencies.values()) {
+                budget += frequency;
+            }
+            return budget;
+        }
+    }
+
+    /**
+     * The status frames a Spark needs
+     */
+    private static class SparkDevice {
+        final String name;
+        final CANSparkBase spark;
+        // The shortest period each frame was registered at in ms
+        final Map<PeriodicFrame, Integer> periods = new EnumMap<>(PeriodicFrame.class);
+
+        SparkDevice(String name, CANSparkBase spark) {
+            this.name = name;
+            this.spark = spark;
+        }
+
+        int getPeriod(PeriodicFrame frame) {
+            if (periods.containsKey(frame)) {
+                return periods.get(frame);
+            }
+            // Status 0 has the faults and applied output that control and followers use, so leave it alone
+            if (frame == PeriodicFrame.kStatus0) {
+                return REV_STATUS_0_PERIOD_MS;
+            }
+            return REV_UNUSED_FRAME_PERIOD_MS;
+        }
+
+        double getBudget() {
+            double budget = 0;
+            for (PeriodicFrame frame : PeriodicFrame.values()) {
+                budget += 1000.0 / getPeriod(frame);
+            }
+            return budget;
+        }
+    }
+
+    private static final Map<ParentDevice, PhoenixDevice> phoenixDevices = new LinkedHashMap<>();
+    private static final Map<CANSparkBase, SparkDevice> sparkDevices = new LinkedHashMap<>();
+    private static final Timer measureTimer = new Timer();
+
+    /**
+     * Registers Phoenix 6 signals a subsystem reads
+     * @param name The name of the device for the dashboard
+     * @param device The device the signals are from
+     * @param frequencyHz How often the signals need to update in Hz
+     * @param signals The signals
+     */
+    public static void register(String name, ParentDevice device, double frequencyHz, BaseStatusSignal... signals) {
+        PhoenixDevice registered = phoenixDevices.computeIfAbsent(device, d -> new PhoenixDevice(name, d));
+        for (BaseStatusSignal signal : signals) {
+            // Clones of a signal have the same name and share its status frame
+            registered.signals.putIfAbsent(signal.getName(), signal);
+            registered.frequencies.merge(signal.getName(), frequencyHz, Math::max);
+        }
+    }
+
+    /**
+     * Registers a status frame a Spark MAX or Spark Flex subsystem reads
+     * <p>
+     * Status 1 has the velocity, current, and temperature, status 2 has the position, and status 3 to 6 have
+     * the analog, alternate encoder, and absolute encoder data. Frames that aren't registered are slowed down.
+     * @param name The name of the device for the dashboard
+     * @param spark The Spark
+     * @param frame The status frame
+     * @param periodMs How often the frame needs to be sent in ms
+     */
+    public static void registerSpark(String name, CANSparkBase spark, PeriodicFrame frame, int periodMs) {
+        SparkDevice registered = sparkDevices.computeIfAbsent(spark, s -> new SparkDevice(name, s));
+        registered.periods.merge(frame, periodMs, Math::min);
+    }
+
+    /**
+     * Registers a Spark that doesn't read anything from its status frames, so they can all be slowed down
+     * @param name The name of the device for the dashboard
+     * @param spark The Spark
+     */
+    public static void registerSpark(String name, CANSparkBase spark) {
+        sparkDevices.computeIfAbsent(spark, s -> new SparkDevice(name, s));
+    }
+
+    /**
+     * Sets the update rates of every registered device and disables the signals that weren't registered.
+     * Call this once after every subsystem is created. Setting the rates blocks until each device responds,
+     * so the Phoenix devices are set in parallel with {@link DeviceConfigurator} and this waits for them.
+     */
+    public static void apply() {
+        Map<String, Double> busBudgets = new LinkedHashMap<>();
+
+        for (PhoenixDevice device : phoenixDevices.values()) {
+            DeviceConfigurator.apply(device.name + " CAN rates", () -> applyRates(device));
+
+            String bus = getBus(device.device);
+            publishBudget(bus, device.name, device.getBudget());
+            busBudgets.merge(bus, device.getBudget(), Double::sum);
+        }
+
+        for (SparkDevice device : sparkDevices.values()) {
+            for (PeriodicFrame frame : PeriodicFrame.values()) {
+                device.spark.setPeriodicFramePeriod(frame, device.getPeriod(frame));
+            }
+            publishBudget(Constants.RIO_CAN, device.name, device.getBudget());
+            busBudgets.merge(Constants.RIO_CAN, device.getBudget(), Double::sum);
+        }
+
+        busBudgets.forEach((bus, budget) -> SmartDashboard.putNumber("CAN/" + bus + "/Budget (frames per s)", budget));
+        DeviceConfigurator.waitForAll();
+        measureTimer.restart();
+    }
+
+    /**
+     * Sets the rates of a device's signals with one call per rate, then disables the signals that weren't registered
+     * @param device The device
+     * @return The first error, or OK if every call worked
+     */
+    private static StatusCode applyRates(PhoenixDevice device) {
+        Map<Double, List<BaseStatusSignal>> signalsByFrequency = new LinkedHashMap<>();
+        for (Map.Entry<String, BaseStatusSignal> signal : device.signals.entrySet()) {
+            signalsByFrequency.computeIfAbsent(device.frequencies.get(signal.getKey()), frequency -> new ArrayList<>())
+                .add(signal.getValue());
+        }
+
+        StatusCode result = StatusCode.OK;
+        for (Map.Entry<Double, List<BaseStatusSignal>> group : signalsByFrequency.entrySet()) {
+            StatusCode status = BaseStatusSignal.setUpdateFrequencyForAll(
+                group.getKey(), group.getValue().toArray(BaseStatusSignal[]::new));
+            if (result.isOK()) {
+                result = status;
+            }
+        }
+        StatusCode status = device.device.optimizeBusUtilization();
+        return result.isOK() ? status : result;
+    }
+
+    /**
+     * Measures the utilization of each bus every {@link #MEASURE_PERIOD} seconds. Call this every loop.
+     */
+    public static void update() {
+        if (!measureTimer.advanceIfElapsed(MEASURE_PERIOD)) {
+            return;
+        }
+        for (String bus : getBuses()) {
+            // The RIO's bus isn't a Phoenix bus, so use WPILib's status for it
+            double utilization = bus.equals(Constants.RIO_CAN)
+                ? RobotController.getCANStatus().percentBusUtilization
+                : CANBus.getStatus(bus).BusUtilization;
+            SmartDashboard.putNumber("CAN/" + bus + "/Utilization %", utilization * 100);
+        }
+    }
+
+    /**
+     * Removes every registration, for tests that create subsystems more than once
+     */
+    public static void clear() {
+        phoenixDevices.clear();
+        sparkDevices.clear();
+    }
+
+    private static List<String> getBuses() {
+        List<String> buses = new ArrayList<>();
+        for (PhoenixDevice device : phoenixDevices.values()) {
+            String bus = getBus(device.device);
+            if (!buses.contains(bus)) {
+                buses.add(bus);
+            }
+        }
+        if (!sparkDevices.isEmpty() && !buses.contains(Constants.RIO_CAN)) {
+            buses.add(Constants.RIO_CAN);
+        }
+        return buses;
+    }
+
+    private static String getBus(ParentDevice device) {
+        // Devices created without a bus name are on the RIO's bus
+        String bus = device.getNetwork();
+        return bus.isEmpty() ? Constants.RIO_CAN : bus;
+    }
+
+    private static void publishBudget(String bus, String device, double budget) {
+        SmartDashboard.putNumber("CAN/" + bus + "/" + device + " (frames per s)", budget);
+    }
+}
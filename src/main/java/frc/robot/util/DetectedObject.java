@@ -1,9 +1,9 @@
 package frc.robot.util;
 
+import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Pose3d;
 import edu.wpi.first.math.geometry.Rotation3d;
 import edu.wpi.first.math.geometry.Transform3d;
-import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.geometry.Translation3d;
 import edu.wpi.first.wpilibj.DriverStation.Alliance;
 import frc.robot.Robot;
@@ -34,7 +34,16 @@ public class DetectedObject {
         type = ObjectType.NONE;
     }
     /**
-     * Creates a new DetectedObject
+     * Creates a new DetectedObject at a known field relative pose
+     * @param pose The field relative pose of the object
+     * @param type What type of object it is
+     */
+    public DetectedObject(Pose3d pose, ObjectType type){
+        this.pose = pose;
+        this.type = type;
+    }
+    /**
+     * Creates a new DetectedObject using the robot's current pose
      * @param xOffset The x offset from the camera to the object in radians
      * @param yOffset The y offset form the camera to the object in radians
      * @param distance The distance from the camera to the object in meters
@@ -42,30 +51,22 @@ public class DetectedObject {
      * @param robotToCamera The transformation form the robot to the camera
      */
     public DetectedObject(double xOffset, double yOffset, double distance, ObjectType type, Transform3d robotToCamera){
-        this.type = type;
-        // Get the position relative to the camera
-        Translation3d translation = new Translation3d(distance, new Rotation3d(0, yOffset, -xOffset));
-        // Rotate and translate it to get the position relative to the robot
-        translation = translation.rotateBy(robotToCamera.getRotation());
-        translation = translation.plus(robotToCamera.getTranslation());
-        // If the drivetrain exists, rotate and translate it to get the field relative position
-        if(drive != null){
-            translation = translation.rotateBy(new Rotation3d(
-                0,
-                0,
-                drive.getYaw().getRadians()
-            ));
-            Translation2d drivePose = drive.getPose().getTranslation();
-            translation = translation.plus(new Translation3d(
-                drivePose.getX(),
-                drivePose.getY(),
-                0
-            ));
-        }
-        pose = new Pose3d(translation, new Rotation3d());
+        this(getRobotRelativeTranslation(xOffset, yOffset, distance, robotToCamera), type, drive == null ? null : drive.getPose());
     }
     /**
-     * Creates a new DetectedObject
+     * Creates a new DetectedObject using the robot's pose when the frame was captured
+     * @param xOffset The x offset from the camera to the object in radians
+     * @param yOffset The y offset form the camera to the object in radians
+     * @param distance The distance from the camera to the object in meters
+     * @param type What type of object it is
+     * @param robotToCamera The transformation form the robot to the camera
+     * @param timestamp The FPGA timestamp the frame was captured at in seconds
+     */
+    public DetectedObject(double xOffset, double yOffset, double distance, ObjectType type, Transform3d robotToCamera, double timestamp){
+        this(getRobotRelativeTranslation(xOffset, yOffset, distance, robotToCamera), type, drive == null ? null : drive.getPoseAt(timestamp));
+    }
+    /**
+     * Creates a new DetectedObject using the robot's current pose
      * @param xOffset The x offset from the camera to the object in radians
      * @param yOffset The y offset form the camera to the object in radians
      * @param distance The distance from the camera to the object in meters
@@ -76,52 +77,98 @@ public class DetectedObject {
         this(xOffset, yOffset, distance, getType(type), robotToCamera);
     }
     /**
-     * Creates a new DetectedObject, assuming the object is on the ground
+     * Creates a new DetectedObject, assuming the object is on the ground, using the robot's current pose
      * @param xOffset The x offset from the camera to the object in radians
      * @param yOffset The y offset form the camera to the object in radians
      * @param type What type of object it is
      * @param robotToCamera The transformation form the robot to the camera
      */
     public DetectedObject(double xOffset, double yOffset, ObjectType type, Transform3d robotToCamera){
-        this.type = type;
+        this(getRobotRelativeGroundTranslation(xOffset, yOffset, type, robotToCamera), type, drive == null ? null : drive.getPose());
+    }
+    /**
+     * Creates a new DetectedObject, assuming the object is on the ground, using the robot's pose when the frame was captured
+     * @param xOffset The x offset from the camera to the object in radians
+     * @param yOffset The y offset form the camera to the object in radians
+     * @param type What type of object it is
+     * @param robotToCamera The transformation form the robot to the camera
+     * @param timestamp The FPGA timestamp the frame was captured at in seconds
+     */
+    public DetectedObject(double xOffset, double yOffset, ObjectType type, Transform3d robotToCamera, double timestamp){
+        this(getRobotRelativeGroundTranslation(xOffset, yOffset, type, robotToCamera), type, drive == null ? null : drive.getPoseAt(timestamp));
+    }
+    /**
+     * Creates a new DetectedObject, assuming the object is on the ground, using the robot's current pose
+     * @param xOffset The x offset from the camera to the object in radians
+     * @param yOffset The y offset form the camera to the object in radians
+     * @param type What type of object it is
+     * @param robotToCamera The transformation form the robot to the camera
+     */
+    public DetectedObject(double xOffset, double yOffset, long type, Transform3d robotToCamera){
+        this(xOffset, yOffset, getType(type), robotToCamera);
+    }
+    /**
+     * Creates a new DetectedObject from its position relative to the robot
+     * @param robotRelative The position of the object relative to the robot
+     * @param type What type of object it is
+     * @param robotPose The pose of the robot when the object was seen, or null to keep it robot relative
+     */
+    private DetectedObject(Translation3d robotRelative, ObjectType type, Pose2d robotPose){
+        this(new Pose3d(toFieldRelative(robotRelative, robotPose), new Rotation3d()), type);
+    }
+
+    /**
+     * Gets the position of an object relative to the robot
+     * @param xOffset The x offset from the camera to the object in radians
+     * @param yOffset The y offset form the camera to the object in radians
+     * @param distance The distance from the camera to the object in meters
+     * @param robotToCamera The transformation form the robot to the camera
+     * @return The robot relative position
+     */
+    private static Translation3d getRobotRelativeTranslation(double xOffset, double yOffset, double distance, Transform3d robotToCamera){
+        // Get the position relative to the camera
+        Translation3d translation = new Translation3d(distance, new Rotation3d(0, yOffset, -xOffset));
+        // Rotate and translate it to get the position relative to the robot
+        translation = translation.rotateBy(robotToCamera.getRotation());
+        return translation.plus(robotToCamera.getTranslation());
+    }
+
+    /**
+     * Gets the position of an object relative to the robot, assuming it is on the ground
+     * @param xOffset The x offset from the camera to the object in radians
+     * @param yOffset The y offset form the camera to the object in radians
+     * @param type What type of object it is
+     * @param robotToCamera The transformation form the robot to the camera
+     * @return The robot relative position
+     */
+    private static Translation3d getRobotRelativeGroundTranslation(double xOffset, double yOffset, ObjectType type, Transform3d robotToCamera){
         // Get the position relative to the camera
         Translation3d translation = new Translation3d(1, new Rotation3d(0, yOffset, -xOffset));
         // Rotate it to get the position relative to the rotated camera
         translation = translation.rotateBy(robotToCamera.getRotation());
         // Scale it so that the object will be on the ground (- because translation's z will be negative)
-        if(!isRobot()){
+        if(type != ObjectType.RED_ROBOT && type != ObjectType.BLUE_ROBOT){
             translation = translation.times(-robotToCamera.getZ()/translation.getZ());
         }else{
             // Assume all robots are ~3m from the camera
             translation = translation.times(3);
         }
         // Translate it to make it relative to the robot
-        translation = translation.plus(robotToCamera.getTranslation());
-        // If the drivetrain exists, rotate and translate it to be field relative
-        if(drive != null){
-            translation = translation.rotateBy(new Rotation3d(
-                0,
-                0,
-                drive.getYaw().getRadians()
-            ));
-            Translation2d drivePose = drive.getPose().getTranslation();
-            translation = translation.plus(new Translation3d(
-                drivePose.getX(),
-                drivePose.getY(),
-                0
-            ));
-        }
-        pose = new Pose3d(translation, new Rotation3d());
+        return translation.plus(robotToCamera.getTranslation());
     }
+
     /**
-     * Creates a new DetectedObject, assuming the object is on the ground
-     * @param xOffset The x offset from the camera to the object in radians
-     * @param yOffset The y offset form the camera to the object in radians
-     * @param type What type of object it is
-     * @param robotToCamera The transformation form the robot to the camera
+     * Rotates and translates a robot relative position to be field relative
+     * @param translation The robot relative position
+     * @param robotPose The pose of the robot, or null to leave the position robot relative
+     * @return The field relative position
      */
-    public DetectedObject(double xOffset, double yOffset, long type, Transform3d robotToCamera){
-        this(xOffset, yOffset, getType(type), robotToCamera);
+    static Translation3d toFieldRelative(Translation3d translation, Pose2d robotPose){
+        if(robotPose == null){
+            return translation;
+        }
+        translation = translation.rotateBy(new Rotation3d(0, 0, robotPose.getRotation().getRadians()));
+        return translation.plus(new Translation3d(robotPose.getX(), robotPose.getY(), 0));
     }
 
     /**
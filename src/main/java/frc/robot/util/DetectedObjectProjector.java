@@ -0,0 +1,129 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import frc.robot.util.DetectedObject.ObjectType;
+
+/**
+ * Projects every detection from one camera to field coordinates at once
+ * <p>
+ * This does the same math as the DetectedObject constructors, but stores the camera's rotation as a matrix
+ * and works on parallel arrays, so projecting a frame doesn't allocate any geometry objects.
+ */
+public class DetectedObjectProjector {
+    // The camera's rotation matrix, row by row
+    private final double r00, r01, r02;
+    private final double r10, r11, r12;
+    private final double r20, r21, r22;
+    // The camera's position relative to the robot
+    private final double tx, ty, tz;
+
+    /**
+     * Creates a projector for a camera
+     * @param robotToCamera The transformation from the robot to the camera
+     */
+    public DetectedObjectProjector(Transform3d robotToCamera){
+        // The columns of the rotation matrix are the rotated unit vectors
+        Translation3d column0 = new Translation3d(1, 0, 0).rotateBy(robotToCamera.getRotation());
+        Translation3d column1 = new Translation3d(0, 1, 0).rotateBy(robotToCamera.getRotation());
+        Translation3d column2 = new Translation3d(0, 0, 1).rotateBy(robotToCamera.getRotation());
+        r00 = column0.getX();
+        r10 = column0.getY();
+        r20 = column0.getZ();
+        r01 = column1.getX();
+        r11 = column1.getY();
+        r21 = column1.getZ();
+        r02 = column2.getX();
+        r12 = column2.getY();
+        r22 = column2.getZ();
+        tx = robotToCamera.getX();
+        ty = robotToCamera.getY();
+        tz = robotToCamera.getZ();
+    }
+
+    /**
+     * Projects detections with known distances
+     * @param xOffsets The x offsets from the camera to the objects in radians
+     * @param yOffsets The y offsets from the camera to the objects in radians
+     * @param distances The distances from the camera to the objects in meters
+     * @param count How many detections to project
+     * @param robotPose The pose of the robot when the frame was captured, or null for robot relative positions
+     * @param outX The array to write the x positions to
+     * @param outY The array to write the y positions to
+     * @param outZ The array to write the z positions to
+     */
+    public void project(double[] xOffsets, double[] yOffsets, double[] distances, int count, Pose2d robotPose,
+            double[] outX, double[] outY, double[] outZ){
+        for(int i = 0; i < count; i++){
+            double cosX = Math.cos(xOffsets[i]);
+            double sinX = Math.sin(xOffsets[i]);
+            double cosY = Math.cos(yOffsets[i]);
+            double sinY = Math.sin(yOffsets[i]);
+            // Position relative to the camera, same as new Translation3d(distance, new Rotation3d(0, yOffset, -xOffset))
+            double cx = distances[i]*cosX*cosY;
+            double cy = -distances[i]*sinX*cosY;
+            double cz = -distances[i]*sinY;
+            outX[i] = r00*cx + r01*cy + r02*cz + tx;
+            outY[i] = r10*cx + r11*cy + r12*cz + ty;
+            outZ[i] = r20*cx + r21*cy + r22*cz + tz;
+        }
+        toFieldRelative(count, robotPose, outX, outY);
+    }
+
+    /**
+     * Projects detections without distances, assuming notes are on the ground and robots are 3m away
+     * @param xOffsets The x offsets from the camera to the objects in radians
+     * @param yOffsets The y offsets from the camera to the objects in radians
+     * @param types The types of the objects, or null if they are all notes
+     * @param count How many detections to project
+     * @param robotPose The pose of the robot when the frame was captured, or null for robot relative positions
+     * @param outX The array to write the x positions to
+     * @param outY The array to write the y positions to
+     * @param outZ The array to write the z positions to
+     */
+    public void projectToGround(double[] xOffsets, double[] yOffsets, ObjectType[] types, int count, Pose2d robotPose,
+            double[] outX, double[] outY, double[] outZ){
+        for(int i = 0; i < count; i++){
+            double cosX = Math.cos(xOffsets[i]);
+            double sinX = Math.sin(xOffsets[i]);
+            double cosY = Math.cos(yOffsets[i]);
+            double sinY = Math.sin(yOffsets[i]);
+            double cx = cosX*cosY;
+            double cy = -sinX*cosY;
+            double cz = -sinY;
+            double rx = r00*cx + r01*cy + r02*cz;
+            double ry = r10*cx + r11*cy + r12*cz;
+            double rz = r20*cx + r21*cy + r22*cz;
+            boolean isRobot = types != null && (types[i] == ObjectType.RED_ROBOT || types[i] == ObjectType.BLUE_ROBOT);
+            // Scale it so that the object will be on the ground (- because rz will be negative)
+            double scale = isRobot ? 3 : -tz/rz;
+            outX[i] = rx*scale + tx;
+            outY[i] = ry*scale + ty;
+            outZ[i] = rz*scale + tz;
+        }
+        toFieldRelative(count, robotPose, outX, outY);
+    }
+
+    /**
+     * Rotates and translates robot relative positions to be field relative, in place
+     * @param count How many positions to move
+     * @param robotPose The pose of the robot, or null to leave them robot relative
+     * @param x The x positions
+     * @param y The y positions
+     */
+    private static void toFieldRelative(int count, Pose2d robotPose, double[] x, double[] y){
+        if(robotPose == null){
+            return;
+        }
+        double cos = robotPose.getRotation().getCos();
+        double sin = robotPose.getRotation().getSin();
+        double px = robotPose.getX();
+        double py = robotPose.getY();
+        for(int i = 0; i < count; i++){
+            double rx = x[i];
+            x[i] = cos*rx - sin*y[i] + px;
+            y[i] = sin*rx + cos*y[i] + py;
+        }
+    }
+}
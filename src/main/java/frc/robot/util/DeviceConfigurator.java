@@ -0,0 +1,65 @@
+package frc.robot.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import com.ctre.phoenix6.StatusCode;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * Configures devices in parallel so the robot is ready sooner after it turns on
+ * <p>
+ * Applying a Phoenix configuration blocks until the device responds. Applying one full configuration per
+ * device on a few threads is much faster than many small applies one after another. Each device's time is
+ * put on the SmartDashboard under Config/.
+ */
+public class DeviceConfigurator {
+    /** The most devices to configure at once, so the CAN bus isn't flooded */
+    public static final int THREADS = 4;
+
+    private static final ExecutorService executor = Executors.newFixedThreadPool(THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "DeviceConfigurator");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Configurations that haven't been waited for yet. Only used by the main thread.
+    private static final List<CompletableFuture<Void>> pending = new ArrayList<>();
+
+    /**
+     * Configures a device in the background
+     * @param name The name of the device for the dashboard and warnings
+     * @param configure Applies the configuration and returns the result
+     * @return A future that completes when the device is configured, even if it failed
+     */
+    public static CompletableFuture<Void> apply(String name, Supplier<StatusCode> configure) {
+        CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
+            double start = Timer.getFPGATimestamp();
+            StatusCode status = configure.get();
+            double milliseconds = (Timer.getFPGATimestamp() - start) * 1000;
+            SmartDashboard.putNumber("Config/" + name + " (ms)", milliseconds);
+            if (!status.isOK()) {
+                DriverStation.reportWarning("Failed to configure " + name + ": " + status.getDescription(), false);
+            }
+        }, executor);
+        pending.add(future);
+        return future;
+    }
+
+    /**
+     * Waits for every device to be configured
+     */
+    public static void waitForAll() {
+        double start = Timer.getFPGATimestamp();
+        CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).join();
+        SmartDashboard.putNumber("Config/Wait (ms)", (Timer.getFPGATimestamp() - start) * 1000);
+        pending.clear();
+    }
+}
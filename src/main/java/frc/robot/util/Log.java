@@ -39,8 +39,12 @@ public class Log<T> {
         this(name, value, Duration.ofMillis(20));
     }
 
+    /**
+     * Logs the supplier's value if at least the delay has passed since it was last logged. A delay of 0 logs every
+     * update.
+     */
     public void update() {
-        if (System.currentTimeMillis() - lastUpdate > delay.toMillis()) {
+        if (System.currentTimeMillis() - lastUpdate >= delay.toMillis()) {
             value = supplier.get();
             lastUpdate = System.currentTimeMillis();
             if (isInteger()) {
@@ -24,6 +24,14 @@ public class LogManager {
     logs.add(log);
   }
 
+  /**
+   * Stops updating a log
+   * @param log The log to remove
+   */
+  public static <T> void remove(Log<T> log) {
+    logs.remove(log);
+  }
+
   public static <T> void add(String name, T value) {
     add(name, ()->value);
   }
@@ -0,0 +1,194 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import frc.robot.constants.miscConstants.FieldConstants;
+import frc.robot.constants.miscConstants.VisionConstants;
+import frc.robot.util.DetectedObject.ObjectType;
+
+/**
+ * Remembers where notes were last seen on the field
+ * <p>
+ * The field is split into a uniform grid of square cells, and each cell remembers the last note seen in it.
+ * The confidence of a note decays exponentially with the time since it was last seen, so notes that were
+ * picked up or pushed away are eventually forgotten. This lets autos re-target notes that are out of view.
+ */
+public class NoteMap {
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+
+    // Stored as parallel arrays indexed by row*columns+column so the map doesn't allocate when updated
+    private final double[] noteX;
+    private final double[] noteY;
+    private final double[] lastSeen;
+    private final double[] confidence;
+
+    /**
+     * Creates a note map covering the whole field using the cell size from VisionConstants
+     */
+    public NoteMap(){
+        this(VisionConstants.NOTE_MAP_CELL_SIZE);
+    }
+
+    /**
+     * Creates a note map covering the whole field
+     * @param cellSize The side length of each cell in meters
+     */
+    public NoteMap(double cellSize){
+        this.cellSize = cellSize;
+        columns = (int)Math.ceil(FieldConstants.kFieldLength/cellSize);
+        rows = (int)Math.ceil(FieldConstants.kFieldWidth/cellSize);
+        noteX = new double[columns*rows];
+        noteY = new double[columns*rows];
+        lastSeen = new double[columns*rows];
+        confidence = new double[columns*rows];
+    }
+
+    /**
+     * Adds a detected object to the map if it is a note on the field
+     * @param object The object to add
+     * @param timestamp The time the object was seen in seconds
+     */
+    public void add(DetectedObject object, double timestamp){
+        if(object == null || !object.isGamePiece()){
+            return;
+        }
+        add(object.pose.getX(), object.pose.getY(), timestamp);
+    }
+
+    /**
+     * Records a note sighting
+     * @param x The field relative x position of the note in meters
+     * @param y The field relative y position of the note in meters
+     * @param timestamp The time the note was seen in seconds
+     */
+    public void add(double x, double y, double timestamp){
+        int index = getIndex(x, y);
+        if(index < 0){
+            return;
+        }
+        confidence[index] = Math.min(1, getConfidence(index, timestamp) + VisionConstants.NOTE_MAP_SIGHTING_CONFIDENCE);
+        noteX[index] = x;
+        noteY[index] = y;
+        lastSeen[index] = timestamp;
+    }
+
+    /**
+     * Forgets the note in the cell containing a position, for example after the robot intakes it
+     * @param x The field relative x position in meters
+     * @param y The field relative y position in meters
+     */
+    public void remove(double x, double y){
+        int index = getIndex(x, y);
+        if(index >= 0){
+            confidence[index] = 0;
+        }
+    }
+
+    /**
+     * Forgets every note
+     */
+    public void clear(){
+        for(int i = 0; i < confidence.length; i++){
+            confidence[i] = 0;
+        }
+    }
+
+    /**
+     * Gets the confidence that there is a note in the cell containing a position
+     * @param x The field relative x position in meters
+     * @param y The field relative y position in meters
+     * @param timestamp The current time in seconds
+     * @return The confidence from 0 to 1, or 0 if the position is off the field
+     */
+    public double getConfidence(double x, double y, double timestamp){
+        int index = getIndex(x, y);
+        return index < 0 ? 0 : getConfidence(index, timestamp);
+    }
+
+    /**
+     * Finds the closest remembered note within an angle of the front of the robot
+     * <p>
+     * Cells are searched in rings of increasing distance from the robot, and the search stops as soon as no
+     * unsearched cell can contain a closer note, so this only touches the cells between the robot and the note.
+     * @param robotPose The pose of the robot
+     * @param maxAngle The maximum angle from the front of the robot in radians
+     * @param timestamp The current time in seconds
+     * @return The closest note, or null if no note is remembered within the angle
+     */
+    public DetectedObject getClosestNote(Pose2d robotPose, double maxAngle, double timestamp){
+        double robotX = robotPose.getX();
+        double robotY = robotPose.getY();
+        double yaw = robotPose.getRotation().getRadians();
+        int robotColumn = MathUtil.clamp((int)Math.floor(robotX/cellSize), 0, columns-1);
+        int robotRow = MathUtil.clamp((int)Math.floor(robotY/cellSize), 0, rows-1);
+        int maxRing = Math.max(Math.max(robotColumn, columns-1-robotColumn), Math.max(robotRow, rows-1-robotRow));
+
+        int best = -1;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for(int ring = 0; ring <= maxRing; ring++){
+            // Every cell in this ring is at least (ring-1) cells away from any point in the robot's cell
+            if(bestDistance <= (ring-1)*cellSize){
+                break;
+            }
+            for(int column = robotColumn-ring; column <= robotColumn+ring; column++){
+                if(column < 0 || column >= columns){
+                    continue;
+                }
+                // Only the edges of the ring are new, so step over its inside
+                int step = column == robotColumn-ring || column == robotColumn+ring ? 1 : Math.max(2*ring, 1);
+                for(int row = robotRow-ring; row <= robotRow+ring; row += step){
+                    if(row < 0 || row >= rows){
+                        continue;
+                    }
+                    int index = row*columns+column;
+                    if(getConfidence(index, timestamp) < VisionConstants.NOTE_MAP_MIN_CONFIDENCE){
+                        continue;
+                    }
+                    double dx = noteX[index]-robotX;
+                    double dy = noteY[index]-robotY;
+                    double distance = Math.hypot(dx, dy);
+                    if(distance < bestDistance && Math.abs(MathUtil.angleModulus(Math.atan2(dy, dx)-yaw)) < maxAngle){
+                        bestDistance = distance;
+                        best = index;
+                    }
+                }
+            }
+        }
+        if(best < 0){
+            return null;
+        }
+        return new DetectedObject(new Pose3d(noteX[best], noteY[best], 0, new Rotation3d()), ObjectType.NOTE);
+    }
+
+    /**
+     * Gets the decayed confidence of a cell
+     * @param index The index of the cell
+     * @param timestamp The current time in seconds
+     * @return The confidence from 0 to 1
+     */
+    private double getConfidence(int index, double timestamp){
+        if(confidence[index] <= 0){
+            return 0;
+        }
+        return confidence[index]*Math.exp(-Math.max(0, timestamp-lastSeen[index])/VisionConstants.NOTE_MAP_TIME_CONSTANT);
+    }
+
+    /**
+     * Gets the index of the cell containing a position
+     * @param x The field relative x position in meters
+     * @param y The field relative y position in meters
+     * @return The index, or -1 if the position is off the field
+     */
+    private int getIndex(double x, double y){
+        int column = (int)Math.floor(x/cellSize);
+        int row = (int)Math.floor(y/cellSize);
+        if(column < 0 || column >= columns || row < 0 || row >= rows){
+            return -1;
+        }
+        return row*columns+column;
+    }
+}
@@ -0,0 +1,205 @@
+package frc.robot.util;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusCode;
+import com.ctre.phoenix6.StatusSignal;
+import com.ctre.phoenix6.hardware.Pigeon2;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.constants.Constants;
+import frc.robot.constants.swerve.DriveConstants;
+import frc.robot.subsystems.module.Module;
+
+/**
+ * Reads the drive encoders and gyro faster than the main loop
+ * <p>
+ * The thread waits for synchronized Phoenix 6 updates of every module's drive and steer position and the
+ * Pigeon's yaw, then writes a timestamped sample into a fixed size ring of primitive arrays, so reading at
+ * {@link DriveConstants#kOdometryFrequency} doesn't create garbage. The main loop drains the ring into the pose
+ * estimator, so odometry integrates at that rate instead of 50Hz. If the main loop falls behind, the oldest
+ * samples are overwritten.
+ */
+public class OdometryThread extends Thread {
+    // Enough samples for 5 loops, so a slow loop doesn't lose any
+    private static final int CAPACITY = (int) Math.ceil(5 * DriveConstants.kOdometryFrequency * Constants.LOOP_TIME);
+
+    /**
+     * One synchronized reading of the gyro and modules. poll(Sample) fills it in, so one can be reused every loop.
+     */
+    public static class Sample {
+        private double timestamp;
+        private Rotation2d yaw = new Rotation2d();
+        private final SwerveModulePosition[] positions;
+
+        /**
+         * Creates an empty sample
+         * @param moduleCount The number of swerve modules
+         */
+        public Sample(int moduleCount) {
+            positions = new SwerveModulePosition[moduleCount];
+            for (int i = 0; i < moduleCount; i++) {
+                positions[i] = new SwerveModulePosition();
+            }
+        }
+
+        /**
+         * @return The FPGA timestamp of the reading in seconds
+         */
+        public double timestamp() {
+            return timestamp;
+        }
+
+        /**
+         * @return The yaw of the gyro
+         */
+        public Rotation2d yaw() {
+            return yaw;
+        }
+
+        /**
+         * @return The positions of the modules, which are changed by the next poll
+         */
+        public SwerveModulePosition[] positions() {
+            return positions;
+        }
+    }
+
+    private final StatusSignal<Double>[] drivePositions;
+    private final StatusSignal<Double>[] steerPositions;
+    private final StatusSignal<Double> yaw;
+    // All of the above, for waiting on them together
+    private final BaseStatusSignal[] allSignals;
+
+    // The ring of samples. Only used while synchronized on this.
+    private final double[] timestamps = new double[CAPACITY];
+    // In degrees, as the Pigeon reports it
+    private final double[] yaws = new double[CAPACITY];
+    // In meters, indexed by sample then module
+    private final double[][] distances;
+    // In rotations, indexed by sample then module
+    private final double[][] angles;
+    // The index of the oldest sample
+    private int start = 0;
+    private int size = 0;
+    // Changed by clear(), so a sample read before it doesn't get added after it
+    private long generation = 0;
+
+    /**
+     * Creates a new odometry thread. Call start() to start it.
+     * @param modules The swerve modules
+     * @param pigeon The gyro
+     */
+    @SuppressWarnings("unchecked")
+    public OdometryThread(Module[] modules, Pigeon2 pigeon) {
+        super("OdometryThread");
+        setDaemon(true);
+
+        drivePositions = new StatusSignal[modules.length];
+        steerPositions = new StatusSignal[modules.length];
+        allSignals = new BaseStatusSignal[modules.length * 2 + 1];
+        distances = new double[CAPACITY][modules.length];
+        angles = new double[CAPACITY][modules.length];
+
+        // Clone the signals so refreshing them here doesn't change the ones the main loop reads
+        for (int i = 0; i < modules.length; i++) {
+            drivePositions[i] = modules[i].getDriveMotor().getPosition().clone();
+            steerPositions[i] = modules[i].getAngleMotor().getPosition().clone();
+            allSignals[i * 2] = drivePositions[i];
+            allSignals[i * 2 + 1] = steerPositions[i];
+        }
+        yaw = pigeon.getYaw().clone();
+        allSignals[allSignals.length - 1] = yaw;
+
+        // The signals are sent faster once the CAN bus manager applies the rates
+        for (int i = 0; i < modules.length; i++) {
+            CANBusManager.register("Odometry Drive " + i, modules[i].getDriveMotor(), DriveConstants.kOdometryFrequency,
+                drivePositions[i]);
+            CANBusManager.register("Odometry Angle " + i, modules[i].getAngleMotor(), DriveConstants.kOdometryFrequency,
+                steerPositions[i]);
+        }
+        CANBusManager.register("Pigeon", pigeon, DriveConstants.kOdometryFrequency, yaw);
+    }
+
+    @Override
+    public void run() {
+        // Wait up to 2 periods so 1 missed frame doesn't cause an error
+        double timeout = 2.0 / DriveConstants.kOdometryFrequency;
+        boolean failed = false;
+        while (!isInterrupted()) {
+            // Read before waiting, so a clear() while the signals are read drops this sample
+            long readGeneration;
+            synchronized (this) {
+                readGeneration = generation;
+            }
+            StatusCode status = BaseStatusSignal.waitForAll(timeout, allSignals);
+            if (!status.isOK()) {
+                // Only warn once until it works again so a disconnected device doesn't flood the console
+                if (!failed) {
+                    DriverStation.reportWarning("Odometry thread failed to read signals: " + status.getDescription(), false);
+                }
+                failed = true;
+                continue;
+            }
+            failed = false;
+            // The signals were all sent together, so timestamp the sample with when they were received
+            double timestamp = Timer.getFPGATimestamp() - yaw.getTimestamp().getLatency();
+            add(readGeneration, timestamp);
+        }
+    }
+
+    /**
+     * Writes the signals' values into the ring, replacing the oldest sample if it is full
+     * @param readGeneration The generation when the signals were read
+     * @param timestamp The FPGA timestamp of the reading in seconds
+     */
+    private synchronized void add(long readGeneration, double timestamp) {
+        if (readGeneration != generation) {
+            return;
+        }
+        if (size == CAPACITY) {
+            start = (start + 1) % CAPACITY;
+            size--;
+        }
+        int index = (start + size) % CAPACITY;
+        timestamps[index] = timestamp;
+        yaws[index] = yaw.getValueAsDouble();
+        for (int i = 0; i < drivePositions.length; i++) {
+            distances[index][i] = drivePositions[i].getValueAsDouble() / DriveConstants.kDriveGearRatio
+                * DriveConstants.kWheelCircumference;
+            angles[index][i] = steerPositions[i].getValueAsDouble() / Module.getSteerPositionRatio();
+        }
+        size++;
+    }
+
+    /**
+     * Removes the oldest sample
+     * @param sample The sample to copy it into
+     * @return If there was a sample, otherwise the sample isn't changed
+     */
+    public synchronized boolean poll(Sample sample) {
+        if (size == 0) {
+            return false;
+        }
+        sample.timestamp = timestamps[start];
+        sample.yaw = Rotation2d.fromDegrees(yaws[start]);
+        for (int i = 0; i < sample.positions.length; i++) {
+            sample.positions[i].distanceMeters = distances[start][i];
+            sample.positions[i].angle = Rotation2d.fromRotations(angles[start][i]);
+        }
+        start = (start + 1) % CAPACITY;
+        size--;
+        return true;
+    }
+
+    /**
+     * Removes all samples, including one being read, for example after the odometry is reset
+     */
+    public synchronized void clear() {
+        start = 0;
+        size = 0;
+        generation++;
+    }
+}
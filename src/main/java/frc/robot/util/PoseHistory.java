@@ -0,0 +1,196 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * A fixed size history of poses that can be sampled at any time
+ * <p>
+ * The poses are stored in a ring buffer of primitive arrays, so adding a pose doesn't allocate like
+ * TimeInterpolatableBuffer does. When the buffer is full, the oldest pose is replaced. Poses between samples
+ * are interpolated linearly, which is the same as Pose2d.interpolate() for the short time between samples.
+ */
+public class PoseHistory {
+    private final double[] timestamps;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] thetas;
+    // The index of the oldest sample
+    private int start = 0;
+    private int size = 0;
+
+    /**
+     * Creates an empty history
+     * @param capacity The most poses to store
+     */
+    public PoseHistory(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be at least 1, got " + capacity);
+        }
+        timestamps = new double[capacity];
+        xs = new double[capacity];
+        ys = new double[capacity];
+        thetas = new double[capacity];
+    }
+
+    /**
+     * Adds a pose
+     * @param timestamp The time of the pose in seconds
+     * @param pose The pose
+     */
+    public void add(double timestamp, Pose2d pose) {
+        add(timestamp, pose.getX(), pose.getY(), pose.getRotation().getRadians());
+    }
+
+    /**
+     * Adds a pose. Poses are usually added in order, but they are sorted if they aren't.
+     * A pose with the same timestamp as another replaces it.
+     * @param timestamp The time of the pose in seconds
+     * @param x The x coordinate in meters
+     * @param y The y coordinate in meters
+     * @param theta The angle in radians
+     */
+    public void add(double timestamp, double x, double y, double theta) {
+        // Find where the sample goes, searching from the newest since it's almost always the newest
+        int position = size;
+        while (position > 0 && timestamps[index(position - 1)] > timestamp) {
+            position--;
+        }
+        if (position > 0 && timestamps[index(position - 1)] == timestamp) {
+            set(position - 1, timestamp, x, y, theta);
+            return;
+        }
+
+        if (size == timestamps.length) {
+            if (position == 0) {
+                // Older than everything in a full history
+                return;
+            }
+            // Drop the oldest
+            start = index(1);
+            size--;
+            position--;
+        }
+        // Move the newer samples forward to make room
+        for (int i = size; i > position; i--) {
+            copy(i - 1, i);
+        }
+        size++;
+        set(position, timestamp, x, y, theta);
+    }
+
+    /**
+     * Removes every pose, for example after the pose is reset so nothing interpolates across the jump
+     */
+    public void clear() {
+        start = 0;
+        size = 0;
+    }
+
+    /**
+     * @return The number of poses stored
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return If no poses are stored
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return The timestamp of the oldest pose in seconds, or NaN if it is empty
+     */
+    public double getOldestTimestamp() {
+        return isEmpty() ? Double.NaN : timestamps[index(0)];
+    }
+
+    /**
+     * @return The timestamp of the newest pose in seconds, or NaN if it is empty
+     */
+    public double getLatestTimestamp() {
+        return isEmpty() ? Double.NaN : timestamps[index(size - 1)];
+    }
+
+    /**
+     * Gets the pose at a time
+     * @param timestamp The time in seconds
+     * @return The interpolated pose, the oldest or newest pose if the time is outside of the history, or null if
+     *     it is empty
+     */
+    public Pose2d getPoseAt(double timestamp) {
+        double[] pose = new double[3];
+        if (!getPoseAt(timestamp, pose)) {
+            return null;
+        }
+        return new Pose2d(pose[0], pose[1], new Rotation2d(pose[2]));
+    }
+
+    /**
+     * Gets the pose at a time without allocating
+     * @param timestamp The time in seconds
+     * @param output The array to put the x, y, and theta in. It must have a length of at least 3.
+     * @return If there was a pose. If the time is outside of the history, the oldest or newest pose is used.
+     */
+    public boolean getPoseAt(double timestamp, double[] output) {
+        if (isEmpty()) {
+            return false;
+        }
+        if (timestamp <= timestamps[index(0)]) {
+            get(0, output);
+            return true;
+        }
+        if (timestamp >= timestamps[index(size - 1)]) {
+            get(size - 1, output);
+            return true;
+        }
+
+        // Find the first sample after the time
+        int low = 1;
+        int high = size - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timestamps[index(middle)] <= timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        int before = index(low - 1);
+        int after = index(low);
+        double t = (timestamp - timestamps[before]) / (timestamps[after] - timestamps[before]);
+        output[0] = MathUtil.interpolate(xs[before], xs[after], t);
+        output[1] = MathUtil.interpolate(ys[before], ys[after], t);
+        output[2] = MathUtil.angleModulus(thetas[before] + MathUtil.angleModulus(thetas[after] - thetas[before]) * t);
+        return true;
+    }
+
+    private int index(int position) {
+        int i = start + position;
+        return i >= timestamps.length ? i - timestamps.length : i;
+    }
+
+    private void get(int position, double[] output) {
+        int i = index(position);
+        output[0] = xs[i];
+        output[1] = ys[i];
+        output[2] = thetas[i];
+    }
+
+    private void set(int position, double timestamp, double x, double y, double theta) {
+        int i = index(position);
+        timestamps[i] = timestamp;
+        xs[i] = x;
+        ys[i] = y;
+        thetas[i] = theta;
+    }
+
+    private void copy(int from, int to) {
+        int i = index(from);
+        set(to, timestamps[i], xs[i], ys[i], thetas[i]);
+    }
+}
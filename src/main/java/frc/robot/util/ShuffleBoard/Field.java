@@ -7,11 +7,13 @@ package frc.robot.util.ShuffleBoard;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
 import edu.wpi.first.wpilibj.smartdashboard.Field2d;
 import frc.robot.constants.miscConstants.FieldConstants;
 import frc.robot.constants.swerve.DriveConstants;
 import frc.robot.subsystems.Drivetrain;
+import frc.robot.util.SwerveStuff.DrivetrainState;
 
 /** Add your docs here. */
 public class Field {
@@ -29,21 +31,24 @@ public class Field {
     
     public void updateModulePositions(){
         
-        if (drive.getPose() != null){
-            chassisPose = drive.getPose();
+        DrivetrainState state = drive.getState();
+        if (state.pose() != null){
+            chassisPose = state.pose();
         }
+        // This is a copy, so only get it once
+        SwerveModuleState[] moduleStates = state.moduleStates();
 
         for (int i = 0; i<4; i++ ){
             Translation2d postion = DriveConstants.swerveModuleLocations[i].
             rotateBy(chassisPose.getRotation())
             .plus(chassisPose.getTranslation());
 
-            Rotation2d moduleRotation = drive.getModulePositions()[i].angle
+            Rotation2d moduleRotation = moduleStates[i].angle
             .plus(chassisPose.getRotation());
 
-            if (drive.getModules()[i].getState().speedMetersPerSecond<0){
+            if (moduleStates[i].speedMetersPerSecond<0){
                 moduleRotation = moduleRotation.plus(Rotation2d.fromDegrees(180));
-            }else if(drive.getModules()[i].getState().speedMetersPerSecond == 0 && modulePositions[i] != null){
+            }else if(moduleStates[i].speedMetersPerSecond == 0 && modulePositions[i] != null){
                 // Use previous rotation if it isn't moving
                 moduleRotation = modulePositions[i].getRotation();
             }
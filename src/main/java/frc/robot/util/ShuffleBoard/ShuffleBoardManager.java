@@ -5,6 +5,8 @@
 package frc.robot.util.ShuffleBoard;
 
 import java.util.ArrayList;
+import java.util.Set;
+
 import edu.wpi.first.wpilibj2.command.Command;
 import frc.robot.subsystems.Drivetrain;
 import frc.robot.subsystems.gpm.Arm;
@@ -52,6 +54,21 @@ public class ShuffleBoardManager {
     }
 
     public Command getSelectedCommand(){
-        return autoTab.getChooser().getSelected();
+        return autoTab.getSelected();
+    }
+
+    /**
+     * Selects the autonomous by its name in the Auto tab instead of from the dashboard
+     * @param name The name of the autonomous
+     */
+    public void setSelectedCommand(String name){
+        autoTab.select(name);
+    }
+
+    /**
+     * @return The names of the autonomous options
+     */
+    public Set<String> getAutoNames(){
+        return autoTab.getOptionNames();
     }
 }
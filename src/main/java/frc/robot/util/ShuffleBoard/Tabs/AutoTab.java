@@ -4,6 +4,10 @@
 
 package frc.robot.util.ShuffleBoard.Tabs;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
 import com.choreo.lib.Choreo;
 import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
 import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
@@ -31,6 +35,10 @@ public class AutoTab extends ShuffleBoardTabs {
     private static final double SHOOTER_SPINUP_TIME = 1.0;
 
     private final SendableChooser<Command> autoCommand = new SendableChooser<>();
+    // The same options as the chooser, so they can be found by name
+    private final Map<String, Command> options = new LinkedHashMap<>();
+    // Overrides the chooser when set, see select(String)
+    private Command selected = null;
 
     private Drivetrain drive;
     private Shooter shooter;
@@ -48,14 +56,14 @@ public class AutoTab extends ShuffleBoardTabs {
     
     public void createEntries(){  
         tab = Shuffleboard.getTab("Auto");
-        autoCommand.setDefaultOption("Do nothing", new DoNothing());
-        autoCommand.addOption("5 piece (original-tested)", new FollowPathCommand("5 piece (original-tested)",true, drive));
-        autoCommand.addOption("5.5 piece (original-tested)", new FollowPathCommand("5.5 piece (original-tested)",true, drive));
-        autoCommand.addOption("3 piece [v3]", new FollowPathCommand("3 piece [v3]",true, drive));
-        autoCommand.addOption("6 piece (new)", new FollowPathCommand("6 piece (new)",true, drive));
-        autoCommand.addOption("5 piece (original-tested) [V2]", new FollowPathCommand("5 piece (original-tested) [V2]",true, drive));
-        autoCommand.addOption("3.5 piece [V2]", new FollowPathCommand("3.5 piece [V2]",true, drive));
-        autoCommand.addOption("1 piece", new SequentialCommandGroup(prepare(),new WaitCommand(3),index(),new WaitCommand(2),new PrepareShooter(shooter, 0)));
+        setDefaultOption("Do nothing", new DoNothing());
+        addOption("5 piece (original-tested)", new FollowPathCommand("5 piece (original-tested)",true, drive));
+        addOption("5.5 piece (original-tested)", new FollowPathCommand("5.5 piece (original-tested)",true, drive));
+        addOption("3 piece [v3]", new FollowPathCommand("3 piece [v3]",true, drive));
+        addOption("6 piece (new)", new FollowPathCommand("6 piece (new)",true, drive));
+        addOption("5 piece (original-tested) [V2]", new FollowPathCommand("5 piece (original-tested) [V2]",true, drive));
+        addOption("3.5 piece [V2]", new FollowPathCommand("3.5 piece [V2]",true, drive));
+        addOption("1 piece", new SequentialCommandGroup(prepare(),new WaitCommand(3),index(),new WaitCommand(2),new PrepareShooter(shooter, 0)));
        
 //         autoCommand.addOption("Choreo Center 6",
 //                 new SequentialCommandGroup(
@@ -69,7 +77,7 @@ public class AutoTab extends ShuffleBoardTabs {
 //                         intakeAndSubwooferShot("Center 6.5")
 //                 ));
 
-        autoCommand.addOption("Choreo Source 3", new SequentialCommandGroup(
+        addOption("Choreo Source 3", new SequentialCommandGroup(
                 prepare(),
                 index(),
 
@@ -188,6 +196,47 @@ public class AutoTab extends ShuffleBoardTabs {
         return autoCommand;
     }
 
+    /**
+     * Gets the selected autonomous, from the dashboard unless one was selected with {@link #select(String)}
+     * @return The command for the autonomous
+     */
+    public Command getSelected(){
+        if (selected != null){
+            return selected;
+        }
+        return autoCommand.getSelected();
+    }
+
+    /**
+     * Selects an autonomous by its name in the chooser, for when there is no dashboard like in a headless simulation
+     * @param name The name of the option
+     * @throws IllegalArgumentException if there is no option with that name
+     */
+    public void select(String name){
+        Command command = options.get(name);
+        if (command == null){
+            throw new IllegalArgumentException("No autonomous named \"" + name + "\", the options are " + options.keySet());
+        }
+        selected = command;
+    }
+
+    /**
+     * @return The names of the autonomous options in the order they were added
+     */
+    public Set<String> getOptionNames(){
+        return options.keySet();
+    }
+
+    private void setDefaultOption(String name, Command command){
+        autoCommand.setDefaultOption(name, command);
+        options.put(name, command);
+    }
+
+    private void addOption(String name, Command command){
+        autoCommand.addOption(name, command);
+        options.put(name, command);
+    }
+
     private ParallelCommandGroup intakeAndSubwooferShot(String pathName) {
         return new ParallelCommandGroup(
                 new IntakeNote(intake, indexer, arm, (ignored) -> {})
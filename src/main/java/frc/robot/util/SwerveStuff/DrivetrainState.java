@@ -0,0 +1,96 @@
+package frc.robot.util.SwerveStuff;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+
+/**
+ * The state of the drivetrain at the start of a loop
+ * <p>
+ * The drivetrain publishes one of these each loop so every command, log, and dashboard sees the same values
+ * and the kinematics only run once. ChassisSpeeds and SwerveModuleState can be changed, so the speeds are stored
+ * as doubles and the module states are copied in and out. Read the doubles in code that runs every loop, since
+ * the other accessors create new objects.
+ *
+ * @param timestamp The FPGA timestamp the state was published at in seconds
+ * @param pose The estimated pose of the robot
+ * @param yaw The yaw of the robot, the same as the pose's rotation
+ * @param robotRelativeVx The measured forward speed of the robot in m/s
+ * @param robotRelativeVy The measured left speed of the robot in m/s
+ * @param omega The measured counterclockwise angular velocity of the robot in rad/s
+ * @param fieldRelativeVx The measured speed of the robot along the field's x axis in m/s
+ * @param fieldRelativeVy The measured speed of the robot along the field's y axis in m/s
+ * @param moduleStates The measured states of the modules
+ */
+public record DrivetrainState(
+    double timestamp,
+    Pose2d pose,
+    Rotation2d yaw,
+    double robotRelativeVx,
+    double robotRelativeVy,
+    double omega,
+    double fieldRelativeVx,
+    double fieldRelativeVy,
+    SwerveModuleState[] moduleStates
+) {
+    public DrivetrainState {
+        moduleStates = copy(moduleStates);
+    }
+
+    /**
+     * Creates a state, rotating the robot relative speeds by the pose's rotation to get the field relative speeds
+     * @param timestamp The FPGA timestamp the state was published at in seconds
+     * @param pose The estimated pose of the robot
+     * @param robotRelativeSpeeds The measured speeds of the robot relative to itself
+     * @param moduleStates The measured states of the modules
+     */
+    public DrivetrainState(double timestamp, Pose2d pose, ChassisSpeeds robotRelativeSpeeds, SwerveModuleState[] moduleStates) {
+        this(
+            timestamp,
+            pose,
+            pose.getRotation(),
+            robotRelativeSpeeds.vxMetersPerSecond,
+            robotRelativeSpeeds.vyMetersPerSecond,
+            robotRelativeSpeeds.omegaRadiansPerSecond,
+            robotRelativeSpeeds.vxMetersPerSecond * pose.getRotation().getCos()
+                - robotRelativeSpeeds.vyMetersPerSecond * pose.getRotation().getSin(),
+            robotRelativeSpeeds.vxMetersPerSecond * pose.getRotation().getSin()
+                + robotRelativeSpeeds.vyMetersPerSecond * pose.getRotation().getCos(),
+            moduleStates
+        );
+    }
+
+    /**
+     * @return A new ChassisSpeeds with the measured speeds of the robot relative to itself
+     */
+    public ChassisSpeeds robotRelativeSpeeds() {
+        return new ChassisSpeeds(robotRelativeVx, robotRelativeVy, omega);
+    }
+
+    /**
+     * @return A new ChassisSpeeds with the measured speeds of the robot relative to the field
+     */
+    public ChassisSpeeds fieldRelativeSpeeds() {
+        return new ChassisSpeeds(fieldRelativeVx, fieldRelativeVy, omega);
+    }
+
+    /**
+     * @return A copy of the measured states of the modules
+     */
+    @Override
+    public SwerveModuleState[] moduleStates() {
+        return copy(moduleStates);
+    }
+
+    /**
+     * Copies module states so neither copy changes the other
+     */
+    private static SwerveModuleState[] copy(SwerveModuleState[] states) {
+        SwerveModuleState[] copy = new SwerveModuleState[states.length];
+        for (int i = 0; i < states.length; i++) {
+            copy[i] = new SwerveModuleState(states[i].speedMetersPerSecond, states[i].angle);
+        }
+        return copy;
+    }
+}
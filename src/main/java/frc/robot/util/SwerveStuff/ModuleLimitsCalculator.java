@@ -0,0 +1,121 @@
+package frc.robot.util.SwerveStuff;
+
+import edu.wpi.first.math.system.plant.DCMotor;
+import frc.robot.constants.Constants;
+import frc.robot.constants.swerve.DriveConstants;
+
+/**
+ * Calculates the {@link ModuleLimits} for the setpoint generator from the drive characterization
+ * <p>
+ * The drive motor's kS, kV, and kA are in volts per rotor rotation per second (and per second squared), the same
+ * units as the module feedforward and SysId. The max acceleration is the lowest of what the battery voltage, the
+ * current limit, and the wheels' traction allow. The battery voltage changes, so call
+ * {@link #calculate(double)} once per loop.
+ */
+public class ModuleLimitsCalculator {
+
+    private final double kS;
+    private final double kV;
+    private final double kA;
+    private final DCMotor driveMotor;
+    private final DCMotor steerMotor;
+    // The last result, so the limits are only recreated when they change
+    private double lastVoltage = Double.NaN;
+    private ModuleLimits lastLimits;
+
+    /**
+     * Creates a calculator using the weakest module's characterization from {@link DriveConstants}
+     * <p>
+     * These are the SysId gains, so update them there after characterizing the drive.
+     */
+    public ModuleLimitsCalculator() {
+        this(max(DriveConstants.DRIVE_KS_Values), max(DriveConstants.DRIVE_KV_Values), max(DriveConstants.DRIVE_KA_Values));
+    }
+
+    /**
+     * Creates a calculator using the drive motor's feedforward gains
+     * @param kS The static gain in volts
+     * @param kV The velocity gain in volts per rotor rotation per second
+     * @param kA The acceleration gain in volts per rotor rotation per second squared
+     */
+    public ModuleLimitsCalculator(double kS, double kV, double kA) {
+        this.kS = kS;
+        this.kV = kV;
+        this.kA = kA;
+        // The drive motors use FOC
+        driveMotor = DCMotor.getFalcon500Foc(1);
+        steerMotor = DCMotor.getFalcon500(1);
+    }
+
+    /**
+     * Calculates the limits at a battery voltage
+     * @param batteryVoltage The battery voltage
+     * @return The limits. This is the same object as last time if the voltage didn't change by more than 0.1V.
+     */
+    public ModuleLimits calculate(double batteryVoltage) {
+        // Round to 0.1V so noise in the voltage doesn't create new limits every loop
+        batteryVoltage = Math.round(batteryVoltage * 10) / 10.0;
+        if (batteryVoltage == lastVoltage) {
+            return lastLimits;
+        }
+        lastVoltage = batteryVoltage;
+        lastLimits = new ModuleLimits(
+            getMaxDriveVelocity(batteryVoltage),
+            getMaxDriveAcceleration(batteryVoltage),
+            getMaxSteeringVelocity(batteryVoltage)
+        );
+        return lastLimits;
+    }
+
+    /**
+     * Gets how fast the wheels can drive
+     * @param batteryVoltage The battery voltage
+     * @return The max speed in m/s, at most {@link DriveConstants#kMaxSpeed}
+     */
+    public double getMaxDriveVelocity(double batteryVoltage) {
+        double rotorVelocity = Math.max(0, batteryVoltage - kS) / kV;
+        return Math.min(DriveConstants.kMaxSpeed, rotorVelocity * getMetersPerRotorRotation());
+    }
+
+    /**
+     * Gets how fast the wheels can accelerate from a stop
+     * @param batteryVoltage The battery voltage
+     * @return The max acceleration in m/s^2
+     */
+    public double getMaxDriveAcceleration(double batteryVoltage) {
+        double voltageLimited = Math.max(0, batteryVoltage - kS) / kA * getMetersPerRotorRotation();
+
+        // The supply current limit is used as the stator current limit. Stator current is higher than supply current
+        // at low speeds, so this is conservative.
+        double motorTorque = driveMotor.KtNMPerAmp * DriveConstants.kDriveContinuousCurrentLimit;
+        double wheelForce = motorTorque * DriveConstants.kDriveGearRatio / DriveConstants.kWheelRadius;
+        double moduleMass = DriveConstants.kRobotMass / DriveConstants.swerveModuleLocations.length;
+        double currentLimited = wheelForce / moduleMass;
+
+        double tractionLimited = DriveConstants.kWheelCOF * Constants.GRAVITY_ACCELERATION;
+
+        return Math.min(voltageLimited, Math.min(currentLimited, tractionLimited));
+    }
+
+    /**
+     * Gets how fast the modules can turn
+     * @param batteryVoltage The battery voltage
+     * @return The max steering velocity in rad/s
+     */
+    public double getMaxSteeringVelocity(double batteryVoltage) {
+        return steerMotor.freeSpeedRadPerSec * Math.max(0, batteryVoltage) / steerMotor.nominalVoltageVolts
+            / DriveConstants.kModuleConstants.angleGearRatio;
+    }
+
+    private static double getMetersPerRotorRotation() {
+        return DriveConstants.kWheelCircumference / DriveConstants.kDriveGearRatio;
+    }
+
+    private static double max(double[] values) {
+        double max = values[0];
+        for (double value : values) {
+            max = Math.max(max, value);
+        }
+        return max;
+    }
+}
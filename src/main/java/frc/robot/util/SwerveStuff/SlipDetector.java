@@ -0,0 +1,247 @@
+package frc.robot.util.SwerveStuff;
+
+import java.util.Arrays;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+
+/**
+ * Finds swerve modules that are slipping and collisions that the wheels can't measure
+ * <p>
+ * If the robot is rigid and no wheel slips, every module moves the same once the rotation measured by the gyro
+ * is taken out. Each odometry sample, the module that disagrees the most with the average of the others is dropped
+ * if it disagrees by more than the slip threshold, until only 2 modules are left. Modules that disagree by more than
+ * half the threshold are trusted less. The weights are meant for
+ * {@link SwervePoseEstimator#updateWithTime(double, edu.wpi.first.math.geometry.Rotation2d, SwerveModulePosition[], double[])}.
+ * <p>
+ * When every wheel slips together, like when the robot is pushed sideways, the modules still agree with each other.
+ * Once per loop, the acceleration the wheels measured is compared with the accelerometer, and if they differ by
+ * more than the collision threshold the robot is colliding. Nothing can correct the odometry then, so it is only
+ * reported.
+ */
+public class SlipDetector {
+    private final int numModules;
+    private final double[] moduleXs;
+    private final double[] moduleYs;
+    private final double slipThreshold;
+    private final double collisionThreshold;
+    private final double collisionHoldTime;
+
+    // The module positions and gyro angle from the last sample
+    private final double[] previousDistances;
+    private double previousGyro;
+    private double previousTimestamp = Double.NaN;
+
+    // How far each module moved last sample without the rotation, in meters
+    private final double[] translationXs;
+    private final double[] translationYs;
+    private final double[] weights;
+    private final boolean[] slipping;
+
+    // The robot relative movement and time since the last acceleration update
+    private double loopX;
+    private double loopY;
+    private double loopRotation;
+    private double loopTime;
+    // The robot relative velocity the wheels measured last loop, NaN before the first loop
+    private double previousVelocityX = Double.NaN;
+    private double previousVelocityY;
+    private double lastCollisionTime = Double.NEGATIVE_INFINITY;
+    private double lastAccelerationTimestamp = Double.NaN;
+    private boolean colliding;
+
+    /**
+     * Creates a new slip detector
+     * @param moduleLocations Where each module is relative to the center of the robot
+     * @param slipThreshold How much faster or slower than the others a module can move before it is slipping,
+     *     in m/s
+     * @param collisionThreshold How much the accelerometer can differ from the wheels before the robot is colliding,
+     *     in m/s^2
+     * @param collisionHoldTime How long the robot is still colliding after the accelerometer agrees again, in seconds
+     */
+    public SlipDetector(
+        Translation2d[] moduleLocations, double slipThreshold, double collisionThreshold, double collisionHoldTime
+    ) {
+        numModules = moduleLocations.length;
+        moduleXs = new double[numModules];
+        moduleYs = new double[numModules];
+        for (int i = 0; i < numModules; i++) {
+            moduleXs[i] = moduleLocations[i].getX();
+            moduleYs[i] = moduleLocations[i].getY();
+        }
+        this.slipThreshold = slipThreshold;
+        this.collisionThreshold = collisionThreshold;
+        this.collisionHoldTime = collisionHoldTime;
+        previousDistances = new double[numModules];
+        translationXs = new double[numModules];
+        translationYs = new double[numModules];
+        weights = new double[numModules];
+        slipping = new boolean[numModules];
+        Arrays.fill(weights, 1);
+    }
+
+    /**
+     * Checks an odometry sample for slipping modules
+     * @param timestamp The time of the sample in seconds
+     * @param gyroRadians The gyro angle in radians
+     * @param modulePositions The module positions
+     * @return How much to trust each module, from 0 to 1. This array is reused, so don't keep it.
+     */
+    public double[] update(double timestamp, double gyroRadians, SwerveModulePosition[] modulePositions) {
+        double dt = timestamp - previousTimestamp;
+        double dtheta = MathUtil.angleModulus(gyroRadians - previousGyro);
+        for (int i = 0; i < numModules; i++) {
+            double distance = modulePositions[i].distanceMeters - previousDistances[i];
+            translationXs[i] = distance * modulePositions[i].angle.getCos() + dtheta * moduleYs[i];
+            translationYs[i] = distance * modulePositions[i].angle.getSin() - dtheta * moduleXs[i];
+            previousDistances[i] = modulePositions[i].distanceMeters;
+            slipping[i] = false;
+            weights[i] = 1;
+        }
+        previousGyro = gyroRadians;
+        previousTimestamp = timestamp;
+        // The first sample and repeated samples have nothing to compare
+        if (!(dt > 0)) {
+            return weights;
+        }
+
+        // Drop the module furthest from the others while it is further than the threshold
+        double maxDistance = slipThreshold * dt;
+        int remaining = numModules;
+        while (remaining > 2) {
+            int worst = -1;
+            double worstDistance = maxDistance;
+            for (int i = 0; i < numModules; i++) {
+                double distance = getDistanceFromAverage(i);
+                if (!slipping[i] && distance > worstDistance) {
+                    worst = i;
+                    worstDistance = distance;
+                }
+            }
+            if (worst == -1) {
+                break;
+            }
+            slipping[worst] = true;
+            weights[worst] = 0;
+            remaining--;
+        }
+
+        // Trust the modules that are left less the further they are from the others
+        double totalWeight = 0;
+        for (int i = 0; i < numModules; i++) {
+            if (!slipping[i]) {
+                double distance = getDistanceFromAverage(i);
+                weights[i] = MathUtil.clamp(2 - 2 * distance / maxDistance, 0, 1);
+                totalWeight += weights[i];
+            }
+        }
+        // If the modules left disagree too much to trust any of them, trust them equally
+        if (totalWeight == 0) {
+            for (int i = 0; i < numModules; i++) {
+                weights[i] = slipping[i] ? 0 : 1;
+            }
+        }
+
+        // Add up how the robot moved for the acceleration check
+        double averageX = 0;
+        double averageY = 0;
+        double weightSum = 0;
+        for (int i = 0; i < numModules; i++) {
+            averageX += weights[i] * translationXs[i];
+            averageY += weights[i] * translationYs[i];
+            weightSum += weights[i];
+        }
+        loopX += averageX / weightSum;
+        loopY += averageY / weightSum;
+        loopRotation += dtheta;
+        loopTime += dt;
+        return weights;
+    }
+
+    /**
+     * Checks the accelerometer for collisions. Call this once per loop after the samples for the loop.
+     * @param timestamp The current time in seconds
+     * @param accelerationX The robot relative forward acceleration measured by the accelerometer in m/s^2
+     * @param accelerationY The robot relative leftward acceleration measured by the accelerometer in m/s^2
+     */
+    public void updateAcceleration(double timestamp, double accelerationX, double accelerationY) {
+        double dt = timestamp - lastAccelerationTimestamp;
+        lastAccelerationTimestamp = timestamp;
+        if (loopTime > 0) {
+            double velocityX = loopX / loopTime;
+            double velocityY = loopY / loopTime;
+            double omega = loopRotation / loopTime;
+            if (!Double.isNaN(previousVelocityX) && dt > 0) {
+                // In the robot's frame, turning while moving accelerates the robot toward the center of the turn
+                double wheelAccelerationX = (velocityX - previousVelocityX) / dt - omega * velocityY;
+                double wheelAccelerationY = (velocityY - previousVelocityY) / dt + omega * velocityX;
+                double difference = Math.hypot(accelerationX - wheelAccelerationX, accelerationY - wheelAccelerationY);
+                if (difference > collisionThreshold) {
+                    lastCollisionTime = timestamp;
+                }
+            }
+            previousVelocityX = velocityX;
+            previousVelocityY = velocityY;
+        }
+        colliding = timestamp - lastCollisionTime <= collisionHoldTime;
+        loopX = 0;
+        loopY = 0;
+        loopRotation = 0;
+        loopTime = 0;
+    }
+
+    /**
+     * Forgets the last sample, for when the odometry is reset or samples were skipped
+     */
+    public void reset() {
+        previousTimestamp = Double.NaN;
+        previousVelocityX = Double.NaN;
+        loopX = 0;
+        loopY = 0;
+        loopRotation = 0;
+        loopTime = 0;
+    }
+
+    /**
+     * @param module The index of the module
+     * @return If the module was dropped from the last sample
+     */
+    public boolean isSlipping(int module) {
+        return slipping[module];
+    }
+
+    /**
+     * @return The number of modules dropped from the last sample
+     */
+    public int getSlippingCount() {
+        int count = 0;
+        for (boolean isSlipping : slipping) {
+            if (isSlipping) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return If the accelerometer recently measured an acceleration the wheels didn't
+     */
+    public boolean isColliding() {
+        return colliding;
+    }
+
+    private double getDistanceFromAverage(int module) {
+        double averageX = 0;
+        double averageY = 0;
+        int count = 0;
+        for (int i = 0; i < numModules; i++) {
+            if (i != module && !slipping[i]) {
+                averageX += translationXs[i];
+                averageY += translationYs[i];
+                count++;
+            }
+        }
+        return Math.hypot(translationXs[module] - averageX / count, translationYs[module] - averageY / count);
+    }
+}
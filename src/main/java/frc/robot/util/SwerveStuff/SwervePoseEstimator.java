@@ -0,0 +1,422 @@
+package frc.robot.util.SwerveStuff;
+
+import org.ejml.simple.SimpleMatrix;
+
+import edu.wpi.first.math.MathSharedStore;
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import frc.robot.util.PoseHistory;
+
+/**
+ * Fuses swerve odometry with vision, like WPILib's SwerveDrivePoseEstimator, without replaying odometry
+ * <p>
+ * The odometry is the same as SwerveDriveOdometry. The estimate is the odometry pose moved by a correction, a
+ * rotation about the origin and then a translation. Odometry poses are kept in a {@link PoseHistory}, so a
+ * vision measurement from the past is compared to the estimate at its timestamp and the correction is changed
+ * so the estimate at that time moves toward it. Because the odometry since then is carried along by the same
+ * correction, this gives the same result as SwerveDrivePoseEstimator replaying it, in constant time.
+ * <p>
+ * The gains are the same as SwerveDrivePoseEstimator's, but the correction is applied linearly in the
+ * estimate's frame instead of with Twist2d, which only differs when the correction turns a lot at once.
+ * Updates and primitive vision measurements don't allocate.
+ */
+public class SwervePoseEstimator {
+    /** The default number of odometry poses to keep, 2 seconds at 250Hz */
+    public static final int DEFAULT_HISTORY_CAPACITY = 500;
+
+    private final int numModules;
+    // The forward kinematics matrix, rows of vx, vy, and omega for each module's x and y
+    private final double[] forwardKinematics;
+    // Where each module is on the robot, for updates that weight the modules
+    private final double[] moduleXs;
+    private final double[] moduleYs;
+    private final double[] previousDistances;
+
+    // The squared state standard deviations
+    private final double[] q = new double[3];
+    // The gains for vision measurements with the default standard deviations
+    private final double[] defaultVisionK = new double[3];
+
+    // The odometry pose
+    private double odometryX;
+    private double odometryY;
+    private double odometryTheta;
+    // The gyro angle that is an odometry angle of 0
+    private double gyroOffset;
+    // Where the odometry was at each time
+    private final PoseHistory odometryHistory;
+
+    // The correction from the odometry pose to the estimate
+    private double correctionTheta;
+    private double correctionCos = 1;
+    private double correctionSin;
+    private double correctionX;
+    private double correctionY;
+
+    // The last estimate, made when it's requested after a change
+    private Pose2d estimate;
+
+    // Reused by addVisionMeasurement()
+    private final double[] odometrySample = new double[3];
+
+    /**
+     * Creates a new pose estimator with the default history capacity
+     * @param kinematics The kinematics of the drivetrain
+     * @param gyroAngle The current gyro angle
+     * @param modulePositions The current module positions
+     * @param initialPose The starting pose
+     * @param stateStdDevs How much to trust the odometry, in meters, meters, and radians
+     * @param visionMeasurementStdDevs How much to trust vision, in meters, meters, and radians
+     */
+    public SwervePoseEstimator(
+        SwerveDriveKinematics kinematics,
+        Rotation2d gyroAngle,
+        SwerveModulePosition[] modulePositions,
+        Pose2d initialPose,
+        Matrix<N3, N1> stateStdDevs,
+        Matrix<N3, N1> visionMeasurementStdDevs
+    ) {
+        this(kinematics, gyroAngle, modulePositions, initialPose, stateStdDevs, visionMeasurementStdDevs,
+            DEFAULT_HISTORY_CAPACITY);
+    }
+
+    /**
+     * Creates a new pose estimator
+     * @param kinematics The kinematics of the drivetrain
+     * @param gyroAngle The current gyro angle
+     * @param modulePositions The current module positions
+     * @param initialPose The starting pose
+     * @param stateStdDevs How much to trust the odometry, in meters, meters, and radians
+     * @param visionMeasurementStdDevs How much to trust vision, in meters, meters, and radians
+     * @param historyCapacity The number of odometry updates to keep. Vision measurements older than this are
+     *     ignored.
+     */
+    public SwervePoseEstimator(
+        SwerveDriveKinematics kinematics,
+        Rotation2d gyroAngle,
+        SwerveModulePosition[] modulePositions,
+        Pose2d initialPose,
+        Matrix<N3, N1> stateStdDevs,
+        Matrix<N3, N1> visionMeasurementStdDevs,
+        int historyCapacity
+    ) {
+        numModules = modulePositions.length;
+        forwardKinematics = new double[3 * 2 * numModules];
+        previousDistances = new double[numModules];
+        odometryHistory = new PoseHistory(historyCapacity);
+
+        // Find the forward kinematics matrix by passing each unit vector through it
+        SwerveModuleState[] states = new SwerveModuleState[numModules];
+        for (int i = 0; i < numModules; i++) {
+            states[i] = new SwerveModuleState();
+        }
+        for (int column = 0; column < 2 * numModules; column++) {
+            states[column / 2].speedMetersPerSecond = 1;
+            states[column / 2].angle = column % 2 == 0 ? new Rotation2d(1, 0) : new Rotation2d(0, 1);
+            ChassisSpeeds speeds = kinematics.toChassisSpeeds(states);
+            forwardKinematics[column] = speeds.vxMetersPerSecond;
+            forwardKinematics[2 * numModules + column] = speeds.vyMetersPerSecond;
+            forwardKinematics[4 * numModules + column] = speeds.omegaRadiansPerSecond;
+            states[column / 2].speedMetersPerSecond = 0;
+        }
+        // The inverse kinematics matrix has rows of [1, 0, -y] and [0, 1, x] for each module
+        SimpleMatrix inverseKinematics = new SimpleMatrix(3, 2 * numModules, true, forwardKinematics).pseudoInverse();
+        moduleXs = new double[numModules];
+        moduleYs = new double[numModules];
+        for (int i = 0; i < numModules; i++) {
+            moduleXs[i] = inverseKinematics.get(2 * i + 1, 2);
+            moduleYs[i] = -inverseKinematics.get(2 * i, 2);
+        }
+
+        for (int i = 0; i < 3; i++) {
+            q[i] = stateStdDevs.get(i, 0) * stateStdDevs.get(i, 0);
+        }
+        setVisionMeasurementStdDevs(visionMeasurementStdDevs);
+        resetPosition(gyroAngle, modulePositions, initialPose);
+    }
+
+    /**
+     * Sets the default vision standard deviations, used when a measurement doesn't have its own
+     * @param visionMeasurementStdDevs How much to trust vision, in meters, meters, and radians
+     */
+    public void setVisionMeasurementStdDevs(Matrix<N3, N1> visionMeasurementStdDevs) {
+        for (int i = 0; i < 3; i++) {
+            defaultVisionK[i] = getGain(i, visionMeasurementStdDevs.get(i, 0));
+        }
+    }
+
+    /**
+     * Resets the estimate and odometry to a pose. The history is cleared so old vision measurements aren't used.
+     * @param gyroAngle The current gyro angle
+     * @param modulePositions The current module positions
+     * @param pose The pose to reset to
+     */
+    public void resetPosition(Rotation2d gyroAngle, SwerveModulePosition[] modulePositions, Pose2d pose) {
+        checkModuleCount(modulePositions);
+        odometryX = pose.getX();
+        odometryY = pose.getY();
+        odometryTheta = pose.getRotation().getRadians();
+        gyroOffset = odometryTheta - gyroAngle.getRadians();
+        for (int i = 0; i < numModules; i++) {
+            previousDistances[i] = modulePositions[i].distanceMeters;
+        }
+        setCorrection(0, 0, 0);
+        odometryHistory.clear();
+        estimate = pose;
+    }
+
+    /**
+     * Gets the estimated pose
+     * @return The pose. This is the same object until the estimate changes.
+     */
+    public Pose2d getEstimatedPosition() {
+        if (estimate == null) {
+            estimate = new Pose2d(getEstimatedX(), getEstimatedY(), new Rotation2d(getEstimatedTheta()));
+        }
+        return estimate;
+    }
+
+    /**
+     * @return The estimated x coordinate in meters, without allocating
+     */
+    public double getEstimatedX() {
+        return correctionCos * odometryX - correctionSin * odometryY + correctionX;
+    }
+
+    /**
+     * @return The estimated y coordinate in meters, without allocating
+     */
+    public double getEstimatedY() {
+        return correctionSin * odometryX + correctionCos * odometryY + correctionY;
+    }
+
+    /**
+     * @return The estimated angle in radians, without allocating
+     */
+    public double getEstimatedTheta() {
+        return MathUtil.angleModulus(odometryTheta + correctionTheta);
+    }
+
+    /**
+     * Updates the odometry at the current time
+     * @param gyroAngle The current gyro angle
+     * @param modulePositions The current module positions
+     */
+    public void update(Rotation2d gyroAngle, SwerveModulePosition[] modulePositions) {
+        updateWithTime(MathSharedStore.getTimestamp(), gyroAngle, modulePositions);
+    }
+
+    /**
+     * Updates the odometry
+     * @param timestamp The time of the positions in seconds
+     * @param gyroAngle The gyro angle
+     * @param modulePositions The module positions
+     */
+    public void updateWithTime(double timestamp, Rotation2d gyroAngle, SwerveModulePosition[] modulePositions) {
+        checkModuleCount(modulePositions);
+        // Forward kinematics of how far each module moved, using its current angle like SwerveDriveOdometry
+        double dx = 0;
+        double dy = 0;
+        int columns = 2 * numModules;
+        for (int i = 0; i < numModules; i++) {
+            double distance = modulePositions[i].distanceMeters - previousDistances[i];
+            double moduleX = distance * modulePositions[i].angle.getCos();
+            double moduleY = distance * modulePositions[i].angle.getSin();
+            dx += forwardKinematics[2 * i] * moduleX + forwardKinematics[2 * i + 1] * moduleY;
+            dy += forwardKinematics[columns + 2 * i] * moduleX + forwardKinematics[columns + 2 * i + 1] * moduleY;
+            previousDistances[i] = modulePositions[i].distanceMeters;
+        }
+        integrate(timestamp, gyroAngle, dx, dy);
+    }
+
+    /**
+     * Updates the odometry, trusting some modules less than others, for example when they are slipping
+     * <p>
+     * The rotation comes from the gyro, so the translation is the weighted average of how far each module moved
+     * once the rotation is taken out. With every weight equal and the modules centered on the robot, this is the same
+     * as the other updates.
+     * @param timestamp The time of the positions in seconds
+     * @param gyroAngle The gyro angle
+     * @param modulePositions The module positions
+     * @param moduleWeights How much to trust each module, from 0 to 1. If they are all 0, the robot is assumed to
+     *     not have moved.
+     */
+    public void updateWithTime(
+        double timestamp, Rotation2d gyroAngle, SwerveModulePosition[] modulePositions, double[] moduleWeights
+    ) {
+        checkModuleCount(modulePositions);
+        double dtheta = MathUtil.angleModulus(gyroAngle.getRadians() + gyroOffset - odometryTheta);
+        double dx = 0;
+        double dy = 0;
+        double totalWeight = 0;
+        for (int i = 0; i < numModules; i++) {
+            double distance = modulePositions[i].distanceMeters - previousDistances[i];
+            // Take out how far the module moved because the robot turned
+            dx += moduleWeights[i] * (distance * modulePositions[i].angle.getCos() + dtheta * moduleYs[i]);
+            dy += moduleWeights[i] * (distance * modulePositions[i].angle.getSin() - dtheta * moduleXs[i]);
+            totalWeight += moduleWeights[i];
+            previousDistances[i] = modulePositions[i].distanceMeters;
+        }
+        if (totalWeight > 0) {
+            dx /= totalWeight;
+            dy /= totalWeight;
+        }
+        integrate(timestamp, gyroAngle, dx, dy);
+    }
+
+    /**
+     * Moves the odometry by a twist
+     * @param timestamp The time of the update in seconds
+     * @param gyroAngle The gyro angle
+     * @param dx How far the robot moved forward in meters
+     * @param dy How far the robot moved left in meters
+     */
+    private void integrate(double timestamp, Rotation2d gyroAngle, double dx, double dy) {
+        // The gyro is used for the rotation instead of the kinematics
+        double theta = MathUtil.angleModulus(gyroAngle.getRadians() + gyroOffset);
+        double dtheta = MathUtil.angleModulus(theta - odometryTheta);
+
+        // Pose2d.exp()
+        double sin = Math.sin(dtheta);
+        double cos = Math.cos(dtheta);
+        double s;
+        double c;
+        if (Math.abs(dtheta) < 1E-9) {
+            s = 1.0 - 1.0 / 6.0 * dtheta * dtheta;
+            c = 0.5 * dtheta;
+        } else {
+            s = sin / dtheta;
+            c = (1 - cos) / dtheta;
+        }
+        double localX = dx * s - dy * c;
+        double localY = dx * c + dy * s;
+        double headingCos = Math.cos(odometryTheta);
+        double headingSin = Math.sin(odometryTheta);
+        odometryX += localX * headingCos - localY * headingSin;
+        odometryY += localX * headingSin + localY * headingCos;
+        odometryTheta = theta;
+
+        odometryHistory.add(timestamp, odometryX, odometryY, odometryTheta);
+        estimate = null;
+    }
+
+    /**
+     * Adds a vision measurement with the default standard deviations
+     * @param visionRobotPose The pose of the robot measured by vision
+     * @param timestamp The time the measurement was captured in seconds, in the same time base as the updates
+     */
+    public void addVisionMeasurement(Pose2d visionRobotPose, double timestamp) {
+        applyVisionMeasurement(
+            visionRobotPose.getX(), visionRobotPose.getY(), visionRobotPose.getRotation().getRadians(), timestamp,
+            defaultVisionK[0], defaultVisionK[1], defaultVisionK[2]);
+    }
+
+    /**
+     * Adds a vision measurement
+     * @param visionRobotPose The pose of the robot measured by vision
+     * @param timestamp The time the measurement was captured in seconds, in the same time base as the updates
+     * @param visionMeasurementStdDevs How much to trust this measurement, in meters, meters, and radians
+     */
+    public void addVisionMeasurement(Pose2d visionRobotPose, double timestamp, Matrix<N3, N1> visionMeasurementStdDevs) {
+        addVisionMeasurement(
+            visionRobotPose.getX(), visionRobotPose.getY(), visionRobotPose.getRotation().getRadians(), timestamp,
+            visionMeasurementStdDevs.get(0, 0), visionMeasurementStdDevs.get(1, 0), visionMeasurementStdDevs.get(2, 0));
+    }
+
+    /**
+     * Adds a vision measurement without allocating
+     * @param x The measured x coordinate in meters
+     * @param y The measured y coordinate in meters
+     * @param theta The measured angle in radians
+     * @param timestamp The time the measurement was captured in seconds, in the same time base as the updates
+     * @param xStdDev How much to trust the x coordinate in meters
+     * @param yStdDev How much to trust the y coordinate in meters
+     * @param thetaStdDev How much to trust the angle in radians
+     */
+    public void addVisionMeasurement(
+        double x, double y, double theta, double timestamp, double xStdDev, double yStdDev, double thetaStdDev
+    ) {
+        applyVisionMeasurement(x, y, theta, timestamp,
+            getGain(0, xStdDev), getGain(1, yStdDev), getGain(2, thetaStdDev));
+    }
+
+    /**
+     * Moves the estimate at a time toward a measurement
+     * @param kx The gain for x in the estimate's frame
+     * @param ky The gain for y in the estimate's frame
+     * @param ktheta The gain for the angle
+     */
+    private void applyVisionMeasurement(
+        double x, double y, double theta, double timestamp, double kx, double ky, double ktheta
+    ) {
+        // Ignore measurements older than the history, like SwerveDrivePoseEstimator
+        if (odometryHistory.isEmpty() || timestamp < odometryHistory.getOldestTimestamp()) {
+            return;
+        }
+        odometryHistory.getPoseAt(timestamp, odometrySample);
+
+        // The estimate when the measurement was captured
+        double sampleX = correctionCos * odometrySample[0] - correctionSin * odometrySample[1] + correctionX;
+        double sampleY = correctionSin * odometrySample[0] + correctionCos * odometrySample[1] + correctionY;
+        double sampleTheta = odometrySample[2] + correctionTheta;
+
+        // The error in the estimate's frame, scaled by the gains
+        double errorX = x - sampleX;
+        double errorY = y - sampleY;
+        double cos = Math.cos(sampleTheta);
+        double sin = Math.sin(sampleTheta);
+        double localX = (errorX * cos + errorY * sin) * kx;
+        double localY = (-errorX * sin + errorY * cos) * ky;
+        double newTheta = sampleTheta + MathUtil.angleModulus(theta - sampleTheta) * ktheta;
+        double newX = sampleX + localX * cos - localY * sin;
+        double newY = sampleY + localX * sin + localY * cos;
+
+        // Find the correction that moves the odometry sample to the new estimate. The odometry since then moves
+        // with it, which is the same as replaying it.
+        double newCorrectionTheta = MathUtil.angleModulus(newTheta - odometrySample[2]);
+        double newCos = Math.cos(newCorrectionTheta);
+        double newSin = Math.sin(newCorrectionTheta);
+        setCorrection(
+            newCorrectionTheta,
+            newX - (newCos * odometrySample[0] - newSin * odometrySample[1]),
+            newY - (newSin * odometrySample[0] + newCos * odometrySample[1]));
+        estimate = null;
+    }
+
+    private void setCorrection(double theta, double x, double y) {
+        correctionTheta = theta;
+        correctionCos = Math.cos(theta);
+        correctionSin = Math.sin(theta);
+        correctionX = x;
+        correctionY = y;
+    }
+
+    /**
+     * Finds the gain for a measurement, the same as SwerveDrivePoseEstimator
+     * @param axis The axis, 0 for x, 1 for y, and 2 for the angle
+     * @param stdDev The standard deviation of the measurement
+     * @return The gain
+     */
+    private double getGain(int axis, double stdDev) {
+        double r = stdDev * stdDev;
+        if (q[axis] == 0) {
+            return 0;
+        }
+        return q[axis] / (q[axis] + Math.sqrt(q[axis] * r));
+    }
+
+    private void checkModuleCount(SwerveModulePosition[] modulePositions) {
+        if (modulePositions.length != numModules) {
+            throw new IllegalArgumentException(
+                "Expected " + numModules + " module positions, got " + modulePositions.length);
+        }
+    }
+}
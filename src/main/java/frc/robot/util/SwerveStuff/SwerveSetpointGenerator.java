@@ -9,6 +9,7 @@ package frc.robot.util.SwerveStuff;
 
 import static frc.robot.util.EqualsUtil.*;
 
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.geometry.Twist2d;
@@ -37,6 +38,67 @@ public class SwerveSetpointGenerator {
   private final SwerveDriveKinematics kinematics= DriveConstants.KINEMATICS;
   private final Translation2d[] moduleLocations = DriveConstants.swerveModuleLocations;
 
+  // Buffers for the allocation-free generateSetpoint(), indexed by module. Angles are in radians.
+  private final int numModules = moduleLocations.length;
+  private final double[] moduleX = new double[numModules];
+  private final double[] moduleY = new double[numModules];
+  // The forward kinematics matrix, row major with 3 rows and 2 columns per module
+  private final double[] forwardKinematics = new double[3 * 2 * numModules];
+  // The last headings from inverse kinematics, used when the robot is stopped like
+  // SwerveDriveKinematics does
+  private final double[] lastHeadingCos = new double[numModules];
+  private final double[] lastHeadingSin = new double[numModules];
+  private final double[] prevSpeed = new double[numModules];
+  private final double[] prevAngle = new double[numModules];
+  private final double[] prevCos = new double[numModules];
+  private final double[] prevSin = new double[numModules];
+  private final Rotation2d[] prevRotation = new Rotation2d[numModules];
+  private final double[] desiredSpeed = new double[numModules];
+  private final double[] desiredAngle = new double[numModules];
+  private final double[] desiredCos = new double[numModules];
+  private final double[] desiredSin = new double[numModules];
+  private final double[] prevVx = new double[numModules];
+  private final double[] prevVy = new double[numModules];
+  private final double[] prevHeading = new double[numModules];
+  private final double[] desiredVx = new double[numModules];
+  private final double[] desiredVy = new double[numModules];
+  private final double[] desiredHeading = new double[numModules];
+  private final boolean[] hasOverride = new boolean[numModules];
+  private final double[] overrideAngle = new double[numModules];
+  private final double[] retSpeed = new double[numModules];
+  private final double[] retAngle = new double[numModules];
+  private final double[] retCos = new double[numModules];
+  private final double[] retSin = new double[numModules];
+  private double prevChassisVx;
+  private double prevChassisVy;
+  private double prevChassisOmega;
+  // The output of forwardKinematics()
+  private double kinematicsVx;
+  private double kinematicsVy;
+  private double kinematicsOmega;
+
+  public SwerveSetpointGenerator() {
+    for (int i = 0; i < numModules; i++) {
+      moduleX[i] = moduleLocations[i].getX();
+      moduleY[i] = moduleLocations[i].getY();
+      lastHeadingCos[i] = 1;
+    }
+    // Find the forward kinematics matrix by passing each unit vector through it
+    SwerveModuleState[] states = new SwerveModuleState[numModules];
+    for (int i = 0; i < numModules; i++) {
+      states[i] = new SwerveModuleState();
+    }
+    for (int column = 0; column < 2 * numModules; column++) {
+      states[column / 2].speedMetersPerSecond = 1;
+      states[column / 2].angle = column % 2 == 0 ? new Rotation2d(1, 0) : new Rotation2d(0, 1);
+      ChassisSpeeds speeds = kinematics.toChassisSpeeds(states);
+      forwardKinematics[column] = speeds.vxMetersPerSecond;
+      forwardKinematics[2 * numModules + column] = speeds.vyMetersPerSecond;
+      forwardKinematics[4 * numModules + column] = speeds.omegaRadiansPerSecond;
+      states[column / 2].speedMetersPerSecond = 0;
+    }
+  }
+
   /**
    * Check if it would be faster to go to the opposite of the goal heading (and reverse drive
    * direction).
@@ -67,20 +129,24 @@ public class SwerveSetpointGenerator {
   }
 
   /**
-   * Find the root of the generic 2D parametric function 'func' using the regula falsi technique.
-   * This is a pretty naive way to do root finding, but it's usually faster than simple bisection
-   * while being robust in ways that e.g. the Newton-Raphson method isn't.
+   * Find the root of the generic 2D parametric function 'func' using the Illinois variant of the
+   * regula falsi technique. This is a pretty naive way to do root finding, but it's usually faster
+   * than simple bisection while being robust in ways that e.g. the Newton-Raphson method isn't.
+   * Plain regula falsi can keep 1 end of the bracket forever when the function is convex, such as
+   * the wheel speed when a module speeds up while turning, so the Illinois variant halves the value
+   * at an end each time it is kept twice in a row.
+   *
+   * <p>The result is the end of the bracket on the same side of the root as the start, so a limit
+   * found with this is never exceeded by more than epsilon.
    *
    * @param func The Function2d to take the root of.
    * @param x_0 x value of the lower bracket.
    * @param y_0 y value of the lower bracket.
-   * @param f_0 value of 'func' at x_0, y_0 (passed in by caller to save a call to 'func' during
-   *     recursion)
+   * @param f_0 value of 'func' at x_0, y_0 (passed in by caller to save a call to 'func')
    * @param x_1 x value of the upper bracket.
    * @param y_1 y value of the upper bracket.
-   * @param f_1 value of 'func' at x_1, y_1 (passed in by caller to save a call to 'func' during
-   *     recursion)
-   * @param iterations_left Number of iterations of root finding left.
+   * @param f_1 value of 'func' at x_1, y_1 (passed in by caller to save a call to 'func')
+   * @param max_iterations Number of iterations of root finding to do.
    * @return The parameter value 's' that interpolating between 0 and 1 that corresponds to the
    *     (approximate) root.
    */
@@ -92,24 +158,45 @@ public class SwerveSetpointGenerator {
       double x_1,
       double y_1,
       double f_1,
-      int iterations_left) {
-    if (iterations_left < 0 || epsilonEquals(f_0, f_1)) {
+      int max_iterations) {
+    if (epsilonEquals(f_0, f_1)) {
       return 1.0;
     }
-    var s_guess = Math.max(0.0, Math.min(1.0, -f_0 / (f_1 - f_0)));
-    var x_guess = (x_1 - x_0) * s_guess + x_0;
-    var y_guess = (y_1 - y_0) * s_guess + y_0;
-    var f_guess = func.f(x_guess, y_guess);
-    if (Math.signum(f_0) == Math.signum(f_guess)) {
-      // 0 and guess on same side of root, so use upper bracket.
-      return s_guess
-          + (1.0 - s_guess)
-              * findRoot(func, x_guess, y_guess, f_guess, x_1, y_1, f_1, iterations_left - 1);
-    } else {
-      // Use lower bracket.
-      return s_guess
-          * findRoot(func, x_0, y_0, f_0, x_guess, y_guess, f_guess, iterations_left - 1);
+    double s_lower = 0.0;
+    double s_upper = 1.0;
+    double f_lower = f_0;
+    double f_upper = f_1;
+    // Which end was kept last time, -1 for lower and 1 for upper
+    int kept = 0;
+    for (int iterations_left = max_iterations; iterations_left >= 0; --iterations_left) {
+      if (f_lower == f_upper) {
+        break;
+      }
+      var s_guess =
+          Math.max(
+              s_lower,
+              Math.min(s_upper, s_lower - f_lower * (s_upper - s_lower) / (f_upper - f_lower)));
+      var f_guess = func.f((x_1 - x_0) * s_guess + x_0, (y_1 - y_0) * s_guess + y_0);
+      if (Math.signum(f_0) == Math.signum(f_guess)) {
+        // 0 and guess on same side of root, so use upper bracket.
+        s_lower = s_guess;
+        f_lower = f_guess;
+        if (kept == 1) {
+          f_upper /= 2.0;
+        }
+        kept = 1;
+      } else {
+        // Use lower bracket.
+        s_upper = s_guess;
+        f_upper = f_guess;
+        if (kept == -1) {
+          f_lower /= 2.0;
+        }
+        kept = -1;
+      }
     }
+    // The upper end is only safe if it's on the root
+    return epsilonEquals(f_upper, 0.0) ? s_upper : s_lower;
   }
 
   protected double findSteeringMaxS(
@@ -345,31 +432,40 @@ public class SwerveSetpointGenerator {
 
     // Enforce drive wheel acceleration limits.
     final double max_vel_step = dt * limits.maxDriveAcceleration();
-    for (int i = 0; i < modules.length; ++i) {
-      if (min_s == 0.0) {
-        // No need to carry on.
-        break;
+    // A wheel's speed isn't monotonic in s when it passes near 0, so lowering min_s for 1 module
+    // can put an earlier module back over its limit. Check them all again until min_s settles.
+    final int kMaxDrivePasses = 4;
+    boolean min_s_changed = true;
+    for (int pass = 0; pass < kMaxDrivePasses && min_s_changed; ++pass) {
+      min_s_changed = false;
+      for (int i = 0; i < modules.length; ++i) {
+        if (min_s == 0.0) {
+          // No need to carry on.
+          break;
+        }
+        double vx_min_s =
+            min_s == 1.0 ? desired_vx[i] : (desired_vx[i] - prev_vx[i]) * min_s + prev_vx[i];
+        double vy_min_s =
+            min_s == 1.0 ? desired_vy[i] : (desired_vy[i] - prev_vy[i]) * min_s + prev_vy[i];
+        // Find the max s for this drive wheel. Search on the interval between 0 and min_s, because
+        // we already know we can't go faster than that.
+        final int kMaxIterations = 10;
+        double s =
+            min_s
+                * findDriveMaxS(
+                    prev_vx[i],
+                    prev_vy[i],
+                    Math.hypot(prev_vx[i], prev_vy[i]),
+                    vx_min_s,
+                    vy_min_s,
+                    Math.hypot(vx_min_s, vy_min_s),
+                    max_vel_step,
+                    kMaxIterations);
+        if (s < min_s) {
+          min_s = s;
+          min_s_changed = true;
+        }
       }
-      double vx_min_s =
-          min_s == 1.0 ? desired_vx[i] : (desired_vx[i] - prev_vx[i]) * min_s + prev_vx[i];
-      double vy_min_s =
-          min_s == 1.0 ? desired_vy[i] : (desired_vy[i] - prev_vy[i]) * min_s + prev_vy[i];
-      // Find the max s for this drive wheel. Search on the interval between 0 and min_s, because we
-      // already know we can't go faster
-      // than that.
-      final int kMaxIterations = 10;
-      double s =
-          min_s
-              * findDriveMaxS(
-                  prev_vx[i],
-                  prev_vy[i],
-                  Math.hypot(prev_vx[i], prev_vy[i]),
-                  vx_min_s,
-                  vy_min_s,
-                  Math.hypot(vx_min_s, vy_min_s),
-                  max_vel_step,
-                  kMaxIterations);
-      min_s = Math.min(min_s, s);
     }
 
     ChassisSpeeds retSpeeds =
@@ -396,4 +492,403 @@ public class SwerveSetpointGenerator {
     }
     return new SwerveSetpoint(retSpeeds, retStates);
   }
+
+  /**
+   * Generate a new setpoint without allocating, writing it into an existing setpoint.
+   *
+   * <p>This gives the same result as {@link #generateSetpoint(ModuleLimits, SwerveSetpoint,
+   * ChassisSpeeds, double)}, but it uses buffers owned by this generator. Rotation2d is immutable,
+   * so a module's angle is only replaced with a new Rotation2d when its heading changes.
+   *
+   * @param limits The kinematic limits to respect for this setpoint.
+   * @param prevSetpoint The previous setpoint motion. This may be the same object as output.
+   * @param desiredState The desired state of motion, such as from the driver sticks or a path
+   *     following algorithm.
+   * @param dt The loop time.
+   * @param output The setpoint to write the result to.
+   */
+  public void generateSetpoint(
+      final ModuleLimits limits,
+      final SwerveSetpoint prevSetpoint,
+      final ChassisSpeeds desiredState,
+      double dt,
+      SwerveSetpoint output) {
+    // Copy the previous setpoint first, since it may be overwritten
+    prevChassisVx = prevSetpoint.chassisSpeeds().vxMetersPerSecond;
+    prevChassisVy = prevSetpoint.chassisSpeeds().vyMetersPerSecond;
+    prevChassisOmega = prevSetpoint.chassisSpeeds().omegaRadiansPerSecond;
+    for (int i = 0; i < numModules; ++i) {
+      SwerveModuleState state = prevSetpoint.moduleStates()[i];
+      prevSpeed[i] = state.speedMetersPerSecond;
+      prevRotation[i] = state.angle;
+      prevAngle[i] = state.angle.getRadians();
+      prevCos[i] = state.angle.getCos();
+      prevSin[i] = state.angle.getSin();
+    }
+    generate(
+        limits,
+        desiredState.vxMetersPerSecond,
+        desiredState.vyMetersPerSecond,
+        desiredState.omegaRadiansPerSecond,
+        dt,
+        output);
+  }
+
+  private void generate(
+      ModuleLimits limits, double vx, double vy, double omega, double dt, SwerveSetpoint output) {
+    inverseKinematics(vx, vy, omega, desiredSpeed, desiredAngle, desiredCos, desiredSin);
+    // Make sure desiredState respects velocity limits.
+    if (limits.maxDriveVelocity() > 0.0) {
+      double realMaxSpeed = 0;
+      for (int i = 0; i < numModules; ++i) {
+        realMaxSpeed = Math.max(realMaxSpeed, desiredSpeed[i]);
+      }
+      if (realMaxSpeed > limits.maxDriveVelocity()) {
+        for (int i = 0; i < numModules; ++i) {
+          desiredSpeed[i] = desiredSpeed[i] / realMaxSpeed * limits.maxDriveVelocity();
+        }
+      }
+      forwardKinematics(desiredSpeed, desiredCos, desiredSin);
+      vx = kinematicsVx;
+      vy = kinematicsVy;
+      omega = kinematicsOmega;
+    }
+
+    // Special case: desiredState is a complete stop. In this case, module angle is arbitrary, so
+    // just use the previous angle.
+    boolean need_to_steer = true;
+    if (isZero(vx, vy, omega)) {
+      need_to_steer = false;
+      for (int i = 0; i < numModules; ++i) {
+        desiredAngle[i] = prevAngle[i];
+        desiredCos[i] = prevCos[i];
+        desiredSin[i] = prevSin[i];
+        desiredSpeed[i] = 0.0;
+      }
+    }
+
+    // For each module, compute local Vx and Vy vectors.
+    boolean all_modules_should_flip = true;
+    for (int i = 0; i < numModules; ++i) {
+      prevVx[i] = prevCos[i] * prevSpeed[i];
+      prevVy[i] = prevSin[i] * prevSpeed[i];
+      prevHeading[i] = prevSpeed[i] < 0.0 ? rotateByPi(prevAngle[i]) : prevAngle[i];
+      desiredVx[i] = desiredCos[i] * desiredSpeed[i];
+      desiredVy[i] = desiredSin[i] * desiredSpeed[i];
+      desiredHeading[i] = desiredSpeed[i] < 0.0 ? rotateByPi(desiredAngle[i]) : desiredAngle[i];
+      if (all_modules_should_flip
+          && Math.abs(MathUtil.angleModulus(desiredHeading[i] - prevHeading[i])) < Math.PI / 2.0) {
+        all_modules_should_flip = false;
+      }
+    }
+    if (all_modules_should_flip
+        && !isZero(prevChassisVx, prevChassisVy, prevChassisOmega)
+        && !isZero(vx, vy, omega)) {
+      // It will (likely) be faster to stop the robot, rotate the modules in place to the complement
+      // of the desired angle, and accelerate again.
+      generate(limits, 0, 0, 0, dt, output);
+      return;
+    }
+
+    double dx = vx - prevChassisVx;
+    double dy = vy - prevChassisVy;
+    double dtheta = omega - prevChassisOmega;
+    double min_s = 1.0;
+
+    // Enforce steering velocity limits.
+    final double max_theta_step = dt * limits.maxSteeringVelocity();
+    for (int i = 0; i < numModules; ++i) {
+      hasOverride[i] = false;
+      if (!need_to_steer) {
+        setOverride(i, prevAngle[i]);
+        continue;
+      }
+      if (epsilonEquals(prevSpeed[i], 0.0)) {
+        // If module is stopped, limit based purely on rotation in place.
+        if (epsilonEquals(desiredSpeed[i], 0.0)) {
+          // Goal angle doesn't matter. Just leave module at its current angle.
+          setOverride(i, prevAngle[i]);
+          continue;
+        }
+
+        double necessaryRotation = MathUtil.angleModulus(desiredAngle[i] - prevAngle[i]);
+        if (Math.abs(necessaryRotation) > Math.PI / 2.0) {
+          necessaryRotation = rotateByPi(necessaryRotation);
+        }
+        final double numStepsNeeded = Math.abs(necessaryRotation) / max_theta_step;
+
+        if (numStepsNeeded <= 1.0) {
+          // Steer directly to goal angle.
+          setOverride(i, desiredAngle[i]);
+        } else {
+          // Adjust steering by max_theta_step.
+          setOverride(
+              i,
+              MathUtil.angleModulus(
+                  prevAngle[i] + Math.signum(necessaryRotation) * max_theta_step));
+          min_s = 0.0;
+        }
+        continue;
+      }
+      if (min_s == 0.0) {
+        // s can't get any lower. Save some CPU.
+        continue;
+      }
+
+      final int kMaxIterations = 8;
+      double s =
+          findSteeringMaxSIterative(
+              prevVx[i],
+              prevVy[i],
+              prevHeading[i],
+              desiredVx[i],
+              desiredVy[i],
+              desiredHeading[i],
+              max_theta_step,
+              kMaxIterations);
+      min_s = Math.min(min_s, s);
+    }
+
+    // Enforce drive wheel acceleration limits.
+    final double max_vel_step = dt * limits.maxDriveAcceleration();
+    // A wheel's speed isn't monotonic in s when it passes near 0, so lowering min_s for 1 module
+    // can put an earlier module back over its limit. Check them all again until min_s settles.
+    final int kMaxDrivePasses = 4;
+    boolean min_s_changed = true;
+    for (int pass = 0; pass < kMaxDrivePasses && min_s_changed; ++pass) {
+      min_s_changed = false;
+      for (int i = 0; i < numModules; ++i) {
+        if (min_s == 0.0) {
+          // No need to carry on.
+          break;
+        }
+        double vx_min_s =
+            min_s == 1.0 ? desiredVx[i] : (desiredVx[i] - prevVx[i]) * min_s + prevVx[i];
+        double vy_min_s =
+            min_s == 1.0 ? desiredVy[i] : (desiredVy[i] - prevVy[i]) * min_s + prevVy[i];
+        final int kMaxIterations = 10;
+        double s =
+            min_s
+                * findDriveMaxSIterative(
+                    prevVx[i],
+                    prevVy[i],
+                    Math.hypot(prevVx[i], prevVy[i]),
+                    vx_min_s,
+                    vy_min_s,
+                    Math.hypot(vx_min_s, vy_min_s),
+                    max_vel_step,
+                    kMaxIterations);
+        if (s < min_s) {
+          min_s = s;
+          min_s_changed = true;
+        }
+      }
+    }
+
+    ChassisSpeeds retSpeeds = output.chassisSpeeds();
+    retSpeeds.vxMetersPerSecond = prevChassisVx + min_s * dx;
+    retSpeeds.vyMetersPerSecond = prevChassisVy + min_s * dy;
+    retSpeeds.omegaRadiansPerSecond = prevChassisOmega + min_s * dtheta;
+    inverseKinematics(
+        retSpeeds.vxMetersPerSecond,
+        retSpeeds.vyMetersPerSecond,
+        retSpeeds.omegaRadiansPerSecond,
+        retSpeed,
+        retAngle,
+        retCos,
+        retSin);
+    for (int i = 0; i < numModules; ++i) {
+      double speed = retSpeed[i];
+      double angle = retAngle[i];
+      if (hasOverride[i]) {
+        if (Math.abs(MathUtil.angleModulus(overrideAngle[i] - angle)) > Math.PI / 2.0) {
+          speed *= -1.0;
+        }
+        angle = overrideAngle[i];
+      }
+      if (Math.abs(MathUtil.angleModulus(angle - prevAngle[i])) > Math.PI / 2.0) {
+        angle = rotateByPi(angle);
+        speed *= -1.0;
+      }
+      SwerveModuleState state = output.moduleStates()[i];
+      state.speedMetersPerSecond = speed;
+      // Only create a new Rotation2d if the heading changed
+      if (prevRotation[i].getRadians() == angle) {
+        state.angle = prevRotation[i];
+      } else if (state.angle.getRadians() != angle) {
+        state.angle = new Rotation2d(angle);
+      }
+    }
+  }
+
+  private void setOverride(int module, double angle) {
+    hasOverride[module] = true;
+    overrideAngle[module] = angle;
+  }
+
+  /**
+   * Converts chassis speeds to module speeds and headings the same way SwerveDriveKinematics does.
+   */
+  private void inverseKinematics(
+      double vx,
+      double vy,
+      double omega,
+      double[] speeds,
+      double[] angles,
+      double[] cos,
+      double[] sin) {
+    boolean stopped = vx == 0.0 && vy == 0.0 && omega == 0.0;
+    for (int i = 0; i < numModules; ++i) {
+      if (stopped) {
+        // Keep the last heading
+        speeds[i] = 0.0;
+      } else {
+        double x = vx + -moduleY[i] * omega;
+        double y = vy + moduleX[i] * omega;
+        double magnitude = Math.hypot(x, y);
+        speeds[i] = magnitude;
+        if (magnitude > 1e-6) {
+          lastHeadingCos[i] = x / magnitude;
+          lastHeadingSin[i] = y / magnitude;
+        } else {
+          lastHeadingCos[i] = 1.0;
+          lastHeadingSin[i] = 0.0;
+        }
+      }
+      cos[i] = lastHeadingCos[i];
+      sin[i] = lastHeadingSin[i];
+      angles[i] = Math.atan2(sin[i], cos[i]);
+    }
+  }
+
+  /**
+   * Converts module states to chassis speeds the same way SwerveDriveKinematics does, storing the
+   * result in kinematicsVx, kinematicsVy, and kinematicsOmega.
+   */
+  private void forwardKinematics(double[] speeds, double[] cos, double[] sin) {
+    int columns = 2 * numModules;
+    kinematicsVx = forwardKinematicsRow(0, columns, speeds, cos, sin);
+    kinematicsVy = forwardKinematicsRow(columns, columns, speeds, cos, sin);
+    kinematicsOmega = forwardKinematicsRow(2 * columns, columns, speeds, cos, sin);
+  }
+
+  private double forwardKinematicsRow(
+      int start, int columns, double[] speeds, double[] cos, double[] sin) {
+    double total = forwardKinematics[start] * (speeds[0] * cos[0]);
+    for (int column = 1; column < columns; ++column) {
+      int module = column / 2;
+      double value =
+          column % 2 == 0 ? speeds[module] * cos[module] : speeds[module] * sin[module];
+      total += forwardKinematics[start + column] * value;
+    }
+    return total;
+  }
+
+  private static boolean isZero(double vx, double vy, double omega) {
+    return epsilonEquals(vx, 0.0) && epsilonEquals(vy, 0.0) && epsilonEquals(omega, 0.0);
+  }
+
+  private static double rotateByPi(double angle) {
+    return MathUtil.angleModulus(angle + Math.PI);
+  }
+
+  /**
+   * Version of findRoot() that doesn't need a Function2d, so it doesn't allocate a lambda.
+   *
+   * @param steering True to find where the heading crosses the offset, false to find where the
+   *     speed does.
+   * @param reference The angle to unwrap headings near, only used for steering.
+   * @param offset The value of the function to find.
+   */
+  private double findRootIterative(
+      boolean steering,
+      double reference,
+      double offset,
+      double x_0,
+      double y_0,
+      double f_0,
+      double x_1,
+      double y_1,
+      double f_1,
+      int max_iterations) {
+    if (epsilonEquals(f_0, f_1)) {
+      return 1.0;
+    }
+    double s_lower = 0.0;
+    double s_upper = 1.0;
+    double f_lower = f_0;
+    double f_upper = f_1;
+    // Which end was kept last time, -1 for lower and 1 for upper
+    int kept = 0;
+    for (int iterations_left = max_iterations; iterations_left >= 0; --iterations_left) {
+      if (f_lower == f_upper) {
+        break;
+      }
+      double s_guess =
+          Math.max(
+              s_lower,
+              Math.min(s_upper, s_lower - f_lower * (s_upper - s_lower) / (f_upper - f_lower)));
+      double x_guess = (x_1 - x_0) * s_guess + x_0;
+      double y_guess = (y_1 - y_0) * s_guess + y_0;
+      double f_guess =
+          steering
+              ? unwrapAngle(reference, Math.atan2(y_guess, x_guess)) - offset
+              : Math.hypot(x_guess, y_guess) - offset;
+      if (Math.signum(f_0) == Math.signum(f_guess)) {
+        s_lower = s_guess;
+        f_lower = f_guess;
+        if (kept == 1) {
+          f_upper /= 2.0;
+        }
+        kept = 1;
+      } else {
+        s_upper = s_guess;
+        f_upper = f_guess;
+        if (kept == -1) {
+          f_lower /= 2.0;
+        }
+        kept = -1;
+      }
+    }
+    return epsilonEquals(f_upper, 0.0) ? s_upper : s_lower;
+  }
+
+  private double findSteeringMaxSIterative(
+      double x_0,
+      double y_0,
+      double f_0,
+      double x_1,
+      double y_1,
+      double f_1,
+      double max_deviation,
+      int max_iterations) {
+    f_1 = unwrapAngle(f_0, f_1);
+    double diff = f_1 - f_0;
+    if (Math.abs(diff) <= max_deviation) {
+      // Can go all the way to s=1.
+      return 1.0;
+    }
+    double offset = f_0 + Math.signum(diff) * max_deviation;
+    return findRootIterative(
+        true, f_0, offset, x_0, y_0, f_0 - offset, x_1, y_1, f_1 - offset, max_iterations);
+  }
+
+  private double findDriveMaxSIterative(
+      double x_0,
+      double y_0,
+      double f_0,
+      double x_1,
+      double y_1,
+      double f_1,
+      double max_vel_step,
+      int max_iterations) {
+    double diff = f_1 - f_0;
+    if (Math.abs(diff) <= max_vel_step) {
+      // Can go all the way to s=1.
+      return 1.0;
+    }
+    double offset = f_0 + Math.signum(diff) * max_vel_step;
+    return findRootIterative(
+        false, 0.0, offset, x_0, y_0, f_0 - offset, x_1, y_1, f_1 - offset, max_iterations);
+  }
 }
@@ -19,7 +19,6 @@ import edu.wpi.first.apriltag.AprilTagFields;
 import edu.wpi.first.math.MatBuilder;
 import edu.wpi.first.math.Nat;
 import edu.wpi.first.math.Pair;
-import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Pose3d;
 import edu.wpi.first.math.geometry.Rotation2d;
@@ -37,16 +36,17 @@ import frc.robot.constants.Constants;
 import frc.robot.constants.miscConstants.FieldConstants;
 import frc.robot.constants.miscConstants.VisionConstants;
 import frc.robot.constants.swerve.DriveConstants;
+import frc.robot.util.SwerveStuff.SwervePoseEstimator;
 
 // Vision and it's commands are adapted from Iron Claw's FRC2023
 public class Vision {
-  // private NetworkTable m_objectDetectionTable;
+  private NetworkTable m_objectDetectionTable;
 
-  // private NetworkTableEntry m_xOffset;
-  // private NetworkTableEntry m_yOffset;
-  // private NetworkTableEntry m_objectDistance;
-  // private NetworkTableEntry m_objectClass;
-  // private NetworkTableEntry m_cameraIndex;
+  private NetworkTableEntry m_xOffset;
+  private NetworkTableEntry m_yOffset;
+  private NetworkTableEntry m_objectDistance;
+  private NetworkTableEntry m_objectClass;
+  private NetworkTableEntry m_cameraIndex;
   
   // The field layout. Instance variable
   private AprilTagFieldLayout m_aprilTagFieldLayout;
@@ -57,19 +57,25 @@ public class Vision {
 
   private boolean sawTag = false;
 
+  // Remembers notes that have been seen so they can be found after they leave the cameras' view
+  private final NoteMap noteMap = new NoteMap();
+
+  // Where the robot was, from the drivetrain. Null until setPoseHistory() is called.
+  private PoseHistory robotPoseHistory;
+
   /**
    * Creates a new instance of Vision and sets up the cameras and field layout
    */
   public Vision(ArrayList<Pair<String, Transform3d>> camList) {
-    // // // Initialize object_detection NetworkTable
-    // m_objectDetectionTable = NetworkTableInstance.getDefault().getTable("object_detection");
+    // Initialize object_detection NetworkTable
+    m_objectDetectionTable = NetworkTableInstance.getDefault().getTable("object_detection");
 
-    // // From the object_detection NetworkTable, get the entries
-    // m_objectDistance = m_objectDetectionTable.getEntry("distance");
-    // m_xOffset = m_objectDetectionTable.getEntry("x_offset");
-    // m_yOffset = m_objectDetectionTable.getEntry("y_offset");
-    // m_objectClass = m_objectDetectionTable.getEntry("class");
-    // m_cameraIndex = m_objectDetectionTable.getEntry("index");
+    // From the object_detection NetworkTable, get the entries
+    m_objectDistance = m_objectDetectionTable.getEntry("distance");
+    m_xOffset = m_objectDetectionTable.getEntry("x_offset");
+    m_yOffset = m_objectDetectionTable.getEntry("y_offset");
+    m_objectClass = m_objectDetectionTable.getEntry("class");
+    m_cameraIndex = m_objectDetectionTable.getEntry("index");
 
     // Start NetworkTables server
     // NetworkTableInstance.getDefault().startServer();
@@ -99,114 +105,138 @@ public class Vision {
   }
 
 
-  // /**
-  //  * Get the horizontal offsets from the crosshair to the targets
-  //  * @return An array of offsets in degrees
-  //  */
-  // public double[] getHorizontalOffset(){
-  //   if(!VisionConstants.OBJECT_DETECTION_ENABLED){
-  //     return new double[0];
-  //   }
-  //   return m_xOffset.getDoubleArray(new double[0]);
-  // }
-
-  // /**
-  //  * Get the vertical offsets from the crosshair to the targets
-  //  * @return An array of offsets in degrees
-  //  */
-  // public double[] getVerticalOffset(){
-  //   if(!VisionConstants.OBJECT_DETECTION_ENABLED){
-  //     return new double[0];
-  //   }
-  //   return m_yOffset.getDoubleArray(new double[0]);
-  // }
-
-  // /**
-  //  * Get the target distances
-  //  * @return Distance in meters
-  //  */
-  // public double[] getDistance(){
-  //   if(!VisionConstants.OBJECT_DETECTION_ENABLED){
-  //     return new double[0];
-  //   }
-  //   return m_objectDistance.getDoubleArray(new double[0]);
-  // }
-
-  // /**
-  //  * Returns whether or not a valid object is detected
-  //  * @return true or false
-  //  */
-  // public boolean validObjectDetected(){
-  //   return getHorizontalOffset().length > 0;
-  // }
-
-  // /**
-  //  * Returns what types of object are detected
-  //  * @return The object types as a String array
-  //  */
-  // public long[] getDetectedObjectClass(){
-  //   if(!VisionConstants.OBJECT_DETECTION_ENABLED){
-  //     return new long[0];
-  //   }
-  //   return m_objectClass.getIntegerArray(new long[0]);
-  // }
+  /**
+   * Get the horizontal offsets from the crosshair to the targets
+   * @return An array of offsets in degrees
+   */
+  public double[] getHorizontalOffset(){
+    if(!VisionConstants.OBJECT_DETECTION_ENABLED){
+      return new double[0];
+    }
+    return m_xOffset.getDoubleArray(new double[0]);
+  }
+
+  /**
+   * Get the vertical offsets from the crosshair to the targets
+   * @return An array of offsets in degrees
+   */
+  public double[] getVerticalOffset(){
+    if(!VisionConstants.OBJECT_DETECTION_ENABLED){
+      return new double[0];
+    }
+    return m_yOffset.getDoubleArray(new double[0]);
+  }
+
+  /**
+   * Get the target distances
+   * @return Distance in meters
+   */
+  public double[] getDistance(){
+    if(!VisionConstants.OBJECT_DETECTION_ENABLED){
+      return new double[0];
+    }
+    return m_objectDistance.getDoubleArray(new double[0]);
+  }
+
+  /**
+   * Returns whether or not a valid object is detected
+   * @return true or false
+   */
+  public boolean validObjectDetected(){
+    return getHorizontalOffset().length > 0;
+  }
+
+  /**
+   * Returns what types of object are detected
+   * @return The object types as a String array
+   */
+  public long[] getDetectedObjectClass(){
+    if(!VisionConstants.OBJECT_DETECTION_ENABLED){
+      return new long[0];
+    }
+    return m_objectClass.getIntegerArray(new long[0]);
+  }
 
   /**
    * Gets the camera indices (which camera sees the object)
    * @return The indices as a long array (method returns long array instead of int array)
    */
-  // public long[] getCameraIndex(){
-  //   if(!VisionConstants.OBJECT_DETECTION_ENABLED){
-  //     return new long[0];
-  //   }
-  //   return m_cameraIndex.getIntegerArray(new long[0]);
-  // }
+  public long[] getCameraIndex(){
+    if(!VisionConstants.OBJECT_DETECTION_ENABLED){
+      return new long[0];
+    }
+    return m_cameraIndex.getIntegerArray(new long[0]);
+  }
 
   /**
    * Stores all of the detected objects in an array
    * @return The array of DetectedObjects
    */
-  // public DetectedObject[] getDetectedObjects(){
-  //   if(!VisionConstants.OBJECT_DETECTION_ENABLED){
-  //     return new DetectedObject[0];
-  //   }
-  //   double[] xOffset = getHorizontalOffset();
-  //   double[] yOffset = getVerticalOffset();
-  //   // double[] distance = getDistance();
-  //   long[] objectClass = getDetectedObjectClass();
-  //   // long[] cameraIndex = getCameraIndex();
-  //   DetectedObject[] objects = new DetectedObject[xOffset.length];
-  //   for(int i = 0; i < objects.length; i++){
-  //     objects[i] = new DetectedObject(
-  //       Units.degreesToRadians(xOffset[i]),
-  //       Units.degreesToRadians(yOffset[i]),
-  //       // distance[i],
-  //       objectClass[i],
-  //       // VisionConstants.OBJECT_DETECTION_CAMERAS.get((int)cameraIndex[i]).getSecond()
-  //       VisionConstants.OBJECT_DETECTION_CAMERAS.get(0)
-  //     );
-  //   }
-  //   return objects;
-  // }
+  public DetectedObject[] getDetectedObjects(){
+    if(!VisionConstants.OBJECT_DETECTION_ENABLED){
+      return new DetectedObject[0];
+    }
+    double[] xOffset = getHorizontalOffset();
+    double[] yOffset = getVerticalOffset();
+    // double[] distance = getDistance();
+    long[] objectClass = getDetectedObjectClass();
+    // long[] cameraIndex = getCameraIndex();
+    // The entries are published separately, so they can have different lengths for a loop
+    int count = Math.min(xOffset.length, Math.min(yOffset.length, objectClass.length));
+    // Project from where the robot was when the frame was captured, not where it is now
+    double timestamp = getDetectionTimestamp();
+    DetectedObject[] objects = new DetectedObject[count];
+    for(int i = 0; i < objects.length; i++){
+      objects[i] = new DetectedObject(
+        Units.degreesToRadians(xOffset[i]),
+        Units.degreesToRadians(yOffset[i]),
+        // distance[i],
+        DetectedObject.getType(objectClass[i]),
+        // VisionConstants.OBJECT_DETECTION_CAMERAS.get((int)cameraIndex[i]).getSecond()
+        VisionConstants.OBJECT_DETECTION_CAMERAS.get(0),
+        timestamp
+      );
+    }
+    return objects;
+  }
 
   /**
-   * Returns the closest game piece in front of the robot
+   * Gets when the latest detections were captured. The coprocessor publishes the offsets together, and NetworkTables
+   * timestamps are in the same microseconds as the FPGA time on the robot, so this is when the x offsets changed.
+   * @return The FPGA timestamp in seconds
+   */
+  public double getDetectionTimestamp(){
+    return m_xOffset.getLastChange() / 1e6;
+  }
+
+  /**
+   * Adds detected objects to the note map
+   * @param objects The objects to add, anything that isn't a note is ignored
+   */
+  public void updateNoteMap(DetectedObject... objects){
+    double timestamp = Timer.getFPGATimestamp();
+    for(DetectedObject object : objects){
+      noteMap.add(object, timestamp);
+    }
+  }
+
+  /**
+   * Gets the map of notes that have been seen
+   * @return The NoteMap
+   */
+  public NoteMap getNoteMap(){
+    return noteMap;
+  }
+
+  /**
+   * Returns the closest remembered game piece in front of the robot, including ones that are no longer in view
+   * @param robotPose The pose of the robot
    * @param maxAngle The maximum angle from the front of the robot to use
-   * @return The best DetectedObject
+   * @return The best DetectedObject, or null if there isn't one
    */
-  // public DetectedObject getBestGamePiece(double maxAngle){
-  //   DetectedObject[] objects = getDetectedObjects();
-  //   DetectedObject best = null;
-  //   double closest = Double.POSITIVE_INFINITY;
-  //   for(DetectedObject object : objects){
-  //     double dist = object.getDistance();
-  //     if(object.isGamePiece() && Math.abs(object.getRelativeAngle()) < maxAngle && dist < closest){
-  //       closest = dist;
-  //       best = object;
-  //     }
-  //   }
-  //   return best;
-  // }
+  public DetectedObject getBestGamePiece(Pose2d robotPose, double maxAngle){
+    return noteMap.getClosestNote(robotPose, maxAngle, Timer.getFPGATimestamp());
+  }
 
   /**
    * Gets the pose as a Pose2d using PhotonVision
@@ -226,17 +256,7 @@ public class Vision {
     if (estimatedPoses.size() == 1) return estimatedPoses.get(0).estimatedPose.toPose2d();
     
     if (estimatedPoses.size() == 2) {
-      return new Pose2d(
-        estimatedPoses.get(0).estimatedPose.toPose2d().getTranslation()
-          .plus(estimatedPoses.get(1).estimatedPose.toPose2d().getTranslation())
-          .div(2),
-        
-        new Rotation2d(MathUtils.modulusMidpoint(
-          estimatedPoses.get(0).estimatedPose.toPose2d().getRotation().getRadians(),
-          estimatedPoses.get(1).estimatedPose.toPose2d().getRotation().getRadians(),
-          -Math.PI, Math.PI)
-        )
-      );
+      return averagePoses(estimatedPoses.get(0).estimatedPose.toPose2d(), estimatedPoses.get(1).estimatedPose.toPose2d());
     }
           
     //TODO: VERY LOW PRIORITY FOR FUTURE ROBOTS, make the rotation average work with more than 2 cameras
@@ -250,6 +270,51 @@ public class Vision {
     return null;
   }
 
+  /**
+   * Averages 2 poses, taking the midpoint of the rotations so angles near +-pi average correctly
+   * @param pose1 The first pose
+   * @param pose2 The second pose
+   * @return The average pose
+   */
+  public static Pose2d averagePoses(Pose2d pose1, Pose2d pose2){
+    return new Pose2d(
+      (pose1.getX() + pose2.getX()) / 2,
+      (pose1.getY() + pose2.getY()) / 2,
+      new Rotation2d(MathUtils.modulusMidpoint(
+        pose1.getRotation().getRadians(),
+        pose2.getRotation().getRadians(),
+        -Math.PI, Math.PI)
+      )
+    );
+  }
+
+  /**
+   * Calculates the robot's pose from one April tag, assuming the robot is on the ground and its yaw is known
+   * @param targetPitch The pitch of the tag from the camera in degrees, positive up
+   * @param targetYaw The yaw of the tag from the camera in degrees, positive right
+   * @param targetPose The field relative pose of the tag
+   * @param robotToCamera The transformation from the robot to the camera
+   * @param yaw The yaw of the robot in radians
+   * @return The field relative pose of the robot
+   */
+  public static Pose2d getManualPose(double targetPitch, double targetYaw, Pose3d targetPose, Transform3d robotToCamera, double yaw){
+    // Get the tag position relative to the robot, assuming the robot is on the ground
+    Translation3d translation = new Translation3d(1, new Rotation3d(0, -Units.degreesToRadians(targetPitch), -Units.degreesToRadians(targetYaw)));
+    translation = translation.rotateBy(robotToCamera.getRotation());
+    translation = translation.times((targetPose.getZ()-robotToCamera.getZ())/translation.getZ());
+    translation = translation.plus(robotToCamera.getTranslation());
+    translation = translation.rotateBy(new Rotation3d(0, 0, yaw));
+
+    // Invert it to get the robot position relative to the April tag
+    translation = translation.times(-1);
+    // Multiply by a constant. I don't know why this works, but it was consistently 10% off in 2023 Fall Semester
+    translation = translation.times(VisionConstants.DISTANCE_SCALE);
+    // Get the field relative robot pose
+    translation = translation.plus(targetPose.getTranslation());
+    // Return as a Pose2d
+    return new Pose2d(translation.toTranslation2d(), new Rotation2d(yaw));
+  }
+
   public AprilTagFieldLayout getAprilTagFieldLayout(){
     return m_aprilTagFieldLayout;
   }
@@ -321,8 +386,10 @@ public class Vision {
   /**
    * Updates the robot's odometry with vision
    * @param poseEstimator The pose estimator to update
+   * @param colliding If the drivetrain detected a collision, which makes vision trusted more
    */
-  public void updateOdometry(SwerveDrivePoseEstimator poseEstimator){
+  public void updateOdometry(SwervePoseEstimator poseEstimator, boolean colliding){
+    double translationScale = colliding ? VisionConstants.COLLISION_STD_DEV_SCALE : 1;
     // Simulate vision
     if(RobotBase.isSimulation() && VisionConstants.ENABLED_SIM){
       visionSim.update(poseEstimator.getEstimatedPosition());
@@ -343,14 +410,28 @@ public class Vision {
       // for(PhotonTrackedTarget t : estimatedPose.targetsUsed){
       //   System.out.printf("Dist to tag %d: %.3fm\n", t.getFiducialId(), getTagPose(t.getFiducialId()).getTranslation().toTranslation2d().getDistance(poseEstimator.getEstimatedPosition().getTranslation()));
       // }
+      Pose2d pose = estimatedPose.estimatedPose.toPose2d();
       poseEstimator.addVisionMeasurement(
-        estimatedPose.estimatedPose.toPose2d(),
-        estimatedPose.timestampSeconds
+        pose.getX(),
+        pose.getY(),
+        pose.getRotation().getRadians(),
+        estimatedPose.timestampSeconds,
+        VisionConstants.VISION_STD_DEVS.get(0, 0) * translationScale,
+        VisionConstants.VISION_STD_DEVS.get(1, 0) * translationScale,
+        VisionConstants.VISION_STD_DEVS.get(2, 0)
       );
       sawTag = true;
     }
   }
 
+  /**
+   * Sets the drivetrain's pose history, so estimates can be checked against how far the robot actually moved
+   * @param poseHistory The pose history
+   */
+  public void setPoseHistory(PoseHistory poseHistory){
+    robotPoseHistory = poseHistory;
+  }
+
   /**
    * If vision saw any April tags last frame
    * @return If vision saw an April tag last frame
@@ -391,10 +472,17 @@ public class Vision {
   }
   
   private class VisionCamera {
+    // About a second of estimates
+    private static final int ESTIMATE_HISTORY_LENGTH = 50;
+
     PhotonCamera camera;
     PhotonPoseEstimator photonPoseEstimator;
-    Pose2d lastPose;
-    double lastTimestamp = 0;
+    // This camera's recent estimates, to reject estimates that jump
+    final PoseHistory estimates = new PoseHistory(ESTIMATE_HISTORY_LENGTH);
+    // Reused by isConsistent()
+    private final double[] lastEstimate = new double[3];
+    private final double[] robotBefore = new double[3];
+    private final double[] robotAfter = new double[3];
     boolean enabled = true;
     int[] onlyUse = new int[0];
   
@@ -413,7 +501,6 @@ public class Vision {
       );
       photonPoseEstimator.setMultiTagFallbackStrategy(VisionConstants.MULTITAG_FALLBACK_STRATEGY);
       photonPoseEstimator.setReferencePose(new Pose2d());
-      lastPose = null;
     }
   
     /**
@@ -470,17 +557,16 @@ public class Vision {
       
       if(pose.isPresent() && pose.get()!=null && onField(pose.get().estimatedPose.toPose2d())){
         double timestamp = getTimeStamp();
+        Pose2d estimate = pose.get().estimatedPose.toPose2d();
 
         // If the pose moved too much, don't use it
-        if(lastPose==null || lastPose.getTranslation().getDistance(pose.get().estimatedPose.toPose2d().getTranslation()) > DriveConstants.kMaxSpeed*1.25*(timestamp-lastTimestamp) || timestamp < lastTimestamp){
-          lastPose = pose.get().estimatedPose.toPose2d();
-          lastTimestamp = timestamp;
+        boolean consistent = isConsistent(timestamp, estimate);
+        estimates.add(timestamp, estimate);
+        if(!consistent){
           return Optional.empty();
         }
 
         // Otherwise, retrun the pose
-        lastPose = pose.get().estimatedPose.toPose2d();
-        lastTimestamp = timestamp;
         return pose;
       }
 
@@ -488,6 +574,29 @@ public class Vision {
       return Optional.empty();
     }
     
+    /**
+     * Checks if an estimate agrees with this camera's last estimate.
+     * The difference between them, minus how far the odometry says the robot moved, has to be less than the robot could drive.
+     * @param timestamp The time of the estimate in seconds
+     * @param estimate The estimated pose
+     * @return If the estimate can be used
+     */
+    private boolean isConsistent(double timestamp, Pose2d estimate){
+      double lastTimestamp = estimates.getLatestTimestamp();
+      if(estimates.isEmpty() || timestamp < lastTimestamp){
+        return false;
+      }
+      estimates.getPoseAt(lastTimestamp, lastEstimate);
+      double dx = estimate.getX() - lastEstimate[0];
+      double dy = estimate.getY() - lastEstimate[1];
+      if(robotPoseHistory != null && robotPoseHistory.getPoseAt(lastTimestamp, robotBefore)){
+        robotPoseHistory.getPoseAt(timestamp, robotAfter);
+        dx -= robotAfter[0] - robotBefore[0];
+        dy -= robotAfter[1] - robotBefore[1];
+      }
+      return Math.hypot(dx, dy) <= DriveConstants.kMaxSpeed*1.25*(timestamp-lastTimestamp);
+    }
+
     /**
      * Gets the pose using manual calculations
      * @param yaw The yaw of the robot to use in the calculation
@@ -505,25 +614,7 @@ public class Vision {
       if(id <= 0 || id > FieldConstants.APRIL_TAGS.size()){
         return null;
       }
-      // Stores target pose and robot to camera transformation for easy access later
-      Pose3d targetPose = FieldConstants.APRIL_TAGS.get(id-1).pose;
-      Transform3d robotToCamera = photonPoseEstimator.getRobotToCameraTransform();
-
-      // Get the tag position relative to the robot, assuming the robot is on the ground
-      Translation3d translation = new Translation3d(1, new Rotation3d(0, -Units.degreesToRadians(target.getPitch()), -Units.degreesToRadians(target.getYaw())));
-      translation = translation.rotateBy(robotToCamera.getRotation());
-      translation = translation.times((targetPose.getZ()-robotToCamera.getZ())/translation.getZ());
-      translation = translation.plus(robotToCamera.getTranslation());
-      translation = translation.rotateBy(new Rotation3d(0, 0, yaw));
-
-      // Invert it to get the robot position relative to the April tag
-      translation = translation.times(-1);
-      // Multiply by a constant. I don't know why this works, but it was consistently 10% off in 2023 Fall Semester
-      translation = translation.times(VisionConstants.DISTANCE_SCALE);
-      // Get the field relative robot pose
-      translation = translation.plus(targetPose.getTranslation());
-      // Return as a Pose2d
-      return new Pose2d(translation.toTranslation2d(), new Rotation2d(yaw));
+      return getManualPose(target.getPitch(), target.getYaw(), FieldConstants.APRIL_TAGS.get(id-1).pose, photonPoseEstimator.getRobotToCameraTransform(), yaw);
     }
 
     /**
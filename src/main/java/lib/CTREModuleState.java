@@ -28,6 +28,32 @@ public class CTREModuleState {
         return new SwerveModuleState(targetSpeed, Rotation2d.fromDegrees(targetAngle));
     }
 
+    /**
+     * Same as {@link #optimize(SwerveModuleState, Rotation2d)}, but writes the result into an existing state
+     * instead of allocating a new one. The output's angle is only replaced if it changed.
+     *
+     * @param desiredState        The desired state.
+     * @param currentAngleDegrees The current module angle in degrees.
+     * @param output              The state to write the optimized state to. This may be desiredState.
+     */
+    public static void optimize(SwerveModuleState desiredState, double currentAngleDegrees, SwerveModuleState output) {
+        double targetAngle = placeInAppropriate0To360Scope(currentAngleDegrees, desiredState.angle.getDegrees());
+        double targetSpeed = desiredState.speedMetersPerSecond;
+        double delta = targetAngle - currentAngleDegrees;
+        if (Math.abs(delta) > 90) {
+            targetSpeed = -targetSpeed;
+            if (delta > 90) {
+                targetAngle -= 180;
+            } else {
+                targetAngle += 180;
+            }
+        }
+        output.speedMetersPerSecond = targetSpeed;
+        if (output.angle.getRadians() != Math.toRadians(targetAngle)) {
+            output.angle = Rotation2d.fromDegrees(targetAngle);
+        }
+    }
+
     /**
      * @param scopeReference Current Angle
      * @param newAngle       Target Angle
@@ -0,0 +1,54 @@
+package frc.robot.commands;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import frc.robot.subsystems.Drivetrain;
+import frc.robot.subsystems.gpm.Arm;
+import frc.robot.subsystems.gpm.Shooter;
+import frc.robot.subsystems.gpm.StorageIndex;
+import frc.robot.util.AllocationGuard;
+
+public class ShootTest {
+    // The most execute can allocate each loop. Lower this as the aiming math makes fewer poses.
+    private static final double EXECUTE_BYTES_PER_CALL = AllocationGuard.UNMEASURED;
+
+    private Shooter shooter;
+    private Arm arm;
+    private Drivetrain drive;
+    private StorageIndex index;
+    private Shoot shoot;
+
+    @BeforeEach
+    public void prepare() {
+        assert HAL.initialize(500, 0);
+        shooter = new Shooter();
+        arm = new Arm();
+        drive = new Drivetrain(null);
+        index = new StorageIndex();
+        shoot = new Shoot(shooter, arm, drive, index);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        // shut down the motors to allow more tests.
+        shooter.close();
+        arm.close();
+        drive.close();
+        index.close();
+    }
+
+    /**
+     * Shooting on the move aims the drivetrain, arm, and shooter every loop, so it should create as little
+     * garbage as it can.
+     */
+    @Test
+    public void executeAllocationTest() {
+        drive.setChassisSpeeds(new ChassisSpeeds(1, 0.5, 0), false);
+        shoot.initialize();
+        AllocationGuard.assertBytesPerCall("Shoot.execute", 5000, EXECUTE_BYTES_PER_CALL, shoot::execute);
+    }
+}
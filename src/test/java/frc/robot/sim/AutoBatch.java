@@ -0,0 +1,226 @@
+package frc.robot.sim;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import edu.wpi.first.hal.AllianceStationID;
+
+/**
+ * Runs every autonomous in the Auto tab for both alliances and compares them
+ * <p>
+ * Each autonomous runs in its own JVM with {@link AutoSimulation#main(String...)}, since the HAL and command
+ * scheduler can only run one robot per JVM. The workers use the same classpath and native libraries as this JVM,
+ * and as many run at once as there are cores.
+ */
+public class AutoBatch {
+    /** The driver stations to run each autonomous from, one per alliance */
+    public static final AllianceStationID[] STATIONS = {AllianceStationID.Blue1, AllianceStationID.Red1};
+    /** How long a worker can take before it is stopped */
+    public static final long WORKER_TIMEOUT_SECONDS = 300;
+    // How much of a failed worker's output to keep
+    private static final int OUTPUT_LINES = 20;
+
+    /**
+     * One autonomous from one driver station
+     * @param autoName The name of the autonomous
+     * @param station The driver station
+     * @param result What happened, or null if the worker failed
+     * @param error The end of the worker's output if it failed, or null
+     */
+    public record Run(String autoName, AllianceStationID station, AutoSimulation.Result result, String error) {
+    }
+
+    private AutoBatch() {
+    }
+
+    /**
+     * Runs every autonomous from every station in {@link #STATIONS}
+     * @param workers How many worker JVMs to run at once
+     * @return The runs in the order the autonomous options were added, with each one's stations next to each other
+     * @throws IOException if the autonomous names couldn't be found
+     */
+    public static List<Run> runAll(int workers) throws IOException, InterruptedException {
+        WorkerOutput list = runWorker(AutoSimulation.LIST_ARGUMENT);
+        if (list.exitCode() != 0) {
+            throw new IOException("Could not list the autonomous options:\n" + list.tail());
+        }
+        List<String> names = list.lines(AutoSimulation.NAME_PREFIX);
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        List<Future<Run>> futures = new ArrayList<>();
+        for (String name : names) {
+            for (AllianceStationID station : STATIONS) {
+                futures.add(executor.submit(() -> run(name, station)));
+            }
+        }
+        executor.shutdown();
+
+        List<Run> runs = new ArrayList<>();
+        for (Future<Run> future : futures) {
+            try {
+                runs.add(future.get());
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        return runs;
+    }
+
+    /**
+     * Makes a Markdown report comparing the runs, with the best estimated score first
+     * @param runs The runs from {@link #runAll(int)}
+     * @return The report
+     */
+    public static String report(List<Run> runs) {
+        List<Run> sorted = new ArrayList<>(runs);
+        sorted.sort(Comparator
+            .comparing((Run run) -> run.result() == null)
+            .thenComparing(run -> run.result() == null ? 0 : -run.result().estimatedScore())
+            .thenComparing(run -> run.result() == null ? 0 : completionTimeOrEnd(run.result())));
+
+        StringBuilder builder = new StringBuilder();
+        builder.append("# Autonomous comparison\n\n");
+        builder.append("Scores assume every shot goes in. Loop times are real time per 20 ms loop.\n\n");
+        builder.append("| Auto | Station | Done (s) | Paths | Shots | Est. score | Left zone | Pose error (m) | Heading error (deg) "
+            + "| Loop mean (ms) | Loop p99 (ms) | Loop max (ms) | Wall (s) |\n");
+        builder.append("|---|---|---|---|---|---|---|---|---|---|---|---|---|\n");
+        List<Run> failed = new ArrayList<>();
+        for (Run run : sorted) {
+            AutoSimulation.Result result = run.result();
+            if (result == null) {
+                failed.add(run);
+                builder.append(String.format("| %s | %s | failed | | | | | | | | | | |\n", run.autoName(), run.station()));
+                continue;
+            }
+            builder.append(String.format("| %s | %s | %.2f | %d | %d | %d | %s | %.3f | %.1f | %.2f | %.2f | %.2f | %.1f |\n",
+                run.autoName(), run.station(), result.completionTime(), result.pathTimes().size(), result.shotsFired(),
+                result.estimatedScore(), result.leftStartingZone() ? "yes" : "no", result.finalPoseError(),
+                result.finalHeadingError(), result.meanLoopTime(), result.p99LoopTime(), result.maxLoopTime(),
+                result.wallTime()));
+        }
+
+        for (Run run : failed) {
+            builder.append(String.format("\n## %s from %s failed\n\n```\n%s\n```\n", run.autoName(), run.station(), run.error()));
+        }
+        return builder.toString();
+    }
+
+    // Autos without paths sort after the ones that finished their paths
+    private static double completionTimeOrEnd(AutoSimulation.Result result) {
+        double time = result.completionTime();
+        return Double.isNaN(time) ? AutoSimulation.AUTO_LENGTH : time;
+    }
+
+    private static Run run(String autoName, AllianceStationID station) throws IOException, InterruptedException {
+        WorkerOutput output = runWorker(autoName, station.name());
+        List<String> results = output.lines(AutoSimulation.RESULT_PREFIX);
+        if (output.exitCode() != 0 || results.isEmpty()) {
+            return new Run(autoName, station, null, "Exit code " + output.exitCode() + "\n" + output.tail());
+        }
+        return new Run(autoName, station, AutoSimulation.Result.parse(results.get(0)), null);
+    }
+
+    /**
+     * What a worker printed
+     * @param exitCode The worker's exit code
+     * @param prefixed The lines that start with one of AutoSimulation's prefixes
+     * @param tail The last lines it printed, for finding out why it failed
+     */
+    private record WorkerOutput(int exitCode, List<String> prefixed, String tail) {
+        List<String> lines(String prefix) {
+            List<String> lines = new ArrayList<>();
+            for (String line : prefixed) {
+                if (line.startsWith(prefix)) {
+                    lines.add(line.substring(prefix.length()));
+                }
+            }
+            return lines;
+        }
+    }
+
+    private static WorkerOutput runWorker(String... args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("-Djava.library.path=" + System.getProperty("java.library.path"));
+        command.add(AutoSimulation.class.getName());
+        command.addAll(List.of(args));
+        Path directory = createWorkerDirectory();
+        try {
+            // The environment is inherited, which has the native library path on Linux and macOS
+            return runWorker(new ProcessBuilder(command).directory(directory.toFile()).redirectErrorStream(true));
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    private static WorkerOutput runWorker(ProcessBuilder builder) throws IOException, InterruptedException {
+        Process process = builder.start();
+        // Stop a stuck worker, which also ends its output
+        CompletableFuture<Void> watchdog = CompletableFuture.runAsync(
+            process::destroyForcibly, CompletableFuture.delayedExecutor(WORKER_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        List<String> prefixed = new ArrayList<>();
+        Deque<String> tail = new ArrayDeque<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(AutoSimulation.RESULT_PREFIX) || line.startsWith(AutoSimulation.NAME_PREFIX)) {
+                    prefixed.add(line);
+                }
+                tail.addLast(line);
+                if (tail.size() > OUTPUT_LINES) {
+                    tail.removeFirst();
+                }
+            }
+        }
+        int exitCode = process.waitFor();
+        watchdog.cancel(false);
+        return new WorkerOutput(exitCode, prefixed, String.join("\n", tail));
+    }
+
+    /**
+     * Makes a directory for one worker to run in. The robot writes its logs and simulation files to its working
+     * directory, so workers running at once can't share one. The robot loads paths from src/main/deploy in its
+     * working directory when simulated, so that is copied in.
+     * @return The directory
+     */
+    private static Path createWorkerDirectory() throws IOException {
+        Path directory = Files.createTempDirectory("AutoBatch");
+        Path deploy = Path.of("src", "main", "deploy").toAbsolutePath();
+        Path copy = directory.resolve(Path.of("src", "main", "deploy"));
+        Files.createDirectories(copy.getParent());
+        try (Stream<Path> files = Files.walk(deploy)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.copy(file, copy.resolve(deploy.relativize(file).toString()));
+            }
+        }
+        return directory;
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        // Delete the files before the directories they are in
+        try (Stream<Path> files = Files.walk(directory).sorted(Comparator.reverseOrder())) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+}
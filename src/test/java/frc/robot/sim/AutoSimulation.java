@@ -0,0 +1,304 @@
+package frc.robot.sim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.pathplanner.lib.util.PathPlannerLogging;
+
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.RobotContainer;
+import frc.robot.constants.Constants;
+import frc.robot.constants.miscConstants.FieldConstants;
+import frc.robot.constants.swerve.DriveConstants;
+import frc.robot.subsystems.gpm.Intake;
+
+/**
+ * Runs an autonomous in simulation as fast as the computer can
+ * <p>
+ * The robot is run by {@link HeadlessRobot}, one loop at a time. Paths are timed with PathPlanner's logging
+ * callbacks, which ChoreoPathCommand also calls. A shot is counted when the index starts feeding forward while the
+ * shooter is spinning and the intake isn't pulling in a note.
+ * <p>
+ * The loop times are how long each step took in real time, which is the robot's loop plus a little overhead
+ * from the simulation. The score is an estimate from the shots and whether the robot left its starting zone.
+ * <p>
+ * WPILib's HAL and the command scheduler are global, so only one autonomous can run per JVM. {@link #main(String...)}
+ * runs one in its own JVM for {@link AutoBatch}.
+ */
+public class AutoSimulation {
+    /** How long autonomous lasts in seconds */
+    public static final double AUTO_LENGTH = 15;
+    /** How fast the shooter has to spin for the index feeding it to count as a shot */
+    public static final double MIN_SHOT_RPM = 500;
+    /** Points for a note in the speaker during autonomous */
+    public static final int SPEAKER_POINTS = 5;
+    /** Points for leaving the starting zone during autonomous */
+    public static final int LEAVE_POINTS = 2;
+    /** How far the starting line is from the alliance wall in meters */
+    public static final double STARTING_LINE = Units.inchesToMeters(76.1);
+
+    /** Lines the worker JVMs print start with these so they can be found between the robot's output */
+    static final String RESULT_PREFIX = "AUTO_RESULT\t";
+    static final String NAME_PREFIX = "AUTO_NAME\t";
+    /** The argument that makes {@link #main(String...)} print the autonomous names instead of running one */
+    static final String LIST_ARGUMENT = "--list";
+
+    /**
+     * What happened during a simulated autonomous
+     * @param autoName The name of the autonomous
+     * @param station The driver station the robot was at
+     * @param pathTimes How long each path took in seconds, in the order they finished
+     * @param pathEndTimes When each path finished in seconds after autonomous started
+     * @param shotsFired How many notes were fed into the shooter
+     * @param finalPoseError How far the robot ended from the last pose it was told to drive to in meters,
+     *     NaN if there were no paths
+     * @param finalHeadingError The difference between the final heading and the last target heading in degrees,
+     *     NaN if there were no paths
+     * @param leftStartingZone If the robot ended completely outside of its starting zone
+     * @param meanLoopTime The average loop time in milliseconds
+     * @param p99LoopTime The 99th percentile loop time in milliseconds
+     * @param maxLoopTime The longest loop time in milliseconds
+     * @param wallTime How long the simulation took in real time in seconds
+     */
+    public record Result(
+        String autoName,
+        AllianceStationID station,
+        List<Double> pathTimes,
+        List<Double> pathEndTimes,
+        int shotsFired,
+        double finalPoseError,
+        double finalHeadingError,
+        boolean leftStartingZone,
+        double meanLoopTime,
+        double p99LoopTime,
+        double maxLoopTime,
+        double wallTime
+    ) {
+        /**
+         * @return When the last path finished in seconds after autonomous started, NaN if there were no paths
+         */
+        public double completionTime() {
+            return pathEndTimes.isEmpty() ? Double.NaN : pathEndTimes.get(pathEndTimes.size() - 1);
+        }
+
+        /**
+         * @return The points the autonomous would score if every shot went in
+         */
+        public int estimatedScore() {
+            return shotsFired * SPEAKER_POINTS + (leftStartingZone ? LEAVE_POINTS : 0);
+        }
+
+        /**
+         * @return A summary for people to read
+         */
+        public String summary() {
+            StringBuilder builder = new StringBuilder();
+            builder.append(String.format("Auto \"%s\" from %s (%.2f s of autonomous in %.2f s)%n", autoName, station, AUTO_LENGTH, wallTime));
+            for (int i = 0; i < pathTimes.size(); i++) {
+                builder.append(String.format("  Path %d: %.2f s, done at %.2f s%n", i + 1, pathTimes.get(i), pathEndTimes.get(i)));
+            }
+            builder.append(String.format("  Shots fired: %d%n", shotsFired));
+            builder.append(String.format("  Final pose error: %.3f m, %.1f deg%n", finalPoseError, finalHeadingError));
+            builder.append(String.format("  Left starting zone: %b%n", leftStartingZone));
+            builder.append(String.format("  Estimated score: %d%n", estimatedScore()));
+            builder.append(String.format("  Loop time: mean %.2f ms, p99 %.2f ms, max %.2f ms%n", meanLoopTime, p99LoopTime, maxLoopTime));
+            return builder.toString();
+        }
+
+        /**
+         * @return The result on one line for a worker JVM to print, see {@link #parse(String)}
+         */
+        String toLine() {
+            return String.join("\t",
+                autoName,
+                station.name(),
+                joinTimes(pathTimes),
+                joinTimes(pathEndTimes),
+                Integer.toString(shotsFired),
+                Double.toString(finalPoseError),
+                Double.toString(finalHeadingError),
+                Boolean.toString(leftStartingZone),
+                Double.toString(meanLoopTime),
+                Double.toString(p99LoopTime),
+                Double.toString(maxLoopTime),
+                Double.toString(wallTime)
+            );
+        }
+
+        /**
+         * Reads a result printed by {@link #toLine()}
+         * @param line The line without the prefix
+         * @return The result
+         */
+        static Result parse(String line) {
+            String[] fields = line.split("\t", -1);
+            return new Result(
+                fields[0],
+                AllianceStationID.valueOf(fields[1]),
+                splitTimes(fields[2]),
+                splitTimes(fields[3]),
+                Integer.parseInt(fields[4]),
+                Double.parseDouble(fields[5]),
+                Double.parseDouble(fields[6]),
+                Boolean.parseBoolean(fields[7]),
+                Double.parseDouble(fields[8]),
+                Double.parseDouble(fields[9]),
+                Double.parseDouble(fields[10]),
+                Double.parseDouble(fields[11])
+            );
+        }
+
+        private static String joinTimes(List<Double> times) {
+            StringBuilder builder = new StringBuilder();
+            for (double time : times) {
+                if (builder.length() > 0) {
+                    builder.append(',');
+                }
+                builder.append(time);
+            }
+            return builder.toString();
+        }
+
+        private static List<Double> splitTimes(String times) {
+            if (times.isEmpty()) {
+                return List.of();
+            }
+            return Arrays.stream(times.split(",")).map(Double::valueOf).toList();
+        }
+    }
+
+    // Written by the path logging callbacks on the robot thread, read after the robot stops
+    private final List<Double> pathTimes = new ArrayList<>();
+    private final List<Double> pathEndTimes = new ArrayList<>();
+    private double pathStartTime;
+    private double autoStartTime;
+    private Pose2d targetPose = null;
+
+    private AutoSimulation() {
+    }
+
+    /**
+     * Runs an autonomous for the blue alliance
+     * @param autoName The name of the autonomous in the Auto tab
+     * @return What happened
+     */
+    public static Result run(String autoName) {
+        return run(autoName, AllianceStationID.Blue1);
+    }
+
+    /**
+     * Runs an autonomous
+     * @param autoName The name of the autonomous in the Auto tab
+     * @param station The driver station the robot is at, which decides if paths are flipped
+     * @return What happened
+     */
+    public static Result run(String autoName, AllianceStationID station) {
+        return new AutoSimulation().simulate(autoName, station);
+    }
+
+    /**
+     * Boots the robot and gets the names of its autonomous options
+     * @return The names in the order they are in the Auto tab
+     */
+    public static List<String> listAutos() {
+        HeadlessRobot robot = new HeadlessRobot(AllianceStationID.Blue1, true);
+        List<String> names = List.copyOf(robot.getRobot().getRobotContainer().getAutonomousNames());
+        robot.stop();
+        return names;
+    }
+
+    /**
+     * Runs one autonomous and prints the result for {@link AutoBatch}. This exits the JVM when it is done, since
+     * the robot's libraries leave threads running.
+     * @param args The autonomous name and the driver station, or {@value #LIST_ARGUMENT} to print the names
+     */
+    public static void main(String... args) {
+        try {
+            if (args[0].equals(LIST_ARGUMENT)) {
+                for (String name : listAutos()) {
+                    System.out.println(NAME_PREFIX + name);
+                }
+            } else {
+                System.out.println(RESULT_PREFIX + run(args[0], AllianceStationID.valueOf(args[1])).toLine());
+            }
+            System.out.flush();
+            System.exit(0);
+        } catch (Throwable e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private Result simulate(String autoName, AllianceStationID station) {
+        long wallStart = System.nanoTime();
+        PathPlannerLogging.setLogActivePathCallback(poses -> {
+            double time = Timer.getFPGATimestamp();
+            if (!poses.isEmpty()) {
+                pathStartTime = time;
+            } else {
+                pathTimes.add(time - pathStartTime);
+                pathEndTimes.add(time - autoStartTime);
+            }
+        });
+        PathPlannerLogging.setLogTargetPoseCallback(pose -> targetPose = pose);
+
+        HeadlessRobot robot = new HeadlessRobot(station, true);
+        RobotContainer container = robot.getRobot().getRobotContainer();
+        container.setAutonomousCommand(autoName);
+        robot.setMode(true, true);
+        autoStartTime = Timer.getFPGATimestamp();
+
+        int shotsFired = 0;
+        boolean wasFeeding = false;
+        int loops = (int) Math.round(AUTO_LENGTH / Constants.LOOP_TIME);
+        double[] loopTimes = new double[loops];
+        for (int i = 0; i < loops; i++) {
+            long loopStart = System.nanoTime();
+            robot.step(Constants.LOOP_TIME);
+            loopTimes[i] = (System.nanoTime() - loopStart) / 1e6;
+            boolean feeding = isFeedingShooter(container);
+            if (feeding && !wasFeeding) {
+                shotsFired++;
+            }
+            wasFeeding = feeding;
+        }
+
+        robot.setMode(false, true);
+        robot.step(Constants.LOOP_TIME);
+        Pose2d pose = container.getDrivetrain().getPose();
+        robot.stop();
+
+        double poseError = Double.NaN;
+        double headingError = Double.NaN;
+        if (targetPose != null) {
+            poseError = pose.getTranslation().getDistance(targetPose.getTranslation());
+            headingError = Math.abs(pose.getRotation().minus(targetPose.getRotation()).getDegrees());
+        }
+        // The field's origin is on the blue side, so the red starting line is measured from the other wall
+        double distanceFromWall = station.name().startsWith("Blue") ? pose.getX() : FieldConstants.kFieldLength - pose.getX();
+        boolean leftStartingZone = distanceFromWall - DriveConstants.kRobotWidthWithBumpers / 2 > STARTING_LINE;
+
+        Arrays.sort(loopTimes);
+        double totalLoopTime = 0;
+        for (double loopTime : loopTimes) {
+            totalLoopTime += loopTime;
+        }
+        return new Result(
+            autoName, station, List.copyOf(pathTimes), List.copyOf(pathEndTimes), shotsFired, poseError, headingError,
+            leftStartingZone, totalLoopTime / loops, HeadlessRobot.percentile(loopTimes, 0.99), loopTimes[loops - 1],
+            (System.nanoTime() - wallStart) / 1e9
+        );
+    }
+
+    private static boolean isFeedingShooter(RobotContainer container) {
+        Intake intake = container.getIntake();
+        boolean intaking = intake != null && intake.getMode() != null && intake.getMode().getPower() > 0;
+        return container.getStorageIndex().getSpeed() > 0
+            && Math.abs(container.getShooter().getLeftMotorRPM()) > MIN_SHOT_RPM
+            && !intaking;
+    }
+}
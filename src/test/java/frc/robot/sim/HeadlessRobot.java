@@ -0,0 +1,108 @@
+package frc.robot.sim;
+
+import java.util.function.Supplier;
+
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.Preferences;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import frc.robot.Robot;
+import frc.robot.RobotId;
+
+/**
+ * Runs a Robot under the HAL simulation with the time paused, so it can be stepped as fast as the computer can
+ * <p>
+ * {@link SimHooks#stepTiming(double)} returns once the robot is waiting for its next loop, so the robot's state can
+ * be read and the driver station changed between steps. The HAL and command scheduler are global, so there can only
+ * be one of these per JVM.
+ */
+public class HeadlessRobot {
+    private final Robot robot;
+    private final Thread robotThread;
+
+    /**
+     * Starts the competition robot disabled, and waits for robotInit to finish
+     * @param robot The robot, which is made after the HAL is initialized
+     * @param station The driver station the robot is at
+     * @param autonomous If the robot starts in autonomous instead of teleop
+     */
+    public HeadlessRobot(Supplier<Robot> robot, AllianceStationID station, boolean autonomous) {
+        if (!HAL.initialize(500, 0)) {
+            throw new IllegalStateException("The HAL simulation could not be initialized");
+        }
+        SimHooks.pauseTiming();
+        // Keep NetworkTables in this process. RobotBase doesn't start a server if it is already started, so
+        // parallel robots don't fight over the server's ports, and the Preferences below aren't saved to a file.
+        NetworkTableInstance.getDefault().startLocal();
+        // The autos and the gpm are on the competition robot
+        Preferences.setString(RobotId.ROBOT_ID_KEY, RobotId.SwerveCompetition.name());
+        DriverStationSim.setAllianceStationId(station);
+        DriverStationSim.setDsAttached(true);
+        setMode(false, autonomous);
+
+        this.robot = robot.get();
+        robotThread = new Thread(this.robot::startCompetition, "Robot");
+        robotThread.setDaemon(true);
+        robotThread.start();
+        // Wait for robotInit, then for the robot to wait for its first loop
+        SimHooks.waitForProgramStart();
+        SimHooks.stepTiming(0);
+    }
+
+    /**
+     * Starts the competition robot disabled, and waits for robotInit to finish
+     * @param station The driver station the robot is at
+     * @param autonomous If the robot starts in autonomous instead of teleop
+     */
+    public HeadlessRobot(AllianceStationID station, boolean autonomous) {
+        this(Robot::new, station, autonomous);
+    }
+
+    public Robot getRobot() {
+        return robot;
+    }
+
+    /**
+     * Sets the mode from the driver station, which the robot sees on its next loop
+     * @param enabled If the robot is enabled
+     * @param autonomous If the robot is in autonomous instead of teleop
+     */
+    public void setMode(boolean enabled, boolean autonomous) {
+        DriverStationSim.setAutonomous(autonomous);
+        DriverStationSim.setEnabled(enabled);
+        DriverStationSim.notifyNewData();
+    }
+
+    /**
+     * Runs the robot's loops for some time
+     * @param seconds How long to run in simulated time
+     */
+    public void step(double seconds) {
+        SimHooks.stepTiming(seconds);
+    }
+
+    /**
+     * Stops the robot's loop
+     */
+    public void stop() {
+        robot.endCompetition();
+        try {
+            robotThread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Finds a percentile of some samples
+     * @param sorted The samples in ascending order
+     * @param percentile The percentile from 0 to 1
+     * @return The smallest sample that is at least that fraction of the samples
+     */
+    public static double percentile(double[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(index, 0)];
+    }
+}
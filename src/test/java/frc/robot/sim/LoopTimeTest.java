@@ -0,0 +1,128 @@
+package frc.robot.sim;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.wpilibj.simulation.XboxControllerSim;
+import frc.robot.Robot;
+import frc.robot.constants.Constants;
+
+/**
+ * Fails if robotPeriodic() gets too slow for the roboRIO
+ * <p>
+ * The competition robot is driven around in teleop, shoots on the move with the operator's trigger, and runs an
+ * autonomous, while the time each robotPeriodic() takes is measured. The 99th percentile has to be within the
+ * budget, which is the roboRIO's budget divided by how much faster this computer is than a roboRIO.
+ * <p>
+ * The budget is set with the loopTimeBudget system property in milliseconds on the roboRIO, and the speed
+ * difference with roborioSlowdown. The autonomous is set with loopTimeAuto. This runs in its own JVM with
+ * ./gradlew loopTimeTest, since it starts the whole robot. It isn't part of ./gradlew build, since the time depends
+ * on how busy the computer running it is.
+ */
+public class LoopTimeTest {
+    // Cycles run before measuring so the JIT compiles the loop
+    private static final int WARMUP_CYCLES = 500;
+    private static final int DRIVE_CYCLES = 2000;
+    private static final int SHOOT_CYCLES = 1500;
+    private static final int AUTO_CYCLES = (int) Math.round(AutoSimulation.AUTO_LENGTH / Constants.LOOP_TIME);
+    // How often the operator presses the shoot trigger again, in cycles
+    private static final int SHOT_PERIOD = 100;
+
+    private static final double BUDGET = Double.parseDouble(System.getProperty("loopTimeBudget", "20"));
+    private static final double ROBORIO_SLOWDOWN = Double.parseDouble(System.getProperty("roborioSlowdown", "4"));
+    private static final String AUTO = System.getProperty("loopTimeAuto", "5 piece (original-tested)");
+
+    /**
+     * Measures how long robotPeriodic() takes
+     */
+    private static class MeasuredRobot extends Robot {
+        private final double[] times = new double[DRIVE_CYCLES + SHOOT_CYCLES + AUTO_CYCLES];
+        private volatile int count = 0;
+        private volatile boolean measuring = false;
+
+        @Override
+        public void robotPeriodic() {
+            long start = System.nanoTime();
+            super.robotPeriodic();
+            if (measuring && count < times.length) {
+                times[count] = (System.nanoTime() - start) / 1e6;
+                count++;
+            }
+        }
+    }
+
+    private MeasuredRobot robot;
+    private HeadlessRobot headless;
+    private XboxControllerSim driver;
+    private XboxControllerSim operator;
+
+    @Test
+    public void loopTimeTest() {
+        headless = new HeadlessRobot(MeasuredRobot::new, AllianceStationID.Blue1, false);
+        robot = (MeasuredRobot) headless.getRobot();
+        driver = new XboxControllerSim(Constants.DRIVER_JOY);
+        operator = new XboxControllerSim(Constants.OPERATOR_JOY);
+        headless.setMode(true, false);
+
+        for (int i = 0; i < WARMUP_CYCLES; i++) {
+            drive(i);
+            headless.step(Constants.LOOP_TIME);
+        }
+        robot.measuring = true;
+
+        // Teleop driving in a circle while turning
+        for (int i = 0; i < DRIVE_CYCLES; i++) {
+            drive(i);
+            headless.step(Constants.LOOP_TIME);
+        }
+
+        // Shooting on the move, which aims the drivetrain, arm, and shooter every loop
+        for (int i = 0; i < SHOOT_CYCLES; i++) {
+            drive(i);
+            operator.setRightTriggerAxis(i % SHOT_PERIOD < SHOT_PERIOD / 2 ? 1 : 0);
+            operator.notifyNewData();
+            headless.step(Constants.LOOP_TIME);
+        }
+        operator.setRightTriggerAxis(0);
+        driver.setLeftX(0);
+        driver.setLeftY(0);
+        driver.setRightX(0);
+        driver.notifyNewData();
+
+        robot.getRobotContainer().setAutonomousCommand(AUTO);
+        headless.setMode(true, true);
+        for (int i = 0; i < AUTO_CYCLES; i++) {
+            headless.step(Constants.LOOP_TIME);
+        }
+        headless.setMode(false, true);
+        headless.step(Constants.LOOP_TIME);
+        robot.measuring = false;
+        headless.stop();
+
+        double[] times = Arrays.copyOf(robot.times, robot.count);
+        Arrays.sort(times);
+        double p99 = HeadlessRobot.percentile(times, 0.99);
+        double budget = BUDGET / ROBORIO_SLOWDOWN;
+        String stats = String.format(
+            "robotPeriodic over %d cycles: mean %.3f ms, p50 %.3f ms, p99 %.3f ms, max %.3f ms, budget %.3f ms",
+            times.length, Arrays.stream(times).average().orElse(Double.NaN), HeadlessRobot.percentile(times, 0.5), p99,
+            times[times.length - 1], budget);
+        System.out.println(stats);
+        assertTrue(p99 <= budget, stats);
+    }
+
+    /**
+     * Moves the driver's sticks for one cycle
+     */
+    private void drive(int cycle) {
+        double angle = cycle * Constants.LOOP_TIME;
+        driver.setLeftX(0.8 * Math.cos(angle));
+        driver.setLeftY(0.8 * Math.sin(angle));
+        driver.setRightX(0.5 * Math.sin(0.3 * angle));
+        driver.notifyNewData();
+    }
+}
@@ -0,0 +1,29 @@
+package frc.robot.sim;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Runs every autonomous for both alliances and writes a report to the path in the autoReport system property.
+ * This is run by ./gradlew simulateAllAutos, and is skipped by the normal tests.
+ */
+public class SimulateAllAutos {
+    @Test
+    @EnabledIfSystemProperty(named = "autoReport", matches = ".+")
+    public void simulateAllAutos() throws IOException, InterruptedException {
+        int workers = Integer.getInteger("workers", Runtime.getRuntime().availableProcessors());
+        List<AutoBatch.Run> runs = AutoBatch.runAll(workers);
+        String report = AutoBatch.report(runs);
+
+        Path path = Path.of(System.getProperty("autoReport"));
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, report);
+        System.out.print(report);
+        System.out.println("Wrote " + path.toAbsolutePath());
+    }
+}
@@ -0,0 +1,20 @@
+package frc.robot.sim;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import edu.wpi.first.hal.AllianceStationID;
+
+/**
+ * Runs the autonomous named by the auto system property and prints what happened. This is run by
+ * ./gradlew simulateAuto -Pauto="3 piece [v3]", and is skipped by the normal tests.
+ */
+public class SimulateAuto {
+    @Test
+    @EnabledIfSystemProperty(named = "auto", matches = ".+")
+    public void simulateAuto() {
+        AllianceStationID station = AllianceStationID.valueOf(System.getProperty("station", "Blue1"));
+        AutoSimulation.Result result = AutoSimulation.run(System.getProperty("auto"), station);
+        System.out.print(result.summary());
+    }
+}
@@ -0,0 +1,53 @@
+package frc.robot.subsystems;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import frc.robot.util.AllocationGuard;
+
+public class DrivetrainTest {
+    // The most periodic can allocate each loop. Lower this as the odometry and logging allocate less.
+    private static final double PERIODIC_BYTES_PER_CALL = AllocationGuard.UNMEASURED;
+
+    Drivetrain drive;
+
+    @BeforeEach
+    public void prepare() {
+        assert HAL.initialize(500, 0);
+        drive = new Drivetrain(null);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        // shut down the motors to allow more tests.
+        drive.close();
+    }
+
+    /**
+     * Driving runs every loop, so it shouldn't create garbage.
+     * <p>
+     * Module angles are immutable Rotation2ds, so a new angle is only made while the modules are steering.
+     * The speeds are constant so the setpoint settles during the warmup.
+     */
+    @Test
+    public void setChassisSpeedsAllocationTest() {
+        ChassisSpeeds speeds = new ChassisSpeeds(2, 1, 1);
+        AllocationGuard.assertNoAllocations("Drivetrain.setChassisSpeeds", 5000,
+            () -> drive.setChassisSpeeds(speeds, false));
+    }
+
+    /**
+     * The drivetrain's periodic updates odometry and publishes its state every loop. It still makes poses and
+     * publishes arrays, so it has a budget instead of having to be allocation free.
+     */
+    @Test
+    public void periodicAllocationTest() {
+        // There is no camera, so don't try to use it once vision turns on
+        drive.setVisionEnabled(false);
+        drive.setChassisSpeeds(new ChassisSpeeds(2, 1, 1), false);
+        AllocationGuard.assertBytesPerCall("Drivetrain.periodic", 5000, PERIODIC_BYTES_PER_CALL, drive::periodic);
+    }
+}
@@ -7,9 +7,11 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import edu.wpi.first.hal.HAL;
 import edu.wpi.first.math.util.Units;
 import frc.robot.constants.ArmConstants;
 import frc.robot.constants.Constants;
+import frc.robot.util.AllocationGuard;
 
 public class ArmTest {
     @BeforeEach
@@ -120,4 +122,18 @@ public class ArmTest {
         // simulation is about 2 amperes more
         assertEquals(3.8, ampMotors/nMotors, 0.1);
     }
+
+    /**
+     * The arm's periodic runs every loop, so it shouldn't create garbage.
+     */
+    @Test
+    public void periodicAllocationTest() {
+        assert HAL.initialize(500, 0);
+        Arm arm = new Arm();
+        try {
+            AllocationGuard.assertNoAllocations("Arm.periodic", 5000, arm::periodic);
+        } finally {
+            arm.close();
+        }
+    }
 }
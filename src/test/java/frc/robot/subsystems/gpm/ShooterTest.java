@@ -1,6 +1,7 @@
 package frc.robot.subsystems.gpm;
 
 import edu.wpi.first.math.util.Units;
+import frc.robot.util.AllocationGuard;
 import lib.PolynomialRegression;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -9,6 +10,9 @@ import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 public class ShooterTest {
+    // The most periodic can allocate each loop. Lower this to 0 once it is allocation free.
+    private static final double PERIODIC_BYTES_PER_CALL = AllocationGuard.UNMEASURED;
+
     Shooter shooter = new Shooter();
     public boolean bNoise = false;
 
@@ -84,6 +88,15 @@ public class ShooterTest {
 //        assertTrue(shooter.atSetpoint());
     }
 
+    /**
+     * The shooter's periodic runs every loop, so it should create as little garbage as it can.
+     */
+    @Test
+    public void periodicAllocationTest() {
+        shooter.setTargetRPM(3000.0, 3000.0);
+        AllocationGuard.assertBytesPerCall("Shooter.periodic", 5000, PERIODIC_BYTES_PER_CALL, shooter::periodic);
+    }
+
     // We have shooter data at
     // https://docs.google.com/spreadsheets/d/10JpBlUdVOniuSvXAG5M9LxhE3K0s10cQR82EBcGcMh8/edit#gid=0
     // but it needs interpretation
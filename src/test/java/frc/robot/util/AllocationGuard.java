@@ -0,0 +1,80 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Checks that code run every loop doesn't allocate
+ * <p>
+ * Garbage collection pauses cause loop overruns, so code that runs every 20ms shouldn't create objects.
+ * This counts the bytes the current thread allocates while running a loop many times. The loop is run
+ * first to warm up so the JIT has compiled it and caches have been filled.
+ * <p>
+ * Loops that still allocate get a budget in bytes per call instead, which should be lowered as they allocate less
+ * until they can use {@link #assertNoAllocations(String, int, Runnable)}.
+ */
+public final class AllocationGuard {
+    /** The number of times to run the loop before measuring */
+    public static final int WARMUP_CYCLES = 20000;
+    /**
+     * The budget of a loop that hasn't been measured yet. Its test prints what it allocated and is skipped, so
+     * the budget can be set just above that instead of guessed.
+     */
+    public static final double UNMEASURED = Double.NaN;
+
+    private static final com.sun.management.ThreadMXBean threadBean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private AllocationGuard() {}
+
+    /**
+     * Gets the bytes allocated by the current thread while running a loop
+     * @param warmupCycles The number of times to run the loop before measuring
+     * @param cycles The number of times to run the loop while measuring
+     * @param loop One cycle of the loop
+     * @return The bytes allocated
+     */
+    public static long measureAllocatedBytes(int warmupCycles, int cycles, Runnable loop) {
+        for (int i = 0; i < warmupCycles; i++) {
+            loop.run();
+        }
+        long start = threadBean.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < cycles; i++) {
+            loop.run();
+        }
+        return threadBean.getCurrentThreadAllocatedBytes() - start;
+    }
+
+    /**
+     * Fails if running a loop allocates anything after warming up
+     * @param name The name of the loop for the failure message
+     * @param cycles The number of times to run the loop while measuring
+     * @param loop One cycle of the loop
+     */
+    public static void assertNoAllocations(String name, int cycles, Runnable loop) {
+        long bytes = measureAllocatedBytes(WARMUP_CYCLES, cycles, loop);
+        assertEquals(0, bytes, name + " allocated " + bytes + " bytes in " + cycles + " cycles");
+    }
+
+    /**
+     * Fails if running a loop allocates more than a budget after warming up. What it allocated is printed so the
+     * budget can be lowered when the loop gets better.
+     * @param name The name of the loop for the failure message
+     * @param cycles The number of times to run the loop while measuring
+     * @param maxBytesPerCall The most bytes a cycle can allocate on average, or {@link #UNMEASURED}
+     * @param loop One cycle of the loop
+     */
+    public static void assertBytesPerCall(String name, int cycles, double maxBytesPerCall, Runnable loop) {
+        long bytes = measureAllocatedBytes(WARMUP_CYCLES, cycles, loop);
+        double bytesPerCall = (double) bytes / cycles;
+        String message = String.format("%s allocated %.1f bytes per call in %d cycles, the budget is %.1f",
+            name, bytesPerCall, cycles, maxBytesPerCall);
+        System.out.println(message);
+        assumeFalse(Double.isNaN(maxBytesPerCall),
+            name + " has no budget yet, set it just above the bytes per call printed");
+        assertTrue(bytesPerCall <= maxBytesPerCall, message);
+    }
+}
@@ -8,6 +8,8 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Rotation3d;
 import edu.wpi.first.math.geometry.Transform3d;
 import edu.wpi.first.math.geometry.Translation3d;
@@ -81,4 +83,66 @@ public class DetectedObjectTest {
     );
     assertEquals(object.pose.getZ(), 0, 0.001);
   }
+
+  /**
+   * Tests that a robot relative position is moved by the pose the robot had when the frame was captured
+   */
+  @Test
+  public void testFieldRelative(){
+    // The robot was at (2, 3) facing +y when it saw an object 1m in front of it
+    Translation3d translation = DetectedObject.toFieldRelative(
+      new Translation3d(1, 0, 0.5),
+      new Pose2d(2, 3, new Rotation2d(Math.PI/2))
+    );
+    assertEquals(2, translation.getX(), 0.001);
+    assertEquals(4, translation.getY(), 0.001);
+    assertEquals(0.5, translation.getZ(), 0.001);
+    // Without a pose, the position stays robot relative
+    assertEquals(1, DetectedObject.toFieldRelative(new Translation3d(1, 0, 0), null).getX(), 0.001);
+  }
+
+  /**
+   * Tests that the batch projector matches the DetectedObject constructors using random detections
+   */
+  @Test
+  public void testProjectorMatchesConstructors(){
+    Random random = new Random(972);
+    int count = 20;
+    Transform3d robotToCamera = new Transform3d(
+      new Translation3d(random.nextDouble(-0.5, 0.5), random.nextDouble(-0.5, 0.5), random.nextDouble(0.1, 1)),
+      new Rotation3d(random.nextDouble(-0.1, 0.1), random.nextDouble(0.001, Math.PI/4), random.nextDouble(-Math.PI, Math.PI))
+    );
+    Pose2d robotPose = new Pose2d(random.nextDouble(0, 16), random.nextDouble(0, 8), new Rotation2d(random.nextDouble(-Math.PI, Math.PI)));
+    double[] xOffsets = new double[count];
+    double[] yOffsets = new double[count];
+    double[] distances = new double[count];
+    DetectedObject.ObjectType[] types = new DetectedObject.ObjectType[count];
+    for(int i = 0; i < count; i++){
+      xOffsets[i] = random.nextDouble(-0.6, 0.6);
+      yOffsets[i] = random.nextDouble(0.001, 0.4);
+      distances[i] = random.nextDouble(0.5, 6);
+      types[i] = DetectedObject.getType(random.nextInt(3));
+    }
+    double[] x = new double[count];
+    double[] y = new double[count];
+    double[] z = new double[count];
+    DetectedObjectProjector projector = new DetectedObjectProjector(robotToCamera);
+
+    projector.project(xOffsets, yOffsets, distances, count, robotPose, x, y, z);
+    for(int i = 0; i < count; i++){
+      DetectedObject object = new DetectedObject(xOffsets[i], yOffsets[i], distances[i], types[i], robotToCamera);
+      Translation3d expected = DetectedObject.toFieldRelative(object.pose.getTranslation(), robotPose);
+      assertEquals(expected.getX(), x[i], 1e-9);
+      assertEquals(expected.getY(), y[i], 1e-9);
+      assertEquals(expected.getZ(), z[i], 1e-9);
+    }
+
+    projector.projectToGround(xOffsets, yOffsets, types, count, null, x, y, z);
+    for(int i = 0; i < count; i++){
+      DetectedObject object = new DetectedObject(xOffsets[i], yOffsets[i], types[i], robotToCamera);
+      assertEquals(object.pose.getX(), x[i], 1e-9);
+      assertEquals(object.pose.getY(), y[i], 1e-9);
+      assertEquals(object.pose.getZ(), z[i], 1e-9);
+    }
+  }
 }
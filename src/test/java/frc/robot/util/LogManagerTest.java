@@ -0,0 +1,48 @@
+package frc.robot.util;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class LogManagerTest {
+    // The most an update of the logs below can allocate.
+    private static final double UPDATE_BYTES_PER_CALL = AllocationGuard.UNMEASURED;
+
+    private double value = 0;
+    private int count = 0;
+    private List<Log<?>> logs;
+
+    /**
+     * Adds logs like the robot's: a double, an integer, and a double array. Their delay is 0 so every update logs.
+     */
+    @BeforeEach
+    public void prepare() {
+        logs = List.of(
+            new Log<>("LogManagerTest/Double", () -> value, Duration.ZERO),
+            new Log<>("LogManagerTest/Integer", () -> count, Duration.ZERO),
+            new Log<>("LogManagerTest/Double Array", () -> new Double[] {value, -value, 2 * value}, Duration.ZERO)
+        );
+        logs.forEach(log -> LogManager.add(log));
+    }
+
+    @AfterEach
+    public void cleanup() {
+        // LogManager is shared by every test in the JVM
+        logs.forEach(log -> LogManager.remove(log));
+    }
+
+    /**
+     * Every log is updated every loop, so updating them should create as little garbage as it can.
+     */
+    @Test
+    public void updateAllocationTest() {
+        AllocationGuard.assertBytesPerCall("LogManager.update", 5000, UPDATE_BYTES_PER_CALL, () -> {
+            value += 0.01;
+            count = (count + 1) % 100;
+            LogManager.update();
+        });
+    }
+}
@@ -0,0 +1,113 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import frc.robot.constants.miscConstants.FieldConstants;
+import frc.robot.constants.miscConstants.VisionConstants;
+
+/**
+ * Tests NoteMap
+ */
+public class NoteMapTest {
+
+  private NoteMap map;
+
+  @BeforeEach
+  public void prepare() {
+    map = new NoteMap();
+  }
+
+  /**
+   * Tests that the closest note in front of the robot is returned
+   */
+  @Test
+  public void testClosestNote() {
+    map.add(5, 4, 0);
+    map.add(3, 4, 0);
+    map.add(1, 4, 0);
+    DetectedObject note = map.getClosestNote(new Pose2d(2, 4, new Rotation2d()), Math.PI/2, 0);
+    assertNotNull(note);
+    assertEquals(3, note.pose.getX(), 0.001);
+    assertEquals(4, note.pose.getY(), 0.001);
+  }
+
+  /**
+   * Tests that notes are forgotten once their confidence decays
+   */
+  @Test
+  public void testDecay() {
+    map.add(3, 4, 0);
+    assertEquals(VisionConstants.NOTE_MAP_SIGHTING_CONFIDENCE, map.getConfidence(3, 4, 0), 0.001);
+    double forgetTime = VisionConstants.NOTE_MAP_TIME_CONSTANT
+      * Math.log(VisionConstants.NOTE_MAP_SIGHTING_CONFIDENCE/VisionConstants.NOTE_MAP_MIN_CONFIDENCE);
+    assertNotNull(map.getClosestNote(new Pose2d(2, 4, new Rotation2d()), Math.PI, forgetTime-0.1));
+    assertNull(map.getClosestNote(new Pose2d(2, 4, new Rotation2d()), Math.PI, forgetTime+0.1));
+  }
+
+  /**
+   * Tests that removed notes are not returned
+   */
+  @Test
+  public void testRemove() {
+    map.add(3, 4, 0);
+    map.remove(3, 4);
+    assertNull(map.getClosestNote(new Pose2d(2, 4, new Rotation2d()), Math.PI, 0));
+  }
+
+  /**
+   * Compares the grid search to a linear search using random notes
+   */
+  @Test
+  public void testMatchesLinearSearch() {
+    Random random = new Random(972);
+    for(int trial = 0; trial < 100; trial++){
+      map.clear();
+      double[] x = new double[10];
+      double[] y = new double[10];
+      for(int i = 0; i < x.length; i++){
+        x[i] = random.nextDouble(0, FieldConstants.kFieldLength);
+        y[i] = random.nextDouble(0, FieldConstants.kFieldWidth);
+        map.add(x[i], y[i], 0);
+      }
+      Pose2d robot = new Pose2d(
+        random.nextDouble(0, FieldConstants.kFieldLength),
+        random.nextDouble(0, FieldConstants.kFieldWidth),
+        new Rotation2d(random.nextDouble(-Math.PI, Math.PI))
+      );
+      double maxAngle = random.nextDouble(0.1, Math.PI);
+
+      // Only the last note in each cell is remembered, so skip notes that were replaced
+      double closest = Double.POSITIVE_INFINITY;
+      for(int i = 0; i < x.length; i++){
+        boolean replaced = false;
+        for(int j = i+1; j < x.length; j++){
+          replaced |= Math.floor(x[i]/VisionConstants.NOTE_MAP_CELL_SIZE) == Math.floor(x[j]/VisionConstants.NOTE_MAP_CELL_SIZE)
+            && Math.floor(y[i]/VisionConstants.NOTE_MAP_CELL_SIZE) == Math.floor(y[j]/VisionConstants.NOTE_MAP_CELL_SIZE);
+        }
+        double angle = Math.atan2(y[i]-robot.getY(), x[i]-robot.getX())-robot.getRotation().getRadians();
+        double distance = Math.hypot(x[i]-robot.getX(), y[i]-robot.getY());
+        if(!replaced && Math.abs(MathUtil.angleModulus(angle)) < maxAngle && distance < closest){
+          closest = distance;
+        }
+      }
+
+      DetectedObject note = map.getClosestNote(robot, maxAngle, 0);
+      if(closest == Double.POSITIVE_INFINITY){
+        assertNull(note);
+      }else{
+        assertNotNull(note);
+        assertEquals(closest, note.pose.getTranslation().toTranslation2d().getDistance(robot.getTranslation()), 0.001);
+      }
+    }
+  }
+}
@@ -0,0 +1,157 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * Tests PoseHistory
+ */
+public class PoseHistoryTest {
+
+  private static final double TOLERANCE = 1e-9;
+
+  /**
+   * Tests that an empty history has no poses
+   */
+  @Test
+  public void testEmpty() {
+    PoseHistory history = new PoseHistory(10);
+    assertTrue(history.isEmpty());
+    assertNull(history.getPoseAt(1));
+    assertFalse(history.getPoseAt(1, new double[3]));
+    assertTrue(Double.isNaN(history.getLatestTimestamp()));
+  }
+
+  /**
+   * Tests that poses between samples are interpolated and times outside of the history use the closest pose
+   */
+  @Test
+  public void testInterpolation() {
+    PoseHistory history = new PoseHistory(10);
+    history.add(1, new Pose2d(0, 0, new Rotation2d()));
+    history.add(2, new Pose2d(2, 4, Rotation2d.fromDegrees(90)));
+
+    assertPose(1, 2, Math.PI / 4, history.getPoseAt(1.5));
+    assertPose(0, 0, 0, history.getPoseAt(0));
+    assertPose(2, 4, Math.PI / 2, history.getPoseAt(3));
+    assertPose(2, 4, Math.PI / 2, history.getPoseAt(2));
+  }
+
+  /**
+   * Tests that the angle takes the short way across +-180 degrees
+   */
+  @Test
+  public void testAngleWrap() {
+    PoseHistory history = new PoseHistory(10);
+    history.add(0, new Pose2d(0, 0, Rotation2d.fromDegrees(170)));
+    history.add(1, new Pose2d(0, 0, Rotation2d.fromDegrees(-170)));
+
+    assertEquals(Math.PI, Math.abs(history.getPoseAt(0.5).getRotation().getRadians()), TOLERANCE);
+    assertEquals(Math.toRadians(175), history.getPoseAt(0.25).getRotation().getRadians(), TOLERANCE);
+  }
+
+  /**
+   * Tests that the oldest poses are replaced when the history is full
+   */
+  @Test
+  public void testCapacity() {
+    PoseHistory history = new PoseHistory(5);
+    for (int i = 0; i < 12; i++) {
+      history.add(i, i, 0, 0);
+    }
+    assertEquals(5, history.size());
+    assertEquals(7, history.getOldestTimestamp());
+    assertEquals(11, history.getLatestTimestamp());
+    assertPose(7, 0, 0, history.getPoseAt(0));
+    assertPose(9.5, 0, 0, history.getPoseAt(9.5));
+
+    // Too old to fit
+    history.add(1, 100, 0, 0);
+    assertEquals(7, history.getOldestTimestamp());
+  }
+
+  /**
+   * Tests that poses added out of order are sorted and repeated timestamps replace the pose
+   */
+  @Test
+  public void testOutOfOrder() {
+    PoseHistory history = new PoseHistory(4);
+    history.add(1, 1, 0, 0);
+    history.add(3, 3, 0, 0);
+    history.add(2, 2, 0, 0);
+    history.add(3, 5, 0, 0);
+    assertEquals(3, history.size());
+    assertPose(1.5, 0, 0, history.getPoseAt(1.5));
+    assertPose(3.5, 0, 0, history.getPoseAt(2.5));
+
+    // A full history drops the oldest
+    history.add(4, 4, 0, 0);
+    history.add(0.5, 0.5, 0, 0);
+    history.add(2.5, 2.5, 0, 0);
+    assertEquals(4, history.size());
+    assertEquals(2, history.getOldestTimestamp());
+    assertPose(2.5, 0, 0, history.getPoseAt(2.5));
+  }
+
+  /**
+   * Tests random samples against a linear search
+   */
+  @Test
+  public void testRandom() {
+    Random random = new Random(40);
+    PoseHistory history = new PoseHistory(64);
+    double[] timestamps = new double[200];
+    double[] xs = new double[timestamps.length];
+    double time = 0;
+    for (int i = 0; i < timestamps.length; i++) {
+      time += random.nextDouble(0.001, 0.02);
+      timestamps[i] = time;
+      xs[i] = random.nextDouble(-5, 5);
+      history.add(time, xs[i], 0, 0);
+    }
+
+    double[] pose = new double[3];
+    int oldest = timestamps.length - 64;
+    for (int i = 0; i < 1000; i++) {
+      double t = random.nextDouble(timestamps[oldest], timestamps[timestamps.length - 1]);
+      int after = oldest;
+      while (timestamps[after] < t) {
+        after++;
+      }
+      double expected = after == oldest ? xs[oldest]
+        : xs[after - 1] + (xs[after] - xs[after - 1]) * (t - timestamps[after - 1]) / (timestamps[after] - timestamps[after - 1]);
+      assertTrue(history.getPoseAt(t, pose));
+      assertEquals(expected, pose[0], TOLERANCE);
+    }
+  }
+
+  /**
+   * Tests that adding and sampling don't allocate
+   */
+  @Test
+  public void testNoAllocations() {
+    PoseHistory history = new PoseHistory(100);
+    double[] pose = new double[3];
+    double[] time = {0};
+    AllocationGuard.assertNoAllocations("PoseHistory", 10000, () -> {
+      time[0] += 0.004;
+      history.add(time[0], time[0], -time[0], 0.1);
+      history.getPoseAt(time[0] - 0.1, pose);
+    });
+  }
+
+  private static void assertPose(double x, double y, double theta, Pose2d pose) {
+    assertEquals(x, pose.getX(), TOLERANCE);
+    assertEquals(y, pose.getY(), TOLERANCE);
+    assertEquals(theta, pose.getRotation().getRadians(), TOLERANCE);
+  }
+}
@@ -0,0 +1,49 @@
+package frc.robot.util.SwerveStuff;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import frc.robot.constants.Constants;
+import frc.robot.constants.swerve.DriveConstants;
+
+/**
+ * Tests ModuleLimitsCalculator
+ */
+public class ModuleLimitsCalculatorTest {
+
+  /**
+   * Tests that a lower battery voltage gives lower limits
+   */
+  @Test
+  public void testVoltage() {
+    ModuleLimitsCalculator calculator = new ModuleLimitsCalculator(0.1, 0.12, 0.05);
+    ModuleLimits full = calculator.calculate(12.5);
+    ModuleLimits sagging = calculator.calculate(7);
+    assertTrue(sagging.maxDriveVelocity() < full.maxDriveVelocity());
+    assertTrue(sagging.maxDriveAcceleration() < full.maxDriveAcceleration());
+    assertTrue(sagging.maxSteeringVelocity() < full.maxSteeringVelocity());
+    assertTrue(full.maxDriveVelocity() <= DriveConstants.kMaxSpeed);
+  }
+
+  /**
+   * Tests that the acceleration never needs more traction than the wheels have
+   */
+  @Test
+  public void testTraction() {
+    // A very small kA would allow huge accelerations if only the voltage were considered
+    ModuleLimitsCalculator calculator = new ModuleLimitsCalculator(0.1, 0.12, 1e-6);
+    assertTrue(calculator.calculate(12).maxDriveAcceleration() <= DriveConstants.kWheelCOF * Constants.GRAVITY_ACCELERATION);
+  }
+
+  /**
+   * Tests that the limits are only recreated when the voltage changes
+   */
+  @Test
+  public void testReuse() {
+    ModuleLimitsCalculator calculator = new ModuleLimitsCalculator();
+    ModuleLimits limits = calculator.calculate(12.01);
+    assertSame(limits, calculator.calculate(12.02));
+  }
+}
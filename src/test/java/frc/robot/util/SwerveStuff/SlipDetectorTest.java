@@ -0,0 +1,124 @@
+package frc.robot.util.SwerveStuff;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import frc.robot.constants.swerve.DriveConstants;
+
+/**
+ * Tests SlipDetector
+ */
+public class SlipDetectorTest {
+
+  private static final double PERIOD = 0.004;
+  private static final double SLIP_THRESHOLD = 0.5;
+  private static final double COLLISION_THRESHOLD = 9.8;
+  private static final double HOLD_TIME = 0.25;
+
+  private final Translation2d[] locations = DriveConstants.swerveModuleLocations;
+  private final SlipDetector detector = new SlipDetector(locations, SLIP_THRESHOLD, COLLISION_THRESHOLD, HOLD_TIME);
+  private final SwerveModulePosition[] positions = new SwerveModulePosition[locations.length];
+  private double time;
+  private double gyro;
+
+  public SlipDetectorTest() {
+    for(int i = 0; i < positions.length; i++){
+      positions[i] = new SwerveModulePosition(0, new Rotation2d());
+    }
+    detector.update(time, gyro, positions);
+  }
+
+  /**
+   * Moves the robot for one sample like a rigid body
+   * @param vx The robot relative forward velocity in m/s
+   * @param vy The robot relative leftward velocity in m/s
+   * @param omega The angular velocity in rad/s
+   * @param extraDistance How much further the first module's wheel turns, in meters
+   * @return The module weights
+   */
+  private double[] move(double vx, double vy, double omega, double extraDistance) {
+    time += PERIOD;
+    gyro += omega * PERIOD;
+    for(int i = 0; i < positions.length; i++){
+      double moduleX = (vx - omega * locations[i].getY()) * PERIOD;
+      double moduleY = (vy + omega * locations[i].getX()) * PERIOD;
+      positions[i].distanceMeters += Math.hypot(moduleX, moduleY) + (i == 0 ? extraDistance : 0);
+      if(moduleX != 0 || moduleY != 0){
+        positions[i].angle = new Rotation2d(moduleX, moduleY);
+      }
+    }
+    return detector.update(time, gyro, positions);
+  }
+
+  /**
+   * Tests that modules that agree with each other and the gyro are trusted
+   */
+  @Test
+  public void testNoSlip() {
+    for(int i = 0; i < 50; i++){
+      double[] weights = move(3, -1, 4, 0);
+      for(double weight : weights){
+        assertEquals(1, weight);
+      }
+    }
+    assertEquals(0, detector.getSlippingCount());
+  }
+
+  /**
+   * Tests that a module spinning faster than the others is dropped
+   */
+  @Test
+  public void testSlip() {
+    move(2, 0, 1, 0);
+    double[] weights = move(2, 0, 1, 0.01);
+    assertEquals(0, weights[0]);
+    for(int i = 1; i < weights.length; i++){
+      assertEquals(1, weights[i]);
+    }
+    assertTrue(detector.isSlipping(0));
+    assertEquals(1, detector.getSlippingCount());
+
+    // A module a little off is trusted less
+    weights = move(2, 0, 1, SLIP_THRESHOLD * PERIOD * 0.75);
+    assertEquals(0.5, weights[0], 1e-6);
+    assertFalse(detector.isSlipping(0));
+  }
+
+  /**
+   * Tests that the accelerometer only finds collisions when it measures something the wheels didn't
+   */
+  @Test
+  public void testCollision() {
+    for(int loop = 0; loop < 10; loop++){
+      for(int i = 0; i < 5; i++){
+        move(2, 0, 3, 0);
+      }
+      // Turning while driving forward accelerates the robot to the left
+      detector.updateAcceleration(time, 0, 6);
+      assertFalse(detector.isColliding());
+    }
+
+    for(int i = 0; i < 5; i++){
+      move(2, 0, 3, 0);
+    }
+    detector.updateAcceleration(time, 0, 6 + 2 * COLLISION_THRESHOLD);
+    assertTrue(detector.isColliding());
+
+    // The collision is held for a little while after the accelerometer agrees again
+    double collisionTime = time;
+    while(time - collisionTime < HOLD_TIME + 0.1){
+      for(int i = 0; i < 5; i++){
+        move(2, 0, 3, 0);
+      }
+      detector.updateAcceleration(time, 0, 6);
+      assertEquals(time - collisionTime <= HOLD_TIME, detector.isColliding());
+    }
+    assertFalse(detector.isColliding());
+  }
+}
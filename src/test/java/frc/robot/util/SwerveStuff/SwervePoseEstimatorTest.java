@@ -0,0 +1,198 @@
+package frc.robot.util.SwerveStuff;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import frc.robot.constants.swerve.DriveConstants;
+import frc.robot.util.AllocationGuard;
+
+/**
+ * Tests SwervePoseEstimator
+ */
+public class SwervePoseEstimatorTest {
+
+  private static final double TOLERANCE = 1e-9;
+
+  private final SwerveModulePosition[] positions = new SwerveModulePosition[DriveConstants.swerveModuleLocations.length];
+
+  public SwervePoseEstimatorTest() {
+    for(int i = 0; i < positions.length; i++){
+      positions[i] = new SwerveModulePosition(0, new Rotation2d());
+    }
+  }
+
+  private SwervePoseEstimator createEstimator(double stateStdDev, double visionStdDev) {
+    return new SwervePoseEstimator(
+      DriveConstants.KINEMATICS, new Rotation2d(), positions, new Pose2d(),
+      VecBuilder.fill(stateStdDev, stateStdDev, stateStdDev), VecBuilder.fill(visionStdDev, visionStdDev, visionStdDev),
+      100
+    );
+  }
+
+  /**
+   * Moves every module forward in the robot's frame
+   */
+  private void drive(SwervePoseEstimator estimator, double time, double distance, double gyroRadians) {
+    for(SwerveModulePosition position : positions){
+      position.distanceMeters += distance;
+    }
+    estimator.updateWithTime(time, new Rotation2d(gyroRadians), positions);
+  }
+
+  /**
+   * Tests that driving straight moves the odometry the distance the modules moved
+   */
+  @Test
+  public void testStraight() {
+    SwervePoseEstimator estimator = createEstimator(0.1, 0.1);
+    for(int i = 1; i <= 10; i++){
+      drive(estimator, i * 0.02, 0.1, 0);
+    }
+    assertPose(1, 0, 0, estimator.getEstimatedPosition());
+  }
+
+  /**
+   * Tests that driving forward while turning follows the arc exactly, no matter how big the steps are
+   */
+  @Test
+  public void testArc() {
+    SwervePoseEstimator estimator = createEstimator(0.1, 0.1);
+    double radius = 2;
+    double angle = 0;
+    for(int i = 1; i <= 20; i++){
+      angle += 0.1;
+      drive(estimator, i * 0.02, radius * 0.1, angle);
+    }
+    assertPose(radius * Math.sin(angle), radius * (1 - Math.cos(angle)), angle, estimator.getEstimatedPosition());
+  }
+
+  /**
+   * Tests that a module with no weight doesn't move the odometry, and equal weights are the same as no weights
+   */
+  @Test
+  public void testModuleWeights() {
+    SwervePoseEstimator estimator = createEstimator(0.1, 0.1);
+    double[] weights = {0, 1, 1, 1};
+    for(int i = 1; i <= 10; i++){
+      positions[0].distanceMeters += 0.5;
+      for(SwerveModulePosition position : positions){
+        position.distanceMeters += 0.1;
+      }
+      estimator.updateWithTime(i * 0.02, new Rotation2d(), positions, weights);
+    }
+    assertPose(1, 0, 0, estimator.getEstimatedPosition());
+
+    SwervePoseEstimator unweighted = createEstimator(0.1, 0.1);
+    double[] equalWeights = {0.5, 0.5, 0.5, 0.5};
+    for(SwerveModulePosition position : positions){
+      position.distanceMeters = 0;
+    }
+    unweighted.resetPosition(new Rotation2d(), positions, new Pose2d());
+    estimator.resetPosition(new Rotation2d(), positions, new Pose2d());
+    double angle = 0;
+    for(int i = 1; i <= 20; i++){
+      angle += 0.1;
+      for(int j = 0; j < positions.length; j++){
+        positions[j].distanceMeters += 0.05 * (j + 1);
+        positions[j].angle = new Rotation2d(0.3 * j);
+      }
+      estimator.updateWithTime(i * 0.02, new Rotation2d(angle), positions, equalWeights);
+      unweighted.updateWithTime(i * 0.02, new Rotation2d(angle), positions);
+    }
+    Pose2d expected = unweighted.getEstimatedPosition();
+    assertPose(expected.getX(), expected.getY(), angle, estimator.getEstimatedPosition());
+  }
+
+  /**
+   * Tests that equal standard deviations move the estimate halfway to the measurement
+   */
+  @Test
+  public void testVisionWeight() {
+    SwervePoseEstimator estimator = createEstimator(0.1, 0.1);
+    drive(estimator, 1, 0, 0);
+    estimator.addVisionMeasurement(new Pose2d(2, -2, new Rotation2d(0.4)), 1);
+    assertPose(1, -1, 0.2, estimator.getEstimatedPosition());
+
+    // A measurement with its own standard deviations
+    estimator.addVisionMeasurement(1, -1, 0.2, 1, 0.1, Double.POSITIVE_INFINITY, 0);
+    assertPose(1, -1, 0.2, estimator.getEstimatedPosition());
+  }
+
+  /**
+   * Tests that a correction from the past moves the odometry since then with it, like replaying it would
+   */
+  @Test
+  public void testDelayedVision() {
+    SwervePoseEstimator estimator = createEstimator(0.1, 0.1);
+    drive(estimator, 0, 0, 0);
+    drive(estimator, 1, 1, 0);
+    drive(estimator, 2, 1, 0);
+    estimator.addVisionMeasurement(new Pose2d(1, 1, new Rotation2d(0.2)), 1);
+    // At t=1 the estimate is (1, 0.5, 0.1) and the robot drove 1m forward from there
+    assertPose(1 + Math.cos(0.1), 0.5 + Math.sin(0.1), 0.1, estimator.getEstimatedPosition());
+
+    // Between samples the odometry is interpolated, so a measurement that agrees with it doesn't change anything
+    estimator.addVisionMeasurement(new Pose2d(1 + 0.5 * Math.cos(0.1), 0.5 + 0.5 * Math.sin(0.1), new Rotation2d(0.1)), 1.5);
+    assertPose(1 + Math.cos(0.1), 0.5 + Math.sin(0.1), 0.1, estimator.getEstimatedPosition());
+  }
+
+  /**
+   * Tests that measurements older than the history are ignored
+   */
+  @Test
+  public void testOldVision() {
+    SwervePoseEstimator estimator = createEstimator(0.1, 0.1);
+    for(int i = 0; i < 200; i++){
+      drive(estimator, i * 0.02, 0, 0);
+    }
+    Pose2d pose = estimator.getEstimatedPosition();
+    estimator.addVisionMeasurement(new Pose2d(5, 5, new Rotation2d()), 1);
+    assertSame(pose, estimator.getEstimatedPosition());
+  }
+
+  /**
+   * Tests that resetting sets the pose and forgets the corrections
+   */
+  @Test
+  public void testReset() {
+    SwervePoseEstimator estimator = createEstimator(0.1, 0.1);
+    drive(estimator, 0, 1, 0);
+    estimator.addVisionMeasurement(new Pose2d(3, 3, new Rotation2d(1)), 0);
+    estimator.resetPosition(new Rotation2d(0.5), positions, new Pose2d(4, 2, new Rotation2d(Math.PI / 2)));
+    assertPose(4, 2, Math.PI / 2, estimator.getEstimatedPosition());
+
+    drive(estimator, 1, 1, 0.5);
+    assertPose(4, 3, Math.PI / 2, estimator.getEstimatedPosition());
+  }
+
+  /**
+   * Tests that updates and primitive vision measurements don't allocate
+   */
+  @Test
+  public void testNoAllocations() {
+    SwervePoseEstimator estimator = createEstimator(0.1, 0.9);
+    Rotation2d gyroAngle = new Rotation2d(0.3);
+    double[] time = {0};
+    AllocationGuard.assertNoAllocations("SwervePoseEstimator", 10000, () -> {
+      time[0] += 0.004;
+      for(SwerveModulePosition position : positions){
+        position.distanceMeters += 0.01;
+      }
+      estimator.updateWithTime(time[0], gyroAngle, positions);
+      estimator.addVisionMeasurement(time[0], 1, 0.3, time[0] - 0.1, 0.9, 0.9, 0.9);
+      estimator.getEstimatedX();
+    });
+  }
+
+  private static void assertPose(double x, double y, double theta, Pose2d pose) {
+    assertEquals(x, pose.getX(), TOLERANCE);
+    assertEquals(y, pose.getY(), TOLERANCE);
+    assertEquals(theta, pose.getRotation().getRadians(), TOLERANCE);
+  }
+}
@@ -0,0 +1,295 @@
+package frc.robot.util.SwerveStuff;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import frc.robot.constants.Constants;
+import frc.robot.constants.swerve.DriveConstants;
+
+/**
+ * Tests SwerveSetpointGenerator by running randomized and recorded setpoints through it
+ * <p>
+ * To also replay speeds recorded on the robot, run the tests with {@code -PsetpointRecording=<file>}, where each
+ * line of the file is {@code vx,vy,omega} of the desired chassis speeds.
+ */
+public class SwerveSetpointGeneratorTest {
+
+  private static final int RANDOM_TUPLES = 10000;
+  private static final int REPLAY_LOOPS = 3000;
+  // The generator uses approximate root finding, so allow a little error in the limits
+  private static final double TOLERANCE = 1e-6;
+  private static final double DT = Constants.LOOP_TIME;
+  private static final SwerveDriveKinematics KINEMATICS = DriveConstants.KINEMATICS;
+
+  private SwerveSetpointGenerator generator;
+  private Random random;
+
+  @BeforeEach
+  public void prepare() {
+    generator = new SwerveSetpointGenerator();
+    random = new Random(3005);
+  }
+
+  /**
+   * Tests the limits on random previous setpoints and goals
+   */
+  @Test
+  public void testRandomLimits() {
+    for (int i = 0; i < RANDOM_TUPLES; i++) {
+      ModuleLimits limits = randomLimits();
+      SwerveSetpoint prev = setpointFor(randomSpeeds(limits, 0.2), limits);
+      ChassisSpeeds desired = randomSpeeds(limits, 0.1);
+      assertLimits(limits, prev, generator.generateSetpoint(limits, prev, desired, DT));
+    }
+  }
+
+  /**
+   * Tests the limits when replaying a continuous input, where each setpoint is the previous one for the next loop
+   */
+  @Test
+  public void testReplayLimits() throws IOException {
+    ModuleLimits limits = new ModuleLimits(DriveConstants.kMaxSpeed, 12, 4 * Math.PI);
+    SwerveSetpoint prev = setpointFor(new ChassisSpeeds(), limits);
+    for (ChassisSpeeds desired : replaySpeeds(limits)) {
+      SwerveSetpoint next = generator.generateSetpoint(limits, prev, desired, DT);
+      assertLimits(limits, prev, next);
+      prev = next;
+    }
+  }
+
+  /**
+   * Tests that reversing direction stops the robot without turning the modules
+   */
+  @Test
+  public void testFlip() {
+    for (int i = 0; i < RANDOM_TUPLES; i++) {
+      ModuleLimits limits = randomLimits();
+      SwerveSetpoint prev = setpointFor(randomSpeeds(limits, 0), limits);
+      ChassisSpeeds prevSpeeds = prev.chassisSpeeds();
+      double scale = random.nextDouble(0.1, 1);
+      ChassisSpeeds desired = new ChassisSpeeds(
+        -prevSpeeds.vxMetersPerSecond * scale,
+        -prevSpeeds.vyMetersPerSecond * scale,
+        -prevSpeeds.omegaRadiansPerSecond * scale
+      );
+      SwerveSetpoint next = generator.generateSetpoint(limits, prev, desired, DT);
+      assertLimits(limits, prev, next);
+
+      // It should slow down along the same direction instead of reversing
+      double fraction = largestComponentFraction(next.chassisSpeeds(), prevSpeeds);
+      assertTrue(fraction >= -TOLERANCE && fraction < 1, "Flip did not slow down: " + fraction);
+      assertEquals(prevSpeeds.vxMetersPerSecond * fraction, next.chassisSpeeds().vxMetersPerSecond, TOLERANCE);
+      assertEquals(prevSpeeds.vyMetersPerSecond * fraction, next.chassisSpeeds().vyMetersPerSecond, TOLERANCE);
+      assertEquals(prevSpeeds.omegaRadiansPerSecond * fraction, next.chassisSpeeds().omegaRadiansPerSecond, TOLERANCE);
+      for (int module = 0; module < next.moduleStates().length; module++) {
+        assertEquals(0, steerChange(prev.moduleStates()[module], next.moduleStates()[module]), TOLERANCE);
+      }
+    }
+  }
+
+  /**
+   * Tests that stopped modules turn in place before the robot moves
+   */
+  @Test
+  public void testSteerInPlace() {
+    ModuleLimits limits = new ModuleLimits(DriveConstants.kMaxSpeed, 12, 4 * Math.PI);
+    SwerveModuleState[] states = new SwerveModuleState[DriveConstants.swerveModuleLocations.length];
+    for (int i = 0; i < states.length; i++) {
+      states[i] = new SwerveModuleState();
+    }
+    SwerveSetpoint prev = new SwerveSetpoint(new ChassisSpeeds(), states);
+    ChassisSpeeds desired = new ChassisSpeeds(0, 1, 0);
+    SwerveSetpoint next = generator.generateSetpoint(limits, prev, desired, DT);
+    assertLimits(limits, prev, next);
+    assertEquals(0, next.chassisSpeeds().vyMetersPerSecond, TOLERANCE);
+    for (SwerveModuleState state : next.moduleStates()) {
+      assertEquals(limits.maxSteeringVelocity() * DT, Math.abs(state.angle.getRadians()), TOLERANCE);
+    }
+  }
+
+  /**
+   * Tests that the allocation-free version gives the same setpoints
+   */
+  @Test
+  public void testInPlaceMatches() {
+    SwerveSetpoint output = setpointFor(new ChassisSpeeds(), randomLimits());
+    for (int i = 0; i < RANDOM_TUPLES; i++) {
+      ModuleLimits limits = randomLimits();
+      SwerveSetpoint prev = setpointFor(randomSpeeds(limits, 0.2), limits);
+      ChassisSpeeds desired = randomSpeeds(limits, 0.1);
+      generator.generateSetpoint(limits, prev, desired, DT, output);
+      assertSetpointsEqual(generator.generateSetpoint(limits, prev, desired, DT), output);
+    }
+  }
+
+  /**
+   * Tests that the allocation-free version gives the same setpoints when it writes over the previous setpoint
+   */
+  @Test
+  public void testInPlaceReplayMatches() throws IOException {
+    ModuleLimits limits = new ModuleLimits(DriveConstants.kMaxSpeed, 12, 4 * Math.PI);
+    SwerveSetpoint expected = setpointFor(new ChassisSpeeds(), limits);
+    SwerveSetpoint actual = setpointFor(new ChassisSpeeds(), limits);
+    for (ChassisSpeeds desired : replaySpeeds(limits)) {
+      expected = generator.generateSetpoint(limits, expected, desired, DT);
+      generator.generateSetpoint(limits, actual, desired, DT, actual);
+      assertSetpointsEqual(expected, actual);
+    }
+  }
+
+  /**
+   * Checks the velocity, acceleration, and steering limits between 2 setpoints
+   */
+  private static void assertLimits(ModuleLimits limits, SwerveSetpoint prev, SwerveSetpoint next) {
+    for (int i = 0; i < next.moduleStates().length; i++) {
+      SwerveModuleState prevState = prev.moduleStates()[i];
+      SwerveModuleState nextState = next.moduleStates()[i];
+      double speed = Math.abs(nextState.speedMetersPerSecond);
+      assertTrue(speed <= limits.maxDriveVelocity() + TOLERANCE,
+        "Module " + i + " speed " + speed + " is over " + limits.maxDriveVelocity());
+      double acceleration = Math.abs(speed - Math.abs(prevState.speedMetersPerSecond)) / DT;
+      assertTrue(acceleration <= limits.maxDriveAcceleration() + TOLERANCE / DT,
+        "Module " + i + " acceleration " + acceleration + " is over " + limits.maxDriveAcceleration());
+      double steerRate = Math.abs(steerChange(prevState, nextState)) / DT;
+      assertTrue(steerRate <= limits.maxSteeringVelocity() + TOLERANCE / DT,
+        "Module " + i + " steering rate " + steerRate + " is over " + limits.maxSteeringVelocity());
+    }
+    // The chassis speeds should match the module states
+    ChassisSpeeds moduleSpeeds = KINEMATICS.toChassisSpeeds(next.moduleStates());
+    assertEquals(moduleSpeeds.vxMetersPerSecond, next.chassisSpeeds().vxMetersPerSecond, TOLERANCE);
+    assertEquals(moduleSpeeds.vyMetersPerSecond, next.chassisSpeeds().vyMetersPerSecond, TOLERANCE);
+    assertEquals(moduleSpeeds.omegaRadiansPerSecond, next.chassisSpeeds().omegaRadiansPerSecond, TOLERANCE);
+  }
+
+  private static void assertSetpointsEqual(SwerveSetpoint expected, SwerveSetpoint actual) {
+    assertEquals(expected.chassisSpeeds().vxMetersPerSecond, actual.chassisSpeeds().vxMetersPerSecond, TOLERANCE);
+    assertEquals(expected.chassisSpeeds().vyMetersPerSecond, actual.chassisSpeeds().vyMetersPerSecond, TOLERANCE);
+    assertEquals(expected.chassisSpeeds().omegaRadiansPerSecond, actual.chassisSpeeds().omegaRadiansPerSecond, TOLERANCE);
+    for (int i = 0; i < expected.moduleStates().length; i++) {
+      SwerveModuleState expectedState = expected.moduleStates()[i];
+      SwerveModuleState actualState = actual.moduleStates()[i];
+      assertEquals(expectedState.speedMetersPerSecond, actualState.speedMetersPerSecond, TOLERANCE);
+      assertEquals(0, expectedState.angle.minus(actualState.angle).getRadians(), TOLERANCE);
+    }
+  }
+
+  /**
+   * Gets how far a module turned, ignoring flips of the drive direction
+   */
+  private static double steerChange(SwerveModuleState prev, SwerveModuleState next) {
+    double change = MathUtil.angleModulus(next.angle.getRadians() - prev.angle.getRadians());
+    if (Math.abs(change) > Math.PI / 2) {
+      change = MathUtil.angleModulus(change + Math.PI);
+    }
+    return change;
+  }
+
+  /**
+   * Gets next's largest component divided by the same component of prev
+   */
+  private static double largestComponentFraction(ChassisSpeeds next, ChassisSpeeds prev) {
+    double[] prevComponents = {prev.vxMetersPerSecond, prev.vyMetersPerSecond, prev.omegaRadiansPerSecond};
+    double[] nextComponents = {next.vxMetersPerSecond, next.vyMetersPerSecond, next.omegaRadiansPerSecond};
+    int largest = 0;
+    for (int i = 1; i < prevComponents.length; i++) {
+      if (Math.abs(prevComponents[i]) > Math.abs(prevComponents[largest])) {
+        largest = i;
+      }
+    }
+    return nextComponents[largest] / prevComponents[largest];
+  }
+
+  private ModuleLimits randomLimits() {
+    return new ModuleLimits(
+      random.nextDouble(2, DriveConstants.kMaxSpeed),
+      random.nextDouble(3, 30),
+      random.nextDouble(Math.PI, 8 * Math.PI)
+    );
+  }
+
+  /**
+   * Gets random speeds that may be above the limits
+   * @param stoppedChance The chance of returning all zeros
+   */
+  private ChassisSpeeds randomSpeeds(ModuleLimits limits, double stoppedChance) {
+    if (random.nextDouble() < stoppedChance) {
+      return new ChassisSpeeds();
+    }
+    double maxSpeed = limits.maxDriveVelocity() * 1.2;
+    return new ChassisSpeeds(
+      random.nextDouble(-maxSpeed, maxSpeed),
+      random.nextDouble(-maxSpeed, maxSpeed),
+      random.nextDouble(-DriveConstants.kMaxAngularSpeed, DriveConstants.kMaxAngularSpeed)
+    );
+  }
+
+  /**
+   * Creates a setpoint the robot could actually be at, with module states that match the chassis speeds
+   */
+  private static SwerveSetpoint setpointFor(ChassisSpeeds speeds, ModuleLimits limits) {
+    SwerveModuleState[] states = KINEMATICS.toSwerveModuleStates(speeds);
+    SwerveDriveKinematics.desaturateWheelSpeeds(states, limits.maxDriveVelocity());
+    return new SwerveSetpoint(KINEMATICS.toChassisSpeeds(states), states);
+  }
+
+  /**
+   * Gets the desired speeds to replay, either from the recording or from a random walk of the driver's sticks
+   */
+  private List<ChassisSpeeds> replaySpeeds(ModuleLimits limits) throws IOException {
+    List<ChassisSpeeds> speeds = new ArrayList<>();
+    String recording = System.getProperty("setpointRecording", "");
+    if (!recording.isEmpty()) {
+      for (String line : Files.readAllLines(Path.of(recording))) {
+        if (line.isBlank()) {
+          continue;
+        }
+        String[] values = line.split(",");
+        speeds.add(new ChassisSpeeds(
+          Double.parseDouble(values[0]),
+          Double.parseDouble(values[1]),
+          Double.parseDouble(values[2])
+        ));
+      }
+      return speeds;
+    }
+    double x = 0;
+    double y = 0;
+    double rot = 0;
+    for (int i = 0; i < REPLAY_LOOPS; i++) {
+      // Sometimes let go of the sticks or slam them the other way
+      double event = random.nextDouble();
+      if (event < 0.01) {
+        x = 0;
+        y = 0;
+        rot = 0;
+      } else if (event < 0.02) {
+        x = -x;
+        y = -y;
+      } else {
+        x = MathUtil.clamp(x + random.nextGaussian() * 0.1, -1, 1);
+        y = MathUtil.clamp(y + random.nextGaussian() * 0.1, -1, 1);
+        rot = MathUtil.clamp(rot + random.nextGaussian() * 0.1, -1, 1);
+      }
+      speeds.add(new ChassisSpeeds(
+        x * limits.maxDriveVelocity(),
+        y * limits.maxDriveVelocity(),
+        rot * DriveConstants.kMaxAngularSpeed
+      ));
+    }
+    return speeds;
+  }
+}